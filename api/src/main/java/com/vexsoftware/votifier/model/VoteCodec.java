@@ -0,0 +1,311 @@
+package com.vexsoftware.votifier.model;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Encodes and decodes batches of votes for forwarding.
+ * <p>
+ * Two formats are supported. {@link Format#JSON} is the format every NuVotifier version understands:
+ * the result of {@link Vote#serialize()} for each vote, one after another. {@link Format#BINARY} is a
+ * more compact format that starts with {@link #MAGIC}, which can never start a JSON message, followed
+ * by a version byte and then each vote in turn:
+ * <ul>
+ *     <li>a flags byte, saying which of the optional forms below are used;</li>
+ *     <li>the service name, username and address, each as a varint length followed by UTF-8 bytes;</li>
+ *     <li>the timestamp, as a zigzag varint if it is a plain number and as a string otherwise;</li>
+ *     <li>the additional data, if there is any, as a varint length followed by the raw bytes.</li>
+ * </ul>
+ * Receivers should use {@link #decode(byte[])}, which accepts either format.
+ */
+public final class VoteCodec {
+
+    /**
+     * The first byte of every message in the binary format.
+     */
+    public static final byte MAGIC = (byte) 0xB7;
+
+    /**
+     * The version of the binary format written by this class.
+     */
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_NUMERIC_TIMESTAMP = 1;
+    private static final int FLAG_ADDITIONAL_DATA = 1 << 1;
+
+    private VoteCodec() {
+        throw new AssertionError();
+    }
+
+    public enum Format {
+        JSON {
+            @Override
+            public byte[] encode(Collection<? extends Vote> votes) {
+                StringBuilder data = new StringBuilder();
+                for (Vote vote : votes) {
+                    data.append(vote.serialize());
+                }
+                return data.toString().getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public int getHeaderLength() {
+                return 0;
+            }
+        },
+        BINARY {
+            @Override
+            public byte[] encode(Collection<? extends Vote> votes) {
+                return VoteCodec.encode(votes);
+            }
+
+            @Override
+            public int getHeaderLength() {
+                return 2;
+            }
+        };
+
+        /**
+         * Encodes the given votes into a single message.
+         *
+         * @param votes The votes to encode
+         * @return The encoded message
+         */
+        public abstract byte[] encode(Collection<? extends Vote> votes);
+
+        /**
+         * Gets how many bytes at the start of every message do not belong to any vote. A message
+         * holding several votes is this long plus the length of each vote encoded on its own, less
+         * its header.
+         *
+         * @return The length of the message header
+         */
+        public abstract int getHeaderLength();
+
+        /**
+         * Looks up a format by its name, ignoring case.
+         *
+         * @param name The name of the format, such as {@code json} or {@code binary}
+         * @return The format
+         * @throws IllegalArgumentException If no format has that name
+         */
+        public static Format fromName(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Checks whether a message is in the binary format.
+     *
+     * @param message The message to check
+     * @return Whether the message starts with {@link #MAGIC}
+     */
+    public static boolean isBinary(byte[] message) {
+        return message.length > 0 && message[0] == MAGIC;
+    }
+
+    /**
+     * Encodes the given votes into a single message in the binary format.
+     *
+     * @param votes The votes to encode
+     * @return The encoded message
+     */
+    public static byte[] encode(Collection<? extends Vote> votes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * Math.max(1, votes.size()));
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        for (Vote vote : votes) {
+            String timestamp = vote.getTimestamp();
+            byte[] additionalData = vote.getAdditionalData();
+            Long numericTimestamp = parseTimestamp(timestamp);
+
+            int flags = 0;
+            if (numericTimestamp != null) {
+                flags |= FLAG_NUMERIC_TIMESTAMP;
+            }
+            if (additionalData != null) {
+                flags |= FLAG_ADDITIONAL_DATA;
+            }
+
+            out.write(flags);
+            writeString(out, vote.getServiceName());
+            writeString(out, vote.getUsername());
+            writeString(out, vote.getAddress());
+
+            if (numericTimestamp != null) {
+                long value = numericTimestamp;
+                writeVarLong(out, (value << 1) ^ (value >> 63));
+            } else {
+                writeString(out, timestamp);
+            }
+
+            if (additionalData != null) {
+                writeVarLong(out, additionalData.length);
+                out.write(additionalData, 0, additionalData.length);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a message in either format.
+     *
+     * @param message The message to decode
+     * @return The votes in the message, in order
+     * @throws IllegalArgumentException If the message is malformed, or uses an unknown version of the binary format
+     */
+    public static List<Vote> decode(byte[] message) {
+        if (!isBinary(message)) {
+            return decodeJson(message);
+        }
+
+        if (message.length < 2 || message[1] != VERSION) {
+            throw new IllegalArgumentException("Unsupported vote format version "
+                    + (message.length < 2 ? "(none)" : Byte.toString(message[1])));
+        }
+
+        List<Vote> votes = new ArrayList<>();
+        Reader reader = new Reader(message, 2);
+        while (reader.hasRemaining()) {
+            int flags = reader.readByte();
+            String serviceName = reader.readString();
+            String username = reader.readString();
+            String address = reader.readString();
+
+            String timestamp;
+            if ((flags & FLAG_NUMERIC_TIMESTAMP) != 0) {
+                long value = reader.readVarLong();
+                timestamp = Long.toString((value >>> 1) ^ -(value & 1));
+            } else {
+                timestamp = reader.readString();
+            }
+
+            byte[] additionalData = null;
+            if ((flags & FLAG_ADDITIONAL_DATA) != 0) {
+                additionalData = reader.readBytes();
+            }
+
+            votes.add(new Vote(serviceName, username, address, timestamp, additionalData));
+        }
+
+        return votes;
+    }
+
+    @SuppressWarnings("deprecation") // setLenient is the only option on the older Gson versions backends may ship
+    private static List<Vote> decodeJson(byte[] message) {
+        JsonReader reader = new JsonReader(new StringReader(new String(message, StandardCharsets.UTF_8)));
+        reader.setLenient(true);
+
+        List<Vote> votes = new ArrayList<>();
+        try {
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                votes.add(new Vote(JsonParser.parseReader(reader).getAsJsonObject()));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Malformed vote message", e);
+        }
+
+        return votes;
+    }
+
+    private static Long parseTimestamp(String timestamp) {
+        // Only use the numeric form when it gives back exactly the same string.
+        if (timestamp == null || timestamp.isEmpty() || timestamp.length() > 20) {
+            return null;
+        }
+
+        try {
+            long value = Long.parseLong(timestamp);
+            return Long.toString(value).equals(timestamp) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Votes with missing fields cannot be encoded");
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private boolean hasRemaining() {
+            return position < data.length;
+        }
+
+        private int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Vote message ends too early");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint is too long");
+        }
+
+        private int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Field length " + length + " is out of bounds");
+            }
+            return (int) length;
+        }
+
+        private String readString() {
+            int length = readLength();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private byte[] readBytes() {
+            int length = readLength();
+            byte[] value = new byte[length];
+            System.arraycopy(data, position, value, 0, length);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.vexsoftware.votifier.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VoteCodecTest {
+
+    private static final List<Vote> VOTES = Arrays.asList(
+            new Vote("serviceA", "usernameA", "1.1.1.1", "1546300800"),
+            new Vote("serviceB", "usernameB", "1.2.23.4", "-12"),
+            new Vote("serviceC", "usernameC", "::1", "2019-01-01T00:00:00Z"),
+            new Vote("serviceD", "usernameD", "1.1.1.1", "1546300801", "extra".getBytes(StandardCharsets.UTF_8))
+    );
+
+    @Test
+    public void testBinaryRoundTrip() {
+        byte[] message = VoteCodec.Format.BINARY.encode(VOTES);
+        assertTrue(VoteCodec.isBinary(message));
+        assertEquals(VOTES, VoteCodec.decode(message));
+    }
+
+    @Test
+    public void testBinaryKeepsTimestampAsIs() {
+        // Would not survive being read back as a number.
+        List<Vote> votes = Arrays.asList(new Vote("serviceA", "usernameA", "1.1.1.1", "0012"));
+        assertEquals(votes, VoteCodec.decode(VoteCodec.Format.BINARY.encode(votes)));
+    }
+
+    @Test
+    public void testJsonRoundTrip() {
+        byte[] message = VoteCodec.Format.JSON.encode(VOTES);
+        assertFalse(VoteCodec.isBinary(message));
+        assertEquals(VOTES, VoteCodec.decode(message));
+    }
+
+    @Test
+    public void testBinaryIsSmaller() {
+        assertTrue(VoteCodec.Format.BINARY.encode(VOTES).length < VoteCodec.Format.JSON.encode(VOTES).length);
+    }
+
+    @Test
+    public void testMalformedBinaryIsRejected() {
+        byte[] message = VoteCodec.Format.BINARY.encode(VOTES);
+        assertThrows(IllegalArgumentException.class, () -> VoteCodec.decode(Arrays.copyOf(message, message.length - 3)));
+
+        byte[] unknownVersion = message.clone();
+        unknownVersion[1] = 42;
+        assertThrows(IllegalArgumentException.class, () -> VoteCodec.decode(unknownVersion));
+    }
+
+    @Test
+    public void testFormatFromName() {
+        assertEquals(VoteCodec.Format.BINARY, VoteCodec.Format.fromName(" Binary "));
+        assertThrows(IllegalArgumentException.class, () -> VoteCodec.Format.fromName("xml"));
+    }
+}
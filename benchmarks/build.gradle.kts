@@ -0,0 +1,21 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    jmhImplementation(project(":nuvotifier-common"))
+    jmhImplementation(libs.gson)
+    jmhImplementation(libs.bundles.netty)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+
+    // Reports allocations per operation (gc.alloc.rate.norm) next to the vote throughput.
+    profilers.add("gc")
+    resultFormat.set("JSON")
+
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
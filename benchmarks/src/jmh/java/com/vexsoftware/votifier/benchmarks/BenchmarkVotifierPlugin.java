@@ -0,0 +1,71 @@
+package com.vexsoftware.votifier.benchmarks;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.VotifierSession;
+import com.vexsoftware.votifier.net.protocol.v1crypto.RSAKeygen;
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
+import com.vexsoftware.votifier.util.KeyCreator;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link VotifierPlugin} that only counts the votes it receives, so the benchmarks
+ * measure the receive pipeline and nothing else.
+ */
+public class BenchmarkVotifierPlugin implements VotifierPlugin {
+
+    public static final String TOKEN = "benchmark";
+
+    private final Map<String, Key> tokens = new HashMap<>();
+    private final KeyPair keyPair;
+    private long received;
+    private long errors;
+
+    public BenchmarkVotifierPlugin() throws Exception {
+        this.keyPair = RSAKeygen.generate(2048);
+        this.tokens.put("default", KeyCreator.createKeyFrom(TOKEN));
+    }
+
+    @Override
+    public Map<String, Key> getTokens() {
+        return tokens;
+    }
+
+    @Override
+    public KeyPair getProtocolV1Key() {
+        return keyPair;
+    }
+
+    @Override
+    public LoggingAdapter getPluginLogger() {
+        return null;
+    }
+
+    @Override
+    public VotifierScheduler getScheduler() {
+        return null;
+    }
+
+    @Override
+    public void onVoteReceived(Vote vote, VotifierSession.ProtocolVersion protocolVersion, String remoteAddress) {
+        received++;
+    }
+
+    @Override
+    public void onError(Throwable throwable, boolean voteAlreadyCompleted, String remoteAddress) {
+        errors++;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,136 @@
+package com.vexsoftware.votifier.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.VotifierSession;
+import com.vexsoftware.votifier.net.protocol.VoteInboundHandler;
+import com.vexsoftware.votifier.net.protocol.VotifierGreetingHandler;
+import com.vexsoftware.votifier.net.protocol.VotifierProtocolDifferentiator;
+import com.vexsoftware.votifier.net.protocol.v1crypto.RSA;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a complete vote connection (greeting, protocol detection, decoding and
+ * {@link VoteInboundHandler}) through an {@link EmbeddedChannel}, using the same
+ * pipeline layout as {@link com.vexsoftware.votifier.net.VotifierServerBootstrap}.
+ * <p>
+ * The score is votes per second; run with the {@code gc} profiler (the default for
+ * {@code ./gradlew :nuvotifier-benchmarks:jmh}) and read {@code gc.alloc.rate.norm}
+ * for the bytes allocated per vote.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class VoteReceiveBenchmark {
+
+    private static final String CHALLENGE = "benchmarkchallenge";
+    private static final short PROTOCOL_2_MAGIC = 0x733A;
+
+    @Param({"v1", "v2"})
+    public String protocol;
+
+    private BenchmarkVotifierPlugin plugin;
+    private VoteInboundHandler voteInboundHandler;
+    private ByteBuf frame;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.plugin = new BenchmarkVotifierPlugin();
+        this.voteInboundHandler = new VoteInboundHandler(plugin);
+
+        Vote vote = new Vote("BenchmarkList", "Notch", "127.0.0.1", Long.toString(System.currentTimeMillis()));
+        byte[] encoded = "v1".equals(protocol) ? encodeV1(vote) : encodeV2(vote);
+        this.frame = Unpooled.unreleasableBuffer(Unpooled.directBuffer(encoded.length).writeBytes(encoded));
+    }
+
+    @TearDown(Level.Trial)
+    public void verify() {
+        if (plugin.getErrors() != 0) {
+            throw new IllegalStateException(plugin.getErrors() + " benchmark votes were rejected");
+        }
+
+        if (plugin.getReceived() == 0) {
+            throw new IllegalStateException("No votes were received during the benchmark");
+        }
+    }
+
+    @Benchmark
+    public long receiveVote() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInitializer<EmbeddedChannel>() {
+            @Override
+            protected void initChannel(EmbeddedChannel channel) {
+                channel.attr(VotifierSession.KEY).set(new FixedChallengeSession());
+                channel.attr(VotifierPlugin.KEY).set(plugin);
+                channel.pipeline().addLast("greetingHandler", VotifierGreetingHandler.INSTANCE);
+                channel.pipeline().addLast("protocolDifferentiator", new VotifierProtocolDifferentiator(false, true, true));
+                channel.pipeline().addLast("voteHandler", voteInboundHandler);
+            }
+        });
+
+        channel.writeInbound(frame.duplicate());
+        channel.finishAndReleaseAll();
+        return plugin.getReceived();
+    }
+
+    private byte[] encodeV1(Vote vote) throws Exception {
+        String message = "VOTE\n" + vote.getServiceName() + "\n" + vote.getUsername() + "\n"
+                + vote.getAddress() + "\n" + vote.getTimestamp() + "\n";
+
+        return RSA.encrypt(message.getBytes(StandardCharsets.US_ASCII), plugin.getProtocolV1Key().getPublic());
+    }
+
+    private byte[] encodeV2(Vote vote) throws Exception {
+        JsonObject payload = vote.serialize();
+        payload.addProperty("challenge", CHALLENGE);
+        String payloadJson = payload.toString();
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(plugin.getTokens().get("default"));
+
+        JsonObject message = new JsonObject();
+        message.addProperty("payload", payloadJson);
+        message.addProperty("signature", Base64.getEncoder().encodeToString(
+                mac.doFinal(payloadJson.getBytes(StandardCharsets.UTF_8))));
+
+        byte[] json = message.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuf buf = Unpooled.buffer(4 + json.length);
+        buf.writeShort(PROTOCOL_2_MAGIC);
+        buf.writeShort(json.length);
+        buf.writeBytes(json);
+
+        byte[] encoded = new byte[buf.readableBytes()];
+        buf.readBytes(encoded);
+        buf.release();
+        return encoded;
+    }
+
+    /**
+     * A session with a known challenge, so the v2 vote can be signed once up front.
+     */
+    private static final class FixedChallengeSession extends VotifierSession {
+
+        @Override
+        public String getChallenge() {
+            return CHALLENGE;
+        }
+    }
+}
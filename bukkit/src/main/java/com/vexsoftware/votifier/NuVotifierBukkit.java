@@ -20,22 +20,30 @@ package com.vexsoftware.votifier;
 
 import com.vexsoftware.votifier.commands.TestVoteCommand;
 import com.vexsoftware.votifier.commands.VotifierReloadCommand;
+import com.vexsoftware.votifier.metrics.LoggingMetricsExporter;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VotifierBatchEvent;
 import com.vexsoftware.votifier.model.VotifierEvent;
 import com.vexsoftware.votifier.net.VotifierServerBootstrap;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAIO;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAKeygen;
 import com.vexsoftware.votifier.platform.JavaUtilLogger;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
+import com.vexsoftware.votifier.platform.VotifierEventQueue;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
 import com.vexsoftware.votifier.platform.forwarding.BukkitPluginMessagingForwardingSink;
 import com.vexsoftware.votifier.platform.scheduler.BukkitScheduler;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
 import com.vexsoftware.votifier.support.forwarding.ForwardedVoteListener;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSink;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisCredentials;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisForwardingSink;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisStreamForwardingSink;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisVoteRouter;
 import com.vexsoftware.votifier.util.IOUtil;
 import com.vexsoftware.votifier.util.KeyCreator;
 import com.vexsoftware.votifier.util.TokenUtil;
@@ -71,16 +79,20 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
     private static final String DEFAULT_CHANNEL = "NuVotifier";
     private static final String CONFIG_FILE_NAME = "config.yml";
     private static final String RSA_FOLDER_NAME = "rsa";
+    private static final int DEFAULT_MAX_VOTES_PER_TICK = 50;
 
     private VotifierServerBootstrap bootstrap;
     private KeyPair keyPair;
     private boolean debug;
     private final Map<String, Key> tokens = new HashMap<>();
 
-    private ForwardingVoteSink forwardingMethod;
+    private volatile ForwardingVoteSink forwardingMethod;
     private VotifierScheduler scheduler;
     private LoggingAdapter pluginLogger;
     private boolean isFolia;
+    private boolean ignoreOfflineVotes;
+    private volatile VotifierEventQueue eventQueue;
+    private ScheduledVotifierTask metricsTask;
 
     @Override
     public void onEnable() {
@@ -141,6 +153,18 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
 
             initializeTokens(cfg, configFile);
 
+            ignoreOfflineVotes = cfg.getBoolean("ignore-offline-votes", false);
+            if (!isFolia) {
+                eventQueue = new VotifierEventQueue(this, cfg.getInt("max-votes-per-tick", DEFAULT_MAX_VOTES_PER_TICK),
+                        ignoreOfflineVotes, debug);
+                eventQueue.start();
+            }
+
+            int metricsInterval = cfg.getInt("metrics-interval", 0);
+            if (metricsInterval > 0) {
+                metricsTask = VotifierMetrics.global().scheduleExport(scheduler, new LoggingMetricsExporter(pluginLogger), metricsInterval);
+            }
+
             final String host = cfg.getString("host", hostAddr);
             final int port = cfg.getInt("port", DEFAULT_PORT);
             if (port >= 0) {
@@ -151,7 +175,8 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
                     getLogger().info("the modern NuVotifier protocol.");
                     getLogger().info("------------------------------------------------------------------------------");
                 }
-                bootstrap = new VotifierServerBootstrap(host, port, this, disableV1);
+                VotifierServerSettings settings = readServerSettings(cfg.getConfigurationSection("network"));
+                bootstrap = new VotifierServerBootstrap(host, port, this, disableV1, settings);
                 bootstrap.start(error -> { /* Startup errors are ignored */ });
             } else {
                 getLogger().info("------------------------------------------------------------------------------");
@@ -188,6 +213,33 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
         }
     }
 
+    /**
+     * Reads the vote server tuning options. A missing section (older configurations) uses the defaults.
+     *
+     * @param section The "network" configuration section, may be null.
+     * @return The server settings.
+     */
+    private VotifierServerSettings readServerSettings(ConfigurationSection section) {
+        VotifierServerSettings.Builder builder = VotifierServerSettings.builder();
+        if (section != null) {
+            builder.transport(section.getString("transport", VotifierServerSettings.DEFAULT_TRANSPORT))
+                    .bossThreads(section.getInt("boss-threads", VotifierServerSettings.DEFAULT_BOSS_THREADS))
+                    .workerThreads(section.getInt("worker-threads", VotifierServerSettings.DEFAULT_WORKER_THREADS))
+                    .v1CryptoThreads(section.getInt("v1-crypto-threads", VotifierServerSettings.DEFAULT_V1_CRYPTO_THREADS))
+                    .v1CryptoQueueSize(section.getInt("v1-crypto-queue-size", VotifierServerSettings.DEFAULT_V1_CRYPTO_QUEUE_SIZE))
+                    .maxConnections(section.getInt("max-connections", VotifierServerSettings.DEFAULT_MAX_CONNECTIONS))
+                    .connectionsPerSecondPerIp(section.getInt("connections-per-second-per-ip", VotifierServerSettings.DEFAULT_CONNECTIONS_PER_SECOND_PER_IP))
+                    .connectionBurstPerIp(section.getInt("connection-burst-per-ip", VotifierServerSettings.DEFAULT_CONNECTION_BURST_PER_IP))
+                    .readTimeout(section.getInt("read-timeout", VotifierServerSettings.DEFAULT_READ_TIMEOUT))
+                    .connectionTimeout(section.getInt("connection-timeout", VotifierServerSettings.DEFAULT_CONNECTION_TIMEOUT))
+                    .dispatchThreads(section.getInt("dispatch-threads", VotifierServerSettings.DEFAULT_DISPATCH_THREADS))
+                    .dispatchQueueSize(section.getInt("dispatch-queue-size", VotifierServerSettings.DEFAULT_DISPATCH_QUEUE_SIZE))
+                    .dispatchBatchSize(section.getInt("dispatch-batch-size", VotifierServerSettings.DEFAULT_DISPATCH_BATCH_SIZE));
+        }
+
+        return builder.build();
+    }
+
     /**
      * Creates the data folder if it does not exist.
      *
@@ -321,18 +373,43 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
                     return false;
                 }
                 String channel = redisSection.getString("channel");
-                forwardingMethod = new RedisForwardingSink(
-                        RedisCredentials.builder()
-                                .host(redisSection.getString("address"))
-                                .port(redisSection.getInt("port"))
-                                .username(redisSection.getString("username"))
-                                .password(redisSection.getString("password"))
-                                .uri(redisSection.getString("uri"))
-                                .channel(channel)
-                                .build(),
-                        this,
-                        pluginLogger
-                );
+                RedisCredentials credentials = RedisCredentials.builder()
+                        .host(redisSection.getString("address"))
+                        .port(redisSection.getInt("port"))
+                        .username(redisSection.getString("username"))
+                        .password(redisSection.getString("password"))
+                        .uri(redisSection.getString("uri"))
+                        .channel(channel)
+                        .build();
+                String transport = redisSection.getString("transport", "pubsub");
+                switch (transport) {
+                    case "pubsub":
+                        forwardingMethod = new RedisForwardingSink(
+                                credentials,
+                                RedisVoteRouter.subscriptions(channel, redisSection.getString("server", ""),
+                                        redisSection.getIntegerList("shards")),
+                                this,
+                                pluginLogger
+                        );
+                        break;
+                    case "stream":
+                        try {
+                            forwardingMethod = new RedisStreamForwardingSink(
+                                    credentials,
+                                    redisSection.getString("group", ""),
+                                    redisSection.getString("consumer", ""),
+                                    this,
+                                    pluginLogger
+                            );
+                        } catch (IllegalArgumentException ex) {
+                            getLogger().severe(ex.getMessage());
+                            return false;
+                        }
+                        break;
+                    default:
+                        getLogger().severe("Unknown Redis transport '" + transport + "'. Supported transports are 'pubsub' and 'stream'.");
+                        return false;
+                }
                 try {
                     forwardingMethod.init();
                 } catch (RuntimeException ex) {
@@ -355,10 +432,19 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
             bootstrap.shutdown();
             bootstrap = null;
         }
+        // Fire the queued votes first, so a forwarding method that acknowledges handled votes does so when halted.
+        if (eventQueue != null) {
+            eventQueue.stop();
+            eventQueue = null;
+        }
         if (forwardingMethod != null) {
             forwardingMethod.halt();
             forwardingMethod = null;
         }
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
     }
 
     /**
@@ -424,7 +510,7 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
             getLogger().info("Received vote " + protocolVersion.humanReadable + " from " + remoteAddress + " -> " + vote);
         }
 
-        fireVotifierEvent(vote);
+        fireVotifierEvent(vote, null);
     }
 
     @Override
@@ -445,42 +531,70 @@ public class NuVotifierBukkit extends JavaPlugin implements VoteHandler, Votifie
         if (debug) {
             getLogger().info("Got a forwarded vote -> " + vote);
         }
-        fireVotifierEvent(vote);
+        fireVotifierEvent(vote, null);
+    }
+
+    @Override
+    public void onForward(final Vote vote, final Runnable handled) {
+        if (debug) {
+            getLogger().info("Got a forwarded vote -> " + vote);
+        }
+        fireVotifierEvent(vote, handled);
     }
 
     /**
      * Fires a VotifierEvent for the given vote.
      * <p>
-     * If there are no registered listeners, a severe warning is logged. Additionally, if the
+     * If there are no registered listeners, a severe warning is logged. Outside of Folia, the vote is queued
+     * and its event fired on the next tick with the other votes received meanwhile. Additionally, if the
      * configuration is set to ignore offline votes and the player is offline, the vote is skipped.
      *
-     * @param vote The vote to process.
+     * @param vote    The vote to process.
+     * @param handled Run once the event was fired or the vote was skipped, or null. Votes queued when the plugin
+     *                is halted are still fired, before the forwarding method is halted. A vote received after
+     *                that is dropped without running this, so a forwarding method that waits on it can deliver
+     *                the vote again.
      */
-    private void fireVotifierEvent(Vote vote) {
-        if (VotifierEvent.getHandlerList().getRegisteredListeners().length == 0) {
+    private void fireVotifierEvent(Vote vote, Runnable handled) {
+        if (VotifierEvent.getHandlerList().getRegisteredListeners().length == 0
+                && VotifierBatchEvent.getHandlerList().getRegisteredListeners().length == 0) {
             getLogger().severe("A vote was received, but no listeners are registered to handle it.");
             getLogger().severe("Visit https://github.com/NuVotifier/NuVotifier/wiki/Setup-Guide#vote-listeners for a list of configurable listeners.");
         }
 
-        if (getConfig().getBoolean("ignore-offline-votes", false)) {
+        if (!isFolia) {
+            VotifierEventQueue queue = eventQueue;
+            if (queue != null) {
+                queue.enqueue(vote, handled);
+            }
+            return;
+        }
+
+        if (ignoreOfflineVotes) {
             Player player = Bukkit.getPlayer(vote.getUsername());
             if (player == null) {
                 if (debug) {
                     getLogger().warning("Player " + vote.getUsername() + " is not online. The vote will be ignored.");
                 }
 
+                if (handled != null) {
+                    handled.run();
+                }
                 return;
             }
         }
 
-        if (!isFolia) {
-            getServer().getScheduler().runTask(this, () ->
-                    getServer().getPluginManager().callEvent(new VotifierEvent(vote))
-            );
-        } else {
-            getServer().getScheduler().runTaskAsynchronously(this, () ->
-                    getServer().getPluginManager().callEvent(new VotifierEvent(vote, true))
-            );
-        }
+        ForwardingVoteSink sink = forwardingMethod;
+        getServer().getScheduler().runTaskAsynchronously(this, () -> {
+            if (handled != null && forwardingMethod != sink) {
+                // Halted meanwhile, the vote will be delivered again.
+                return;
+            }
+
+            getServer().getPluginManager().callEvent(new VotifierEvent(vote, true));
+            if (handled != null) {
+                handled.run();
+            }
+        });
     }
 }
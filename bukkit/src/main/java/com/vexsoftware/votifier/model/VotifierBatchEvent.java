@@ -0,0 +1,56 @@
+package com.vexsoftware.votifier.model;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code VotifierBatchEvent} is sent on the main thread with every vote handled during a tick,
+ * right before a {@link VotifierEvent} is sent for each of them. Listeners that reward votes in
+ * bulk can use it instead of handling each {@link VotifierEvent} on its own.
+ * <p>
+ * It is not sent when running under Folia, where votes are not handled on the main thread.
+ */
+public class VotifierBatchEvent extends Event {
+
+    /**
+     * Event listener handler list.
+     */
+    private static final HandlerList handlers = new HandlerList();
+
+    /**
+     * Encapsulated vote records.
+     */
+    private final List<Vote> votes;
+
+    /**
+     * Constructs a batch event that encapsulates the given vote records.
+     *
+     * @param votes vote records, in the order they were received
+     */
+    public VotifierBatchEvent(final List<Vote> votes) {
+        this.votes = Collections.unmodifiableList(votes);
+    }
+
+    /**
+     * Return the encapsulated vote records.
+     *
+     * @return vote records, in the order they were received
+     */
+    public List<Vote> getVotes() {
+        return votes;
+    }
+
+    @Override
+    @NotNull
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+}
@@ -0,0 +1,132 @@
+package com.vexsoftware.votifier.platform;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VotifierBatchEvent;
+import com.vexsoftware.votifier.model.VotifierEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Buffers received votes and fires their events on the main thread once per tick, instead of
+ * scheduling a task for every vote.
+ * <p>
+ * At most {@code maxVotesPerTick} votes are handled per tick, so a vote party can't make reward
+ * plugins starve the tick; the rest wait for the following ticks.
+ */
+public class VotifierEventQueue implements Runnable {
+
+    private final Plugin plugin;
+    private final int maxVotesPerTick;
+    private final boolean ignoreOfflineVotes;
+    private final boolean debug;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private BukkitTask task;
+
+    /**
+     * @param maxVotesPerTick    how many votes to handle per tick, or 0 for no limit
+     * @param ignoreOfflineVotes whether to drop votes of players who are not online
+     */
+    public VotifierEventQueue(Plugin plugin, int maxVotesPerTick, boolean ignoreOfflineVotes, boolean debug) {
+        this.plugin = plugin;
+        this.maxVotesPerTick = maxVotesPerTick;
+        this.ignoreOfflineVotes = ignoreOfflineVotes;
+        this.debug = debug;
+    }
+
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    /**
+     * Queues a vote, to be handled on the next tick. Can be called from any thread.
+     *
+     * @param vote The vote to queue.
+     */
+    public void enqueue(Vote vote) {
+        enqueue(vote, null);
+    }
+
+    /**
+     * Queues a vote, to be handled on the next tick. Can be called from any thread.
+     *
+     * @param vote    The vote to queue.
+     * @param handled Run on the main thread once the vote's events were fired, or it was ignored. May be null.
+     */
+    public void enqueue(Vote vote, Runnable handled) {
+        pending.add(new Entry(vote, handled));
+    }
+
+    @Override
+    public void run() {
+        drain(maxVotesPerTick > 0 ? maxVotesPerTick : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Stops the queue, handling every vote still waiting. Must be called on the main thread.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        drain(Integer.MAX_VALUE);
+    }
+
+    private void drain(int budget) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Vote> votes = new ArrayList<>(Math.min(budget, pending.size()));
+        List<Runnable> callbacks = new ArrayList<>();
+        Entry entry;
+        while (votes.size() < budget && (entry = pending.poll()) != null) {
+            if (entry.handled != null) {
+                callbacks.add(entry.handled);
+            }
+
+            Vote vote = entry.vote;
+            if (ignoreOfflineVotes && Bukkit.getPlayer(vote.getUsername()) == null) {
+                if (debug) {
+                    plugin.getLogger().warning("Player " + vote.getUsername() + " is not online. The vote will be ignored.");
+                }
+
+                continue;
+            }
+
+            votes.add(vote);
+        }
+
+        if (!votes.isEmpty()) {
+            PluginManager pluginManager = plugin.getServer().getPluginManager();
+            if (VotifierBatchEvent.getHandlerList().getRegisteredListeners().length > 0) {
+                pluginManager.callEvent(new VotifierBatchEvent(votes));
+            }
+
+            for (Vote queued : votes) {
+                pluginManager.callEvent(new VotifierEvent(queued));
+            }
+        }
+
+        callbacks.forEach(Runnable::run);
+    }
+
+    private static final class Entry {
+
+        private final Vote vote;
+        private final Runnable handled;
+
+        private Entry(Vote vote, Runnable handled) {
+            this.vote = vote;
+            this.handled = handled;
+        }
+    }
+}
@@ -28,18 +28,21 @@ public class BukkitPluginMessagingForwardingSink extends AbstractPluginMessaging
     @Override
     public void init() {
         plugin.getServer().getMessenger().registerIncomingPluginChannel(plugin, channel, this);
+        plugin.getServer().getMessenger().registerOutgoingPluginChannel(plugin, channel);
         plugin.getLogger().info("Receiving votes over plugin messaging channel '" + channel + "'.");
     }
 
     @Override
     public void halt() {
         plugin.getServer().getMessenger().unregisterIncomingPluginChannel(plugin, channel, this);
+        plugin.getServer().getMessenger().unregisterOutgoingPluginChannel(plugin, channel);
     }
 
     @Override
     public void onPluginMessageReceived(@NotNull String receivedChannel, @NotNull Player player, byte @NotNull [] message) {
         try {
-            handlePluginMessage(message);
+            // Acknowledgements go back through the player connection the message arrived on.
+            handlePluginMessage(message, ack -> player.sendPluginMessage(plugin, channel, ack));
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "There was an unknown error when processing a forwarded vote.", e);
         }
@@ -9,16 +9,23 @@ import com.vexsoftware.votifier.bungee.platform.forwarding.OnlineForwardPluginMe
 import com.vexsoftware.votifier.bungee.platform.forwarding.PluginMessagingForwardingSource;
 import com.vexsoftware.votifier.bungee.platform.scheduler.BungeeScheduler;
 import com.vexsoftware.votifier.bungee.platform.server.BungeeBackendServer;
+import com.vexsoftware.votifier.metrics.LoggingMetricsExporter;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.net.VotifierServerBootstrap;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAIO;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAKeygen;
 import com.vexsoftware.votifier.platform.BackendServer;
+import com.vexsoftware.votifier.platform.BackendServerCache;
 import com.vexsoftware.votifier.platform.JavaUtilLogger;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.ProxyVotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
+import com.vexsoftware.votifier.support.forwarding.AbstractPluginMessagingForwardingSource;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSource;
 import com.vexsoftware.votifier.support.forwarding.ServerFilter;
 import com.vexsoftware.votifier.support.forwarding.cache.FileVoteCache;
@@ -27,11 +34,14 @@ import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 import com.vexsoftware.votifier.support.forwarding.proxy.ProxyForwardingVoteSource;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisCredentials;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisStreamForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisVoteRouter;
 import com.vexsoftware.votifier.util.IOUtil;
 import com.vexsoftware.votifier.util.KeyCreator;
 import com.vexsoftware.votifier.util.TokenUtil;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.plugin.Plugin;
 import net.md_5.bungee.api.plugin.PluginManager;
 import net.md_5.bungee.config.Configuration;
@@ -54,10 +64,14 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifierPlugin {
 
+    /**
+     * Where votes are kept while Redis cannot be reached, relative to the data folder.
+     */
+    private static final String REDIS_SPILL_FILE_NAME = "redis-spill.json";
+
     /**
      * The server channel.
      */
@@ -83,6 +97,16 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
      */
     private ForwardingVoteSource forwardingMethod;
 
+    /**
+     * Wrappers for the servers behind this proxy, reused for every forwarded vote
+     */
+    private final BackendServerCache<ServerInfo> backendServers = new BackendServerCache<>(BungeeBackendServer::new);
+
+    /**
+     * Task that logs the vote metrics, if enabled
+     */
+    private ScheduledVotifierTask metricsTask;
+
     private VotifierScheduler scheduler;
     private LoggingAdapter pluginLogger;
 
@@ -210,6 +234,11 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
             getLogger().info("QUIET mode enabled!");
         }
 
+        int metricsInterval = configuration.getInt("metrics-interval", 0);
+        if (metricsInterval > 0) {
+            metricsTask = VotifierMetrics.global().scheduleExport(scheduler, new LoggingMetricsExporter(pluginLogger), metricsInterval);
+        }
+
         final boolean disableV1 = configuration.getBoolean("disable-v1-protocol");
         if (disableV1) {
             getLogger().info("------------------------------------------------------------------------------");
@@ -218,9 +247,26 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
             getLogger().info("------------------------------------------------------------------------------");
         }
 
+        Configuration network = configuration.getSection("network");
+        final VotifierServerSettings settings = VotifierServerSettings.builder()
+                .transport(network.getString("transport", VotifierServerSettings.DEFAULT_TRANSPORT))
+                .bossThreads(network.getInt("boss-threads", VotifierServerSettings.DEFAULT_BOSS_THREADS))
+                .workerThreads(network.getInt("worker-threads", VotifierServerSettings.DEFAULT_WORKER_THREADS))
+                .v1CryptoThreads(network.getInt("v1-crypto-threads", VotifierServerSettings.DEFAULT_V1_CRYPTO_THREADS))
+                .v1CryptoQueueSize(network.getInt("v1-crypto-queue-size", VotifierServerSettings.DEFAULT_V1_CRYPTO_QUEUE_SIZE))
+                .maxConnections(network.getInt("max-connections", VotifierServerSettings.DEFAULT_MAX_CONNECTIONS))
+                .connectionsPerSecondPerIp(network.getInt("connections-per-second-per-ip", VotifierServerSettings.DEFAULT_CONNECTIONS_PER_SECOND_PER_IP))
+                .connectionBurstPerIp(network.getInt("connection-burst-per-ip", VotifierServerSettings.DEFAULT_CONNECTION_BURST_PER_IP))
+                .readTimeout(network.getInt("read-timeout", VotifierServerSettings.DEFAULT_READ_TIMEOUT))
+                .connectionTimeout(network.getInt("connection-timeout", VotifierServerSettings.DEFAULT_CONNECTION_TIMEOUT))
+                .dispatchThreads(network.getInt("dispatch-threads", VotifierServerSettings.DEFAULT_DISPATCH_THREADS))
+                .dispatchQueueSize(network.getInt("dispatch-queue-size", VotifierServerSettings.DEFAULT_DISPATCH_QUEUE_SIZE))
+                .dispatchBatchSize(network.getInt("dispatch-batch-size", VotifierServerSettings.DEFAULT_DISPATCH_BATCH_SIZE))
+                .build();
+
         // Must set up server asynchronously due to BungeeCord goofiness.
         FutureTask<?> initTask = new FutureTask<>(Executors.callable(() -> {
-            this.bootstrap = new VotifierServerBootstrap(host, port, NuVotifierBungee.this, disableV1);
+            this.bootstrap = new VotifierServerBootstrap(host, port, NuVotifierBungee.this, disableV1, settings);
             this.bootstrap.start(err -> {});
         }));
 
@@ -283,24 +329,31 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
                 }
 
                 int dumpRate = section.getInt("dumpRate", 5);
+                VoteCodec.Format format = VoteCodec.Format.fromName(section.getString("format", "json"));
                 ServerFilter filter = new ServerFilter(
                         section.getStringList("excludedServers"),
                         section.getBoolean("whitelist", false)
                 );
 
+                AbstractPluginMessagingForwardingSource source;
                 if (!section.getBoolean("onlySendToJoinedServer")) {
-                    this.forwardingMethod = new PluginMessagingForwardingSource(channel, filter, this, cache, dumpRate);
-                    this.forwardingMethod.init();
+                    source = new PluginMessagingForwardingSource(channel, filter, this, cache, dumpRate, format);
                 } else {
                     String fallback = section.getString("joinedServerFallback", null);
                     if (fallback != null && fallback.isEmpty()) {
                         fallback = null;
                     }
 
-                    this.forwardingMethod = new OnlineForwardPluginMessagingForwardingSource(channel, this, filter, cache, fallback, dumpRate);
-                    this.forwardingMethod.init();
+                    source = new OnlineForwardPluginMessagingForwardingSource(channel, this, filter, cache, fallback, dumpRate, format);
                 }
 
+                if (section.getBoolean("ack", false)) {
+                    source.enableAcknowledgements(section.getInt("ackWindow", 64), section.getInt("ackTimeout", 10));
+                }
+
+                this.forwardingMethod = source;
+                this.forwardingMethod.init();
+
                 break;
             }
             case "proxy": {
@@ -349,18 +402,47 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
                             "Defaulting to noop implementation.");
                 }
 
-                this.forwardingMethod = new RedisForwardingVoteSource(
-                        RedisCredentials.builder()
-                                .host(section.getString("address"))
-                                .port(section.getInt("port"))
-                                .username(section.getString("username"))
-                                .password(section.getString("password"))
-                                .uri(section.getString("uri"))
-                                .channel(section.getString("channel"))
-                                .build(),
-
-                        getPluginLogger()
-                );
+                RedisCredentials credentials = RedisCredentials.builder()
+                        .host(section.getString("address"))
+                        .port(section.getInt("port"))
+                        .username(section.getString("username"))
+                        .password(section.getString("password"))
+                        .uri(section.getString("uri"))
+                        .channel(section.getString("channel"))
+                        .build();
+
+                String transport = section.getString("transport", "pubsub");
+                switch (transport) {
+                    case "pubsub":
+                        RedisVoteRouter router = RedisVoteRouter.fromName(
+                                section.getString("routing", "broadcast"),
+                                credentials.getChannel(),
+                                section.getInt("shards", 16),
+                                username -> Optional.ofNullable(getProxy().getPlayer(username))
+                                        .map(ProxiedPlayer::getServer)
+                                        .map(server -> server.getInfo().getName()),
+                                section.getString("fallback", null)
+                        );
+                        this.forwardingMethod = new RedisForwardingVoteSource(
+                                credentials,
+                                VoteCodec.Format.fromName(section.getString("format", "json")),
+                                router,
+                                createRedisSpill(),
+                                getPluginLogger()
+                        );
+                        break;
+                    case "stream":
+                        this.forwardingMethod = new RedisStreamForwardingVoteSource(
+                                credentials,
+                                section.getLong("maxLength", RedisStreamForwardingVoteSource.DEFAULT_MAX_LENGTH),
+                                createRedisSpill(),
+                                getPluginLogger()
+                        );
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown Redis transport '" + transport + "'. " +
+                                "Defaulting to noop implementation.");
+                }
 
                 this.forwardingMethod.init();
                 break;
@@ -400,6 +482,23 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
             forwardingMethod.halt();
             forwardingMethod = null;
         }
+
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
+    }
+
+    /**
+     * Creates the cache that keeps votes while Redis cannot be reached, in a file so they survive a restart.
+     */
+    private VoteCache createRedisSpill() {
+        try {
+            return new FileVoteCache(this, new File(getDataFolder(), REDIS_SPILL_FILE_NAME), -1);
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Unable to load the Redis spill file, votes held while Redis is unreachable will only be kept in memory.", e);
+            return new MemoryVoteCache(this, -1);
+        }
     }
 
     public boolean reload() {
@@ -489,14 +588,12 @@ public class NuVotifierBungee extends Plugin implements VoteHandler, ProxyVotifi
 
     @Override
     public Collection<BackendServer> getAllBackendServers() {
-        return getProxy().getServers().values().stream()
-                .map(BungeeBackendServer::new)
-                .collect(Collectors.toList());
+        return backendServers.getAll(getProxy().getServers().values());
     }
 
     @Override
     public Optional<BackendServer> getServer(String name) {
         ServerInfo info = getProxy().getServerInfo(name);
-        return Optional.ofNullable(info).map(BungeeBackendServer::new);
+        return Optional.ofNullable(info).map(backendServers::get);
     }
 }
@@ -3,6 +3,7 @@ package com.vexsoftware.votifier.bungee.platform.forwarding;
 import com.vexsoftware.votifier.bungee.NuVotifierBungee;
 import com.vexsoftware.votifier.bungee.platform.server.BungeeBackendServer;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.platform.BackendServer;
 import com.vexsoftware.votifier.support.forwarding.AbstractPluginMessagingForwardingSource;
 import com.vexsoftware.votifier.support.forwarding.ServerFilter;
@@ -10,6 +11,7 @@ import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.connection.Server;
 import net.md_5.bungee.api.event.PluginMessageEvent;
 import net.md_5.bungee.api.event.ServerConnectedEvent;
 import net.md_5.bungee.api.plugin.Listener;
@@ -30,9 +32,10 @@ public final class OnlineForwardPluginMessagingForwardingSource extends Abstract
             ServerFilter serverFilter,
             VoteCache cache,
             String fallback,
-            int dumpRate
+            int dumpRate,
+            VoteCodec.Format format
     ) {
-        super(channel, serverFilter, plugin, cache, dumpRate);
+        super(channel, serverFilter, plugin, cache, dumpRate, format);
         this.plugin = plugin;
         this.fallback = fallback;
     }
@@ -70,6 +73,9 @@ public final class OnlineForwardPluginMessagingForwardingSource extends Abstract
     public void onPluginMessage(PluginMessageEvent e) {
         if (e.getTag().equals(channel)) {
             e.setCancelled(true);
+            if (e.getSender() instanceof Server) {
+                handleAcknowledgement(e.getData());
+            }
         }
     }
 
@@ -2,10 +2,12 @@ package com.vexsoftware.votifier.bungee.platform.forwarding;
 
 import com.vexsoftware.votifier.bungee.NuVotifierBungee;
 import com.vexsoftware.votifier.bungee.platform.server.BungeeBackendServer;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.support.forwarding.AbstractPluginMessagingForwardingSource;
 import com.vexsoftware.votifier.support.forwarding.ServerFilter;
 import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.Server;
 import net.md_5.bungee.api.event.PluginMessageEvent;
 import net.md_5.bungee.api.event.ServerConnectedEvent;
 import net.md_5.bungee.api.plugin.Listener;
@@ -15,8 +17,8 @@ public class PluginMessagingForwardingSource extends AbstractPluginMessagingForw
 
     private final NuVotifierBungee plugin;
 
-    public PluginMessagingForwardingSource(String channel, ServerFilter filter, NuVotifierBungee plugin, VoteCache cache, int dumpRate) {
-        super(channel, filter, plugin, cache, dumpRate);
+    public PluginMessagingForwardingSource(String channel, ServerFilter filter, NuVotifierBungee plugin, VoteCache cache, int dumpRate, VoteCodec.Format format) {
+        super(channel, filter, plugin, cache, dumpRate, format);
         this.plugin = plugin;
     }
 
@@ -29,6 +31,9 @@ public class PluginMessagingForwardingSource extends AbstractPluginMessagingForw
     public void onPluginMessage(PluginMessageEvent e) {
         if (e.getTag().equals(channel)) {
             e.setCancelled(true);
+            if (e.getSender() instanceof Server) {
+                handleAcknowledgement(e.getData());
+            }
         }
     }
 
@@ -0,0 +1,49 @@
+package com.vexsoftware.votifier.metrics;
+
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes every metric that has a value to the plugin's log, one line each. Needs nothing beyond the plugin itself.
+ */
+public class LoggingMetricsExporter implements MetricsExporter {
+
+    private final LoggingAdapter logger;
+
+    public LoggingMetricsExporter(LoggingAdapter logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void export(VotifierMetrics metrics) {
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.getHistograms().entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+
+            logger.info(String.format(Locale.ROOT, "%s: count=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                    entry.getKey(), snapshot.getCount(), millis(snapshot.getMean()),
+                    millis(snapshot.getValueAtPercentile(50)), millis(snapshot.getValueAtPercentile(99)),
+                    millis(snapshot.getMax())));
+        }
+
+        for (Map.Entry<String, Counter> entry : metrics.getCounters().entrySet()) {
+            long value = entry.getValue().get();
+            if (value != 0) {
+                logger.info(entry.getKey() + ": " + value);
+            }
+        }
+
+        for (Map.Entry<String, LongSupplier> entry : metrics.getGauges().entrySet()) {
+            logger.info(entry.getKey() + ": " + entry.getValue().getAsLong());
+        }
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000;
+    }
+}
@@ -0,0 +1,14 @@
+package com.vexsoftware.votifier.metrics;
+
+/**
+ * Sends metrics somewhere they can be looked at, such as a log or a monitoring system. Exporters are called from
+ * the plugin's scheduler, see {@link VotifierMetrics#scheduleExport}, and should not block for long.
+ * <p>
+ * Counters and histograms are cumulative since the plugin started. Exporters that need the change since their last
+ * call have to keep the previous values themselves. Gauges are read as they are at the time of the export.
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+    void export(VotifierMetrics metrics);
+}
@@ -0,0 +1,154 @@
+package com.vexsoftware.votifier.metrics;
+
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
+import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters and latency histograms of every stage a vote goes through, from the connection being accepted to the
+ * vote being forwarded.
+ * <p>
+ * NuVotifier records into {@link #global()}. Nothing is exported unless a {@link MetricsExporter} is scheduled,
+ * which every platform does with a {@link LoggingMetricsExporter} when {@code metrics-interval} is set, so by
+ * default recording costs a few atomic updates per vote. Histogram values are in nanoseconds.
+ */
+public final class VotifierMetrics {
+
+    /**
+     * From the connection being accepted to the greeting being written.
+     */
+    public static final String ACCEPT = "accept";
+
+    /**
+     * From the connection being accepted to the first bytes of the vote telling its protocol.
+     */
+    public static final String PROTOCOL_DETECT = "protocol.detect";
+
+    /**
+     * Decoding and verifying a vote, including the RSA decryption for protocol v1.
+     */
+    public static final String DECODE_V1 = "decode.v1";
+    public static final String DECODE_V2 = "decode.v2";
+
+    /**
+     * Handing a vote to the plugin, or to the dispatcher if there is one.
+     */
+    public static final String DISPATCH = "dispatch";
+
+    /**
+     * From the connection being accepted to its first vote being dispatched.
+     */
+    public static final String VOTE = "vote";
+
+    public static final String CACHE_ADD = "cache.add";
+    public static final String CACHE_EVICT = "cache.evict";
+
+    /**
+     * Whether the Redis forwarding sink is subscribed right now, 1 if it is and 0 if not.
+     */
+    public static final String REDIS_SINK_SUBSCRIBED = "redis.sink.subscribed";
+
+    /**
+     * How many times the Redis forwarding sink had to subscribe again.
+     */
+    public static final String REDIS_SINK_RECONNECTS = "redis.sink.reconnects";
+
+    /**
+     * How many votes were published to Redis but never received by the sink.
+     */
+    public static final String REDIS_SINK_MISSED = "redis.sink.missed";
+
+    private static final VotifierMetrics GLOBAL = new VotifierMetrics();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public static VotifierMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Gets the histogram of sending votes over a forwarding transport, until the transport accepted them.
+     */
+    public static String forward(String transport) {
+        return "forward." + transport;
+    }
+
+    /**
+     * Gets the counter of votes that could not be sent over a forwarding transport.
+     */
+    public static String forwardFailed(String transport) {
+        return "forward." + transport + ".failed";
+    }
+
+    /**
+     * Gets the counter of errors of the given type while receiving votes.
+     */
+    public static String error(Throwable cause) {
+        return "errors." + cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Gets a counter, creating it on first use. Callers on a hot path should keep the result.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Gets a histogram, creating it on first use. Callers on a hot path should keep the result.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a value that is read whenever metrics are exported, replacing any gauge of the same name.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Unregisters a gauge, unless another one was registered under its name since.
+     */
+    public void removeGauge(String name, LongSupplier value) {
+        gauges.remove(name, value);
+    }
+
+    /**
+     * Gets every counter, sorted by name.
+     */
+    public SortedMap<String, Counter> getCounters() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+    }
+
+    /**
+     * Gets every histogram, sorted by name.
+     */
+    public SortedMap<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+    }
+
+    /**
+     * Gets every gauge, sorted by name.
+     */
+    public SortedMap<String, LongSupplier> getGauges() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(gauges));
+    }
+
+    /**
+     * Exports these metrics every {@code interval} seconds, until the returned task is cancelled.
+     */
+    public ScheduledVotifierTask scheduleExport(VotifierScheduler scheduler, MetricsExporter exporter, int interval) {
+        return scheduler.repeatOnPool(() -> exporter.export(this), interval, interval, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,171 @@
+package com.vexsoftware.votifier.net;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Sits at the head of every vote connection's pipeline and closes connections that go over the
+ * configured limits before anything is sent to them: a cap on open connections, a token bucket per
+ * source address, and a deadline for the whole connection. Connections that stop sending data are
+ * closed when the preceding {@link io.netty.handler.timeout.IdleStateHandler} reports them idle.
+ */
+@ChannelHandler.Sharable
+public class ConnectionLimiter extends ChannelInboundHandlerAdapter {
+
+    private static final AttributeKey<ScheduledFuture<?>> DEADLINE = AttributeKey.valueOf("votifier_deadline");
+
+    /**
+     * Every this many accepted connections, buckets that have refilled completely are dropped.
+     */
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final int maxConnections;
+    private final int connectionsPerSecondPerIp;
+    private final int connectionBurstPerIp;
+    private final int connectionTimeout;
+    private final LongSupplier nanoTime;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger acceptedSinceSweep = new AtomicInteger();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final Map<InetAddress, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public ConnectionLimiter(VotifierServerSettings settings) {
+        this(settings, System::nanoTime);
+    }
+
+    ConnectionLimiter(VotifierServerSettings settings, LongSupplier nanoTime) {
+        this.maxConnections = settings.getMaxConnections();
+        this.connectionsPerSecondPerIp = settings.getConnectionsPerSecondPerIp();
+        this.connectionBurstPerIp = settings.getConnectionBurstPerIp();
+        this.connectionTimeout = settings.getConnectionTimeout();
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        // Always counted, as channelInactive will follow even if we close the connection right away.
+        int open = openConnections.incrementAndGet();
+
+        if ((maxConnections > 0 && open > maxConnections) || !tryAcquire(ctx.channel().remoteAddress())) {
+            rejectedConnections.increment();
+            ctx.close();
+            return;
+        }
+
+        if (connectionTimeout > 0) {
+            ctx.channel().attr(DEADLINE).set(ctx.executor().schedule(() -> {
+                ctx.close();
+            }, connectionTimeout, TimeUnit.SECONDS));
+        }
+
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        openConnections.decrementAndGet();
+
+        ScheduledFuture<?> deadline = ctx.channel().attr(DEADLINE).getAndSet(null);
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+        if (evt instanceof IdleStateEvent) {
+            ctx.close();
+        } else {
+            ctx.fireUserEventTriggered(evt);
+        }
+    }
+
+    private boolean tryAcquire(SocketAddress remoteAddress) {
+        if (connectionsPerSecondPerIp <= 0 || !(remoteAddress instanceof InetSocketAddress)) {
+            return true;
+        }
+
+        InetAddress address = ((InetSocketAddress) remoteAddress).getAddress();
+        if (address == null) {
+            return true;
+        }
+
+        long now = nanoTime.getAsLong();
+        if (acceptedSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            acceptedSinceSweep.set(0);
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+
+        return buckets.computeIfAbsent(address, ignored -> new TokenBucket(connectionBurstPerIp, connectionsPerSecondPerIp, now))
+                .tryAcquire(now);
+    }
+
+    /**
+     * @return How many connections are currently open
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return How many connections were closed for going over a limit
+     */
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    static final class TokenBucket {
+
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, int tokensPerSecond, long now) {
+            this.capacity = capacity;
+            this.tokensPerNano = tokensPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.vexsoftware.votifier.net;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The Netty transports the vote server can run on.
+ */
+public enum TransportType {
+
+    /**
+     * Epoll when it is available, NIO otherwise.
+     */
+    AUTO("auto") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public TransportType resolve() {
+            return EPOLL.isAvailable() ? EPOLL : NIO;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return resolve().newEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return resolve().getServerChannelClass();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return resolve().getSocketChannelClass();
+        }
+    },
+    NIO("NIO") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return NioSocketChannel.class;
+        }
+    },
+    EPOLL("epoll") {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+    },
+    IO_URING("io_uring") {
+        @Override
+        public boolean isAvailable() {
+            try {
+                return IOUring.isAvailable();
+            } catch (LinkageError e) {
+                return false;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new IOUringEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return IOUringServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return IOUringSocketChannel.class;
+        }
+    };
+
+    private final String displayName;
+
+    TransportType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return Whether this transport can be used on this machine
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * @return The concrete transport to use for this type
+     */
+    public TransportType resolve() {
+        return this;
+    }
+
+    public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    public abstract Class<? extends SocketChannel> getSocketChannelClass();
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Parses a transport from its configuration name ("auto", "nio", "epoll" or "io_uring").
+     *
+     * @param name The configured name
+     * @return The transport type
+     * @throws IllegalArgumentException If the name is not a known transport
+     */
+    public static TransportType fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return AUTO;
+        }
+
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        if (normalized.equals("IOURING")) {
+            return IO_URING;
+        }
+
+        try {
+            return valueOf(normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown transport '" + name + "', expected auto, nio, epoll or io_uring");
+        }
+    }
+}
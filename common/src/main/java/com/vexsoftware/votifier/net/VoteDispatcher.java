@@ -0,0 +1,138 @@
+package com.vexsoftware.votifier.net;
+
+import com.vexsoftware.votifier.VoteHandler;
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.util.QuietException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands received votes to the plugin on dedicated threads, so slow listeners or forwarders do not
+ * hold up the network threads. A vote is acknowledged to the voting site once it is queued.
+ * <p>
+ * Each consumer thread has its own bounded queue. Votes are spread between them by username, so the
+ * votes of a single player are still handled in the order they arrived. When a queue is full, the
+ * vote is rejected and the voting site gets an error response instead of an acknowledgement.
+ */
+public class VoteDispatcher implements VoteHandler {
+
+    private static final QuietException QUEUE_FULL = new QuietException("Vote queue is full, try again later.");
+    private static final QueuedVote STOP = new QueuedVote(null, null, null);
+
+    /**
+     * How long shutdown waits for each consumer to work through the votes still queued.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final VotifierPlugin plugin;
+    private final int batchSize;
+    private final List<BlockingQueue<QueuedVote>> queues;
+    private final List<Thread> consumers;
+
+    public VoteDispatcher(VotifierPlugin plugin, int threads, int queueSize, int batchSize) {
+        this.plugin = plugin;
+        this.batchSize = batchSize;
+        this.queues = new ArrayList<>(threads);
+        this.consumers = new ArrayList<>(threads);
+
+        for (int i = 0; i < threads; i++) {
+            BlockingQueue<QueuedVote> queue = new ArrayBlockingQueue<>(queueSize);
+            Thread consumer = new Thread(() -> consume(queue), "Votifier vote dispatcher #" + i);
+            consumer.setDaemon(true);
+            queues.add(queue);
+            consumers.add(consumer);
+        }
+
+        consumers.forEach(Thread::start);
+    }
+
+    @Override
+    public void onVoteReceived(Vote vote, VotifierSession.ProtocolVersion protocolVersion, String remoteAddress) throws Exception {
+        String username = vote.getUsername();
+        int partition = username == null ? 0 : Math.floorMod(username.hashCode(), queues.size());
+
+        if (!queues.get(partition).offer(new QueuedVote(vote, protocolVersion, remoteAddress))) {
+            throw QUEUE_FULL;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable, boolean voteAlreadyCompleted, String remoteAddress) {
+        plugin.onError(throwable, voteAlreadyCompleted, remoteAddress);
+    }
+
+    private void consume(BlockingQueue<QueuedVote> queue) {
+        List<QueuedVote> batch = new ArrayList<>(batchSize);
+
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // Whatever else is already waiting is handled in the same pass.
+            if (batchSize > 1) {
+                queue.drainTo(batch, batchSize - 1);
+            }
+
+            for (QueuedVote queued : batch) {
+                if (queued == STOP) {
+                    return;
+                }
+
+                try {
+                    plugin.onVoteReceived(queued.vote, queued.protocolVersion, queued.remoteAddress);
+                } catch (Exception e) {
+                    plugin.getPluginLogger().error("Unable to process vote from " + queued.remoteAddress, e);
+                }
+            }
+
+            batch.clear();
+        }
+    }
+
+    /**
+     * Stops the consumers once they have handled the votes already queued. No more votes should be
+     * received once this is called.
+     */
+    public void shutdown() {
+        try {
+            for (int i = 0; i < queues.size(); i++) {
+                Thread consumer = consumers.get(i);
+                if (!queues.get(i).offer(STOP, SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    consumer.interrupt();
+                }
+            }
+
+            for (Thread consumer : consumers) {
+                consumer.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+                if (consumer.isAlive()) {
+                    plugin.getPluginLogger().warn("Timed out waiting for " + consumer.getName() + " to handle queued votes.");
+                    consumer.interrupt();
+                }
+            }
+        } catch (InterruptedException e) {
+            consumers.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class QueuedVote {
+
+        private final Vote vote;
+        private final VotifierSession.ProtocolVersion protocolVersion;
+        private final String remoteAddress;
+
+        private QueuedVote(Vote vote, VotifierSession.ProtocolVersion protocolVersion, String remoteAddress) {
+            this.vote = vote;
+            this.protocolVersion = protocolVersion;
+            this.remoteAddress = remoteAddress;
+        }
+    }
+}
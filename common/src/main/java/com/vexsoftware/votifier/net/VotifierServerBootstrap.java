@@ -8,56 +8,92 @@ import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 import com.vexsoftware.votifier.support.forwarding.proxy.ProxyForwardingVoteSource;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollServerSocketChannel;
-import io.netty.channel.epoll.EpollSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.concurrent.FastThreadLocalThread;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class VotifierServerBootstrap {
 
-    private static final boolean USE_EPOLL = Epoll.isAvailable();
-
     private final String host;
     private final int port;
+    private final TransportType transport;
     private final EventLoopGroup bossLoopGroup;
     private final EventLoopGroup eventLoopGroup;
     private final VotifierPlugin plugin;
     private final boolean v1Disable;
+    private final ExecutorService v1CryptoExecutor;
 
-    private Channel serverChannel;
+    private final int acceptors;
+    private final int readTimeout;
+    private final ConnectionLimiter connectionLimiter;
+    private final VoteDispatcher voteDispatcher;
+    private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
 
     public VotifierServerBootstrap(String host, int port, VotifierPlugin plugin, boolean v1Disable) {
+        this(host, port, plugin, v1Disable, VotifierServerSettings.defaults());
+    }
+
+    public VotifierServerBootstrap(String host, int port, VotifierPlugin plugin, boolean v1Disable,
+                                   VotifierServerSettings settings) {
         this.host = host;
         this.port = port;
         this.plugin = plugin;
         this.v1Disable = v1Disable;
-
-        if (USE_EPOLL) {
-            this.bossLoopGroup = new EpollEventLoopGroup(1, createThreadFactory("Votifier epoll boss"));
-            this.eventLoopGroup = new EpollEventLoopGroup(3, createThreadFactory("Votifier epoll worker"));
-            plugin.getPluginLogger().info("Using epoll transport to accept votes.");
+        this.readTimeout = settings.getReadTimeout();
+        this.connectionLimiter = new ConnectionLimiter(settings);
+        this.voteDispatcher = settings.getDispatchThreads() > 0
+                ? new VoteDispatcher(plugin, settings.getDispatchThreads(), settings.getDispatchQueueSize(), settings.getDispatchBatchSize())
+                : null;
+
+        if (!v1Disable && settings.getV1CryptoThreads() > 0) {
+            // Bounded, so a flood of v1 blocks is rejected instead of piling up behind the RSA work.
+            this.v1CryptoExecutor = new ThreadPoolExecutor(settings.getV1CryptoThreads(), settings.getV1CryptoThreads(),
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(settings.getV1CryptoQueueSize()),
+                    createThreadFactory("Votifier crypto worker"), new ThreadPoolExecutor.AbortPolicy());
         } else {
-            this.bossLoopGroup = new NioEventLoopGroup(1, createThreadFactory("Votifier NIO boss"));
-            this.eventLoopGroup = new NioEventLoopGroup(3, createThreadFactory("Votifier NIO worker"));
-            plugin.getPluginLogger().info("Using NIO transport to accept votes.");
+            this.v1CryptoExecutor = null;
+        }
+
+        TransportType transport = settings.getTransport().resolve();
+        if (!transport.isAvailable()) {
+            plugin.getPluginLogger().warn("The " + transport.getDisplayName() + " transport is not available on this system, falling back.");
+            transport = TransportType.AUTO.resolve();
+        }
+
+        int acceptors = settings.getReusePortAcceptors();
+        if (acceptors > 1 && transport != TransportType.EPOLL) {
+            plugin.getPluginLogger().warn("SO_REUSEPORT acceptors require the epoll transport, using a single acceptor.");
+            acceptors = 1;
         }
+
+        this.transport = transport;
+        this.acceptors = acceptors;
+        this.bossLoopGroup = transport.newEventLoopGroup(Math.max(settings.getBossThreads(), acceptors),
+                createThreadFactory("Votifier " + transport.getDisplayName() + " boss"));
+        this.eventLoopGroup = transport.newEventLoopGroup(settings.getWorkerThreads(),
+                createThreadFactory("Votifier " + transport.getDisplayName() + " worker"));
+        plugin.getPluginLogger().info("Using " + transport.getDisplayName() + " transport to accept votes.");
     }
 
     private static ThreadFactory createThreadFactory(String name) {
@@ -71,52 +107,76 @@ public class VotifierServerBootstrap {
     public void start(Consumer<Throwable> error) {
         Objects.requireNonNull(error, "error");
 
-        VoteInboundHandler voteInboundHandler = new VoteInboundHandler(plugin);
+        VoteInboundHandler voteInboundHandler = new VoteInboundHandler(voteDispatcher != null ? voteDispatcher : plugin);
 
-        new ServerBootstrap()
-                .channel(USE_EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .channel(transport.getServerChannelClass())
                 .group(bossLoopGroup, eventLoopGroup)
+                // Some hosts switch Netty's default allocator to unpooled, which every vote connection would pay for.
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel channel) {
                         channel.attr(VotifierSession.KEY).set(new VotifierSession());
                         channel.attr(VotifierPlugin.KEY).set(plugin);
+                        if (readTimeout > 0) {
+                            channel.pipeline().addLast("idleHandler", new IdleStateHandler(readTimeout, 0, 0, TimeUnit.SECONDS));
+                        }
+                        channel.pipeline().addLast("connectionLimiter", connectionLimiter);
                         channel.pipeline().addLast("greetingHandler", VotifierGreetingHandler.INSTANCE);
-                        channel.pipeline().addLast("protocolDifferentiator", new VotifierProtocolDifferentiator(false, !v1Disable));
+                        channel.pipeline().addLast("protocolDifferentiator", new VotifierProtocolDifferentiator(false, !v1Disable, true, v1CryptoExecutor));
                         channel.pipeline().addLast("voteHandler", voteInboundHandler);
                     }
-                })
-                .bind(host, port)
-                .addListener((ChannelFutureListener) future -> {
-                    if (future.isSuccess()) {
-                        serverChannel = future.channel();
-                        plugin.getPluginLogger().info("Votifier enabled on socket " + serverChannel.localAddress() + ".");
-                        error.accept(null);
-                    } else {
-                        SocketAddress socketAddress = future.channel().localAddress();
-                        if (socketAddress == null) {
-                            socketAddress = new InetSocketAddress(host, port);
-                        }
+                });
+
+        if (acceptors > 1) {
+            // Every server channel gets its own boss loop, and the kernel spreads new connections between them.
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+
+        AtomicInteger pending = new AtomicInteger(acceptors);
+        AtomicBoolean failed = new AtomicBoolean();
 
-                        plugin.getPluginLogger().error("Votifier was not able to bind to " + socketAddress, future.cause());
-                        error.accept(future.cause());
+        for (int i = 0; i < acceptors; i++) {
+            bootstrap.bind(host, port).addListener((ChannelFutureListener) future -> {
+                if (future.isSuccess()) {
+                    serverChannels.add(future.channel());
+                    if (pending.decrementAndGet() == 0 && !failed.get()) {
+                        plugin.getPluginLogger().info("Votifier enabled on socket " + future.channel().localAddress()
+                                + (acceptors > 1 ? " with " + acceptors + " acceptors." : "."));
+                        error.accept(null);
                     }
-                });
+                } else if (failed.compareAndSet(false, true)) {
+                    SocketAddress socketAddress = future.channel().localAddress();
+                    if (socketAddress == null) {
+                        socketAddress = new InetSocketAddress(host, port);
+                    }
+
+                    plugin.getPluginLogger().error("Votifier was not able to bind to " + socketAddress, future.cause());
+                    error.accept(future.cause());
+                }
+            });
+        }
     }
 
     private Bootstrap client() {
         return new Bootstrap()
-                .channel(USE_EPOLL ? EpollSocketChannel.class : NioSocketChannel.class)
+                .channel(transport.getSocketChannelClass())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
                 .group(eventLoopGroup);
     }
 
+    public ConnectionLimiter getConnectionLimiter() {
+        return connectionLimiter;
+    }
+
     public ProxyForwardingVoteSource createForwardingSource(List<ProxyForwardingVoteSource.BackendServer> backendServers,
                                                             VoteCache voteCache) {
         return new ProxyForwardingVoteSource(plugin, this::client, backendServers, voteCache);
     }
 
     public void shutdown() {
-        if (serverChannel != null) {
+        for (Channel serverChannel : serverChannels) {
             try {
                 serverChannel.close().syncUninterruptibly();
             } catch (Exception e) {
@@ -124,14 +184,27 @@ public class VotifierServerBootstrap {
             }
         }
 
+        serverChannels.clear();
+
         eventLoopGroup.shutdownGracefully();
         bossLoopGroup.shutdownGracefully();
+        if (v1CryptoExecutor != null) {
+            v1CryptoExecutor.shutdown();
+        }
 
         try {
             bossLoopGroup.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
             eventLoopGroup.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            if (v1CryptoExecutor != null) {
+                v1CryptoExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+
+        // Nothing can queue votes anymore, let the dispatcher finish what it has.
+        if (voteDispatcher != null) {
+            voteDispatcher.shutdown();
+        }
     }
 }
@@ -0,0 +1,323 @@
+package com.vexsoftware.votifier.net;
+
+/**
+ * Tuning options for the vote server, read from the {@code network} section of each platform's
+ * configuration. Everything has a default, so platforms only need to set what the user configured.
+ */
+public class VotifierServerSettings {
+
+    public static final String DEFAULT_TRANSPORT = "auto";
+    public static final int DEFAULT_BOSS_THREADS = 1;
+    public static final int DEFAULT_WORKER_THREADS = 3;
+    public static final int DEFAULT_V1_CRYPTO_THREADS = 2;
+    public static final int DEFAULT_V1_CRYPTO_QUEUE_SIZE = 64;
+    // Connections are not limited unless configured: voting sites and forwarding proxies may open many at once.
+    public static final int DEFAULT_MAX_CONNECTIONS = 0;
+    public static final int DEFAULT_CONNECTIONS_PER_SECOND_PER_IP = 0;
+    public static final int DEFAULT_CONNECTION_BURST_PER_IP = 40;
+    public static final int DEFAULT_READ_TIMEOUT = 5;
+    public static final int DEFAULT_CONNECTION_TIMEOUT = 15;
+    public static final int DEFAULT_DISPATCH_THREADS = 0;
+    public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+    public static final int DEFAULT_DISPATCH_BATCH_SIZE = 32;
+
+    private final TransportType transport;
+    private final int bossThreads;
+    private final int workerThreads;
+    private final int reusePortAcceptors;
+    private final int v1CryptoThreads;
+    private final int v1CryptoQueueSize;
+    private final int maxConnections;
+    private final int connectionsPerSecondPerIp;
+    private final int connectionBurstPerIp;
+    private final int readTimeout;
+    private final int connectionTimeout;
+    private final int dispatchThreads;
+    private final int dispatchQueueSize;
+    private final int dispatchBatchSize;
+
+    private VotifierServerSettings(TransportType transport, int bossThreads, int workerThreads, int reusePortAcceptors,
+                                   int v1CryptoThreads, int v1CryptoQueueSize, int maxConnections,
+                                   int connectionsPerSecondPerIp, int connectionBurstPerIp, int readTimeout,
+                                   int connectionTimeout, int dispatchThreads, int dispatchQueueSize,
+                                   int dispatchBatchSize) {
+        this.transport = transport;
+        this.bossThreads = bossThreads;
+        this.workerThreads = workerThreads;
+        this.reusePortAcceptors = reusePortAcceptors;
+        this.v1CryptoThreads = v1CryptoThreads;
+        this.v1CryptoQueueSize = v1CryptoQueueSize;
+        this.maxConnections = maxConnections;
+        this.connectionsPerSecondPerIp = connectionsPerSecondPerIp;
+        this.connectionBurstPerIp = connectionBurstPerIp;
+        this.readTimeout = readTimeout;
+        this.connectionTimeout = connectionTimeout;
+        this.dispatchThreads = dispatchThreads;
+        this.dispatchQueueSize = dispatchQueueSize;
+        this.dispatchBatchSize = dispatchBatchSize;
+    }
+
+    /**
+     * @return The requested transport, which may still need to be resolved
+     */
+    public TransportType getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return How many threads accept new connections
+     */
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    /**
+     * @return How many threads handle vote connections, 0 meaning Netty's default of two per processor
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * @return How many server channels to bind on the same port with SO_REUSEPORT, 1 (the default)
+     * binding a single one. Only supported on the epoll transport.
+     */
+    public int getReusePortAcceptors() {
+        return reusePortAcceptors;
+    }
+
+    /**
+     * @return How many threads decrypt protocol v1 votes, or 0 to decrypt them on the network threads
+     */
+    public int getV1CryptoThreads() {
+        return v1CryptoThreads;
+    }
+
+    /**
+     * @return How many protocol v1 votes may wait for a crypto thread before new ones are rejected
+     */
+    public int getV1CryptoQueueSize() {
+        return v1CryptoQueueSize;
+    }
+
+    /**
+     * @return How many vote connections may be open at once, or 0 for no limit
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return How many new connections a single address may open per second on average, or 0 for no limit
+     */
+    public int getConnectionsPerSecondPerIp() {
+        return connectionsPerSecondPerIp;
+    }
+
+    /**
+     * @return How many connections a single address may open in a burst before being rate limited
+     */
+    public int getConnectionBurstPerIp() {
+        return connectionBurstPerIp;
+    }
+
+    /**
+     * @return How many seconds a connection may go without sending anything before it is closed, or 0 to wait forever
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @return How many seconds a connection may stay open in total before it is closed, or 0 for no limit
+     */
+    public int getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * @return How many threads hand received votes to the plugin, or 0 to do so on the network threads
+     */
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    /**
+     * @return How many votes may wait for each dispatch thread before new ones are rejected
+     */
+    public int getDispatchQueueSize() {
+        return dispatchQueueSize;
+    }
+
+    /**
+     * @return How many queued votes a dispatch thread picks up at once
+     */
+    public int getDispatchBatchSize() {
+        return dispatchBatchSize;
+    }
+
+    public static VotifierServerSettings defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private TransportType transport = TransportType.AUTO;
+        private int bossThreads = DEFAULT_BOSS_THREADS;
+        private int workerThreads = DEFAULT_WORKER_THREADS;
+        private int reusePortAcceptors = 1;
+        private int v1CryptoThreads = DEFAULT_V1_CRYPTO_THREADS;
+        private int v1CryptoQueueSize = DEFAULT_V1_CRYPTO_QUEUE_SIZE;
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+        private int connectionsPerSecondPerIp = DEFAULT_CONNECTIONS_PER_SECOND_PER_IP;
+        private int connectionBurstPerIp = DEFAULT_CONNECTION_BURST_PER_IP;
+        private int readTimeout = DEFAULT_READ_TIMEOUT;
+        private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+        private int dispatchThreads = DEFAULT_DISPATCH_THREADS;
+        private int dispatchQueueSize = DEFAULT_DISPATCH_QUEUE_SIZE;
+        private int dispatchBatchSize = DEFAULT_DISPATCH_BATCH_SIZE;
+
+        private Builder() {}
+
+        public Builder transport(TransportType transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder transport(String transport) {
+            this.transport = TransportType.fromName(transport);
+            return this;
+        }
+
+        public Builder bossThreads(int bossThreads) {
+            this.bossThreads = bossThreads;
+            return this;
+        }
+
+        public Builder workerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder reusePortAcceptors(int reusePortAcceptors) {
+            this.reusePortAcceptors = reusePortAcceptors;
+            return this;
+        }
+
+        public Builder v1CryptoThreads(int v1CryptoThreads) {
+            this.v1CryptoThreads = v1CryptoThreads;
+            return this;
+        }
+
+        public Builder v1CryptoQueueSize(int v1CryptoQueueSize) {
+            this.v1CryptoQueueSize = v1CryptoQueueSize;
+            return this;
+        }
+
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder connectionsPerSecondPerIp(int connectionsPerSecondPerIp) {
+            this.connectionsPerSecondPerIp = connectionsPerSecondPerIp;
+            return this;
+        }
+
+        public Builder connectionBurstPerIp(int connectionBurstPerIp) {
+            this.connectionBurstPerIp = connectionBurstPerIp;
+            return this;
+        }
+
+        public Builder readTimeout(int readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        public Builder connectionTimeout(int connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        public Builder dispatchThreads(int dispatchThreads) {
+            this.dispatchThreads = dispatchThreads;
+            return this;
+        }
+
+        public Builder dispatchQueueSize(int dispatchQueueSize) {
+            this.dispatchQueueSize = dispatchQueueSize;
+            return this;
+        }
+
+        public Builder dispatchBatchSize(int dispatchBatchSize) {
+            this.dispatchBatchSize = dispatchBatchSize;
+            return this;
+        }
+
+        public VotifierServerSettings build() {
+            if (transport == null) {
+                throw new IllegalArgumentException("transport cannot be null");
+            }
+
+            if (bossThreads <= 0) {
+                throw new IllegalArgumentException("boss-threads must be positive");
+            }
+
+            if (workerThreads < 0) {
+                throw new IllegalArgumentException("worker-threads cannot be negative");
+            }
+
+            if (reusePortAcceptors <= 0) {
+                throw new IllegalArgumentException("reuse-port-acceptors must be positive");
+            }
+
+            if (v1CryptoThreads < 0) {
+                throw new IllegalArgumentException("v1-crypto-threads cannot be negative");
+            }
+
+            if (v1CryptoThreads > 0 && v1CryptoQueueSize <= 0) {
+                throw new IllegalArgumentException("v1-crypto-queue-size must be positive");
+            }
+
+            if (maxConnections < 0) {
+                throw new IllegalArgumentException("max-connections cannot be negative");
+            }
+
+            if (connectionsPerSecondPerIp < 0) {
+                throw new IllegalArgumentException("connections-per-second-per-ip cannot be negative");
+            }
+
+            if (connectionsPerSecondPerIp > 0 && connectionBurstPerIp <= 0) {
+                throw new IllegalArgumentException("connection-burst-per-ip must be positive");
+            }
+
+            if (readTimeout < 0) {
+                throw new IllegalArgumentException("read-timeout cannot be negative");
+            }
+
+            if (connectionTimeout < 0) {
+                throw new IllegalArgumentException("connection-timeout cannot be negative");
+            }
+
+            if (dispatchThreads < 0) {
+                throw new IllegalArgumentException("dispatch-threads cannot be negative");
+            }
+
+            if (dispatchThreads > 0 && dispatchQueueSize <= 0) {
+                throw new IllegalArgumentException("dispatch-queue-size must be positive");
+            }
+
+            if (dispatchThreads > 0 && dispatchBatchSize <= 0) {
+                throw new IllegalArgumentException("dispatch-batch-size must be positive");
+            }
+
+            return new VotifierServerSettings(transport, bossThreads, workerThreads, reusePortAcceptors, v1CryptoThreads,
+                    v1CryptoQueueSize, maxConnections, connectionsPerSecondPerIp, connectionBurstPerIp, readTimeout,
+                    connectionTimeout, dispatchThreads, dispatchQueueSize, dispatchBatchSize);
+        }
+    }
+}
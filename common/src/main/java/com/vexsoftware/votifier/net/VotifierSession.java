@@ -8,12 +8,11 @@ public class VotifierSession {
     public static final AttributeKey<VotifierSession> KEY = AttributeKey.valueOf("votifier_session");
 
     private ProtocolVersion version = ProtocolVersion.UNKNOWN;
-    private final String challenge;
+    private String challenge;
     private boolean hasCompletedVote = false;
-
-    public VotifierSession() {
-        this.challenge = TokenUtil.newToken();
-    }
+    private boolean multiVote = false;
+    private int completedVotes;
+    private final long createdAt = System.nanoTime();
 
     public void setVersion(ProtocolVersion version) {
         if (this.version != ProtocolVersion.UNKNOWN) {
@@ -27,16 +26,63 @@ public class VotifierSession {
         return version;
     }
 
+    /**
+     * Gets when the connection was accepted, as a value of {@link System#nanoTime()}.
+     *
+     * @return The creation time of this session
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Returns this session's challenge, generating it on first use. Sessions are only used from their
+     * channel's event loop, so this does not need to be thread-safe.
+     *
+     * @return The challenge
+     */
     public String getChallenge() {
+        if (challenge == null) {
+            challenge = TokenUtil.newChallenge();
+        }
+
         return challenge;
     }
 
+    /**
+     * Returns the challenge the next vote must be signed with. The first vote uses the challenge from the
+     * greeting; in a multi-vote session, each vote after it appends {@code :} and the number of votes
+     * completed before it, so that no vote can be replayed within the session.
+     *
+     * @return The expected challenge
+     */
+    public String getExpectedChallenge() {
+        return completedVotes == 0 ? getChallenge() : getChallenge() + ":" + completedVotes;
+    }
+
+    /**
+     * Keeps the connection open for more votes after the current one. Only the first vote of a protocol v2
+     * connection can start a session, and only once its signature is verified.
+     */
+    public void startMultiVote() {
+        if (version != ProtocolVersion.TWO || completedVotes != 0) {
+            throw new IllegalStateException("Multi-vote sessions can only be started by the first protocol v2 vote");
+        }
+
+        multiVote = true;
+    }
+
+    public boolean isMultiVote() {
+        return multiVote;
+    }
+
     public void completeVote() {
-        if (hasCompletedVote) {
+        if (hasCompletedVote && !multiVote) {
             throw new IllegalStateException("Protocol completed vote twice!");
         }
 
         hasCompletedVote = true;
+        completedVotes++;
     }
 
     public boolean hasCompletedVote() {
@@ -0,0 +1,372 @@
+package com.vexsoftware.votifier.net.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A minimal pull-style JSON reader working directly on the UTF-8 bytes of a {@link ByteBuf}.
+ * <p>
+ * It only supports what the Votifier protocol needs: a flat object with string, number or
+ * literal values. Nested objects and arrays can be skipped, but not read. Strings without
+ * escape sequences are read without any intermediate copies.
+ */
+final class ByteBufJsonReader {
+
+    private final ByteBuf buf;
+    private final int end;
+    private int index;
+    private boolean expectComma;
+    private boolean lastStringEscaped;
+
+    ByteBufJsonReader(ByteBuf buf) {
+        this.buf = buf;
+        this.index = buf.readerIndex();
+        this.end = buf.writerIndex();
+    }
+
+    void beginObject() throws CorruptedFrameException {
+        skipWhitespace();
+        expect('{');
+        expectComma = false;
+    }
+
+    /**
+     * Returns true if the current object has another field, consuming the separating comma.
+     * Returns false (and consumes the closing brace) at the end of the object.
+     */
+    boolean hasNext() throws CorruptedFrameException {
+        skipWhitespace();
+        if (peek() == '}') {
+            index++;
+            return false;
+        }
+
+        if (expectComma) {
+            expect(',');
+            skipWhitespace();
+        }
+
+        expectComma = true;
+        return true;
+    }
+
+    /**
+     * Reads the next field name and returns its position in {@code candidates}, or -1 if it
+     * is none of them.
+     */
+    int nextName(String... candidates) throws CorruptedFrameException {
+        skipWhitespace();
+        expect('"');
+
+        int start = index;
+        int close = findStringEnd(start);
+        int match = -1;
+
+        if (!lastStringEscaped) {
+            for (int i = 0; i < candidates.length; i++) {
+                if (asciiEquals(start, close - start, candidates[i])) {
+                    match = i;
+                    break;
+                }
+            }
+        } else {
+            String name = decodeString(start, close);
+            for (int i = 0; i < candidates.length; i++) {
+                if (candidates[i].equals(name)) {
+                    match = i;
+                    break;
+                }
+            }
+        }
+
+        index = close + 1;
+        skipWhitespace();
+        expect(':');
+        return match;
+    }
+
+    boolean peekString() throws CorruptedFrameException {
+        skipWhitespace();
+        return peek() == '"';
+    }
+
+    /**
+     * Reads a string, number or boolean value as text. Returns null for a JSON null.
+     */
+    String nextScalar() throws CorruptedFrameException {
+        skipWhitespace();
+        byte b = peek();
+        if (b == '"') {
+            index++;
+            int start = index;
+            int close = findStringEnd(start);
+            index = close + 1;
+            return decodeString(start, close);
+        }
+
+        if (b == '{' || b == '[') {
+            throw malformed("Expected a string or a number");
+        }
+
+        int start = index;
+        int len = skipLiteral();
+        if (len == 4 && asciiEquals(start, len, "null")) {
+            return null;
+        }
+
+        return buf.toString(start, len, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads a string value and writes its unescaped UTF-8 representation to {@code out}.
+     */
+    void nextStringBytes(ByteBuf out) throws CorruptedFrameException {
+        skipWhitespace();
+        expect('"');
+
+        int start = index;
+        int close = findStringEnd(start);
+        index = close + 1;
+
+        if (!lastStringEscaped) {
+            out.writeBytes(buf, start, close - start);
+            return;
+        }
+
+        int runStart = start;
+        int i = start;
+        while (i < close) {
+            if (buf.getByte(i) != '\\') {
+                i++;
+                continue;
+            }
+
+            out.writeBytes(buf, runStart, i - runStart);
+            byte escaped = buf.getByte(i + 1);
+            if (escaped == 'u') {
+                char c = readHex(i + 2, close);
+                i += 6;
+
+                if (Character.isHighSurrogate(c) && i + 6 <= close
+                        && buf.getByte(i) == '\\' && buf.getByte(i + 1) == 'u') {
+                    char low = readHex(i + 2, close);
+                    if (Character.isLowSurrogate(low)) {
+                        writeUtf8(out, Character.toCodePoint(c, low));
+                        i += 6;
+                        runStart = i;
+                        continue;
+                    }
+                }
+
+                // Lone surrogates are replaced the same way String.getBytes(UTF_8) does.
+                writeUtf8(out, Character.isSurrogate(c) ? '?' : c);
+            } else {
+                out.writeByte(unescape(escaped));
+                i += 2;
+            }
+
+            runStart = i;
+        }
+
+        out.writeBytes(buf, runStart, close - runStart);
+    }
+
+    void skipValue() throws CorruptedFrameException {
+        skipWhitespace();
+        byte b = peek();
+        if (b == '"') {
+            index = findStringEnd(index + 1) + 1;
+        } else if (b == '{' || b == '[') {
+            int depth = 0;
+            do {
+                b = peek();
+                if (b == '"') {
+                    index = findStringEnd(index + 1) + 1;
+                    continue;
+                }
+
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+
+                index++;
+            } while (depth > 0);
+        } else {
+            skipLiteral();
+        }
+    }
+
+    private int findStringEnd(int from) throws CorruptedFrameException {
+        lastStringEscaped = false;
+        int i = from;
+        while (i < end) {
+            byte b = buf.getByte(i);
+            if (b == '"') {
+                return i;
+            }
+
+            if (b == '\\') {
+                lastStringEscaped = true;
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+
+        throw malformed("Unterminated string");
+    }
+
+    private String decodeString(int start, int close) throws CorruptedFrameException {
+        if (!lastStringEscaped) {
+            return buf.toString(start, close - start, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder builder = new StringBuilder(close - start);
+        int runStart = start;
+        int i = start;
+        while (i < close) {
+            if (buf.getByte(i) != '\\') {
+                i++;
+                continue;
+            }
+
+            builder.append(buf.toString(runStart, i - runStart, StandardCharsets.UTF_8));
+            byte escaped = buf.getByte(i + 1);
+            if (escaped == 'u') {
+                builder.append(readHex(i + 2, close));
+                i += 6;
+            } else {
+                builder.append((char) unescape(escaped));
+                i += 2;
+            }
+
+            runStart = i;
+        }
+
+        builder.append(buf.toString(runStart, close - runStart, StandardCharsets.UTF_8));
+        return builder.toString();
+    }
+
+    private char readHex(int from, int limit) throws CorruptedFrameException {
+        if (from + 4 > limit) {
+            throw malformed("Truncated unicode escape");
+        }
+
+        int value = 0;
+        for (int i = from; i < from + 4; i++) {
+            int digit = Character.digit(buf.getByte(i), 16);
+            if (digit < 0) {
+                throw malformed("Invalid unicode escape");
+            }
+
+            value = (value << 4) | digit;
+        }
+
+        return (char) value;
+    }
+
+    private byte unescape(byte escaped) throws CorruptedFrameException {
+        switch (escaped) {
+            case '"':
+            case '\\':
+            case '/':
+                return escaped;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                throw malformed("Invalid escape sequence");
+        }
+    }
+
+    private static void writeUtf8(ByteBuf out, int codePoint) {
+        if (codePoint < 0x80) {
+            out.writeByte(codePoint);
+        } else if (codePoint < 0x800) {
+            out.writeByte(0xC0 | (codePoint >> 6));
+            out.writeByte(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            out.writeByte(0xE0 | (codePoint >> 12));
+            out.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            out.writeByte(0x80 | (codePoint & 0x3F));
+        } else {
+            out.writeByte(0xF0 | (codePoint >> 18));
+            out.writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+            out.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            out.writeByte(0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private int skipLiteral() throws CorruptedFrameException {
+        int start = index;
+        while (index < end) {
+            byte b = buf.getByte(index);
+            if (b == ',' || b == '}' || b == ']' || isWhitespace(b)) {
+                break;
+            }
+
+            index++;
+        }
+
+        if (index == start) {
+            throw malformed("Expected a value");
+        }
+
+        return index - start;
+    }
+
+    private boolean asciiEquals(int start, int len, String candidate) {
+        if (len != candidate.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+            if (buf.getByte(start + i) != candidate.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (index < end && isWhitespace(buf.getByte(index))) {
+            index++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private byte peek() throws CorruptedFrameException {
+        if (index >= end) {
+            throw malformed("Unexpected end of message");
+        }
+
+        return buf.getByte(index);
+    }
+
+    private void expect(char c) throws CorruptedFrameException {
+        if (peek() != c) {
+            throw malformed("Expected '" + c + "'");
+        }
+
+        index++;
+    }
+
+    private CorruptedFrameException malformed(String reason) {
+        return new CorruptedFrameException("Malformed JSON: " + reason + " at offset " + (index - buf.readerIndex()));
+    }
+}
@@ -2,19 +2,40 @@ package com.vexsoftware.votifier.net.protocol;
 
 import com.google.gson.JsonObject;
 import com.vexsoftware.votifier.VoteHandler;
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.util.gson.GsonInst;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicLong;
 
 @ChannelHandler.Sharable
 public class VoteInboundHandler extends SimpleChannelInboundHandler<Vote> {
 
+    /**
+     * The protocol v2 success response, shared by every connection.
+     */
+    private static final ByteBuf OK_RESPONSE = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer().writeBytes("{\"status\":\"ok\"}\r\n".getBytes(StandardCharsets.US_ASCII))).asReadOnly();
+
+    /**
+     * The success response within a multi-vote session, which also tells the client the connection stays open.
+     */
+    private static final ByteBuf SESSION_OK_RESPONSE = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer().writeBytes("{\"status\":\"ok\",\"session\":true}\r\n".getBytes(StandardCharsets.US_ASCII))).asReadOnly();
+
+    private static final LatencyHistogram DISPATCH = VotifierMetrics.global().histogram(VotifierMetrics.DISPATCH);
+    private static final LatencyHistogram VOTE = VotifierMetrics.global().histogram(VotifierMetrics.VOTE);
+
     private final VoteHandler handler;
     private final AtomicLong lastError;
     private final AtomicLong errorsSent;
@@ -29,20 +50,26 @@ public class VoteInboundHandler extends SimpleChannelInboundHandler<Vote> {
     protected void channelRead0(ChannelHandlerContext ctx, final Vote vote) throws Exception {
         VotifierSession session = ctx.channel().attr(VotifierSession.KEY).get();
 
+        long start = System.nanoTime();
         handler.onVoteReceived(vote, session.getVersion(), ctx.channel().remoteAddress().toString());
+        DISPATCH.recordSince(start);
+        if (!session.hasCompletedVote()) {
+            VOTE.recordSince(session.getCreatedAt());
+        }
         session.completeVote();
 
         if (session.getVersion() == VotifierSession.ProtocolVersion.ONE) {
             ctx.close();
+        } else if (session.isMultiVote()) {
+            ctx.writeAndFlush(SESSION_OK_RESPONSE.duplicate(), ctx.voidPromise());
         } else {
-            JsonObject object = new JsonObject();
-            object.addProperty("status", "ok");
-            ctx.writeAndFlush(GsonInst.GSON.toJson(object) + "\r\n").addListener(ChannelFutureListener.CLOSE);
+            ctx.writeAndFlush(OK_RESPONSE.duplicate()).addListener(ChannelFutureListener.CLOSE);
         }
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        VotifierMetrics.global().counter(VotifierMetrics.error(cause)).increment();
         VotifierSession session = ctx.channel().attr(VotifierSession.KEY).get();
 
         String remoteAddr = ctx.channel().remoteAddress().toString();
@@ -53,7 +80,10 @@ public class VoteInboundHandler extends SimpleChannelInboundHandler<Vote> {
             object.addProperty("status", "error");
             object.addProperty("cause", cause.getClass().getSimpleName());
             object.addProperty("error", cause.getMessage());
-            ctx.writeAndFlush(GsonInst.GSON.toJson(object) + "\r\n").addListener(ChannelFutureListener.CLOSE);
+            String response = GsonInst.GSON.toJson(object) + "\r\n";
+            ByteBuf responseBuf = ctx.alloc().buffer(ByteBufUtil.utf8MaxBytes(response));
+            ByteBufUtil.writeUtf8(responseBuf, response);
+            ctx.writeAndFlush(responseBuf).addListener(ChannelFutureListener.CLOSE);
         } else {
             ctx.close();
         }
@@ -1,7 +1,10 @@
 package com.vexsoftware.votifier.net.protocol;
 
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.net.VotifierSession;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -17,13 +20,26 @@ public class VotifierGreetingHandler extends ChannelInboundHandlerAdapter {
 
     public static final VotifierGreetingHandler INSTANCE = new VotifierGreetingHandler();
 
+    /**
+     * The part of the greeting that is the same for every connection, written from a shared buffer.
+     */
+    private static final ByteBuf GREETING_PREFIX = Unpooled.unreleasableBuffer(
+            Unpooled.directBuffer().writeBytes("VOTIFIER 2 ".getBytes(StandardCharsets.US_ASCII))).asReadOnly();
+
+    private static final LatencyHistogram ACCEPT = VotifierMetrics.global().histogram(VotifierMetrics.ACCEPT);
+
     private VotifierGreetingHandler() {}
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) {
         VotifierSession session = ctx.channel().attr(VotifierSession.KEY).get();
-        String version = "VOTIFIER 2 " + session.getChallenge() + "\n";
-        ByteBuf versionBuf = Unpooled.copiedBuffer(version, StandardCharsets.UTF_8);
-        ctx.writeAndFlush(versionBuf);
+        String challenge = session.getChallenge();
+
+        ByteBuf challengeBuf = ctx.alloc().buffer(challenge.length() + 1);
+        ByteBufUtil.writeAscii(challengeBuf, challenge);
+        challengeBuf.writeByte('\n');
+
+        ctx.write(GREETING_PREFIX.duplicate(), ctx.voidPromise());
+        ctx.writeAndFlush(challengeBuf).addListener(future -> ACCEPT.recordSince(session.getCreatedAt()));
     }
 }
@@ -1,5 +1,7 @@
 package com.vexsoftware.votifier.net.protocol;
 
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
 import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSA;
@@ -9,18 +11,38 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.DecoderException;
 
+import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Decodes original protocol votes.
  */
 public class VotifierProtocol1Decoder extends ByteToMessageDecoder {
 
+    private static final LatencyHistogram DECODE = VotifierMetrics.global().histogram(VotifierMetrics.DECODE_V1);
+
+    private final Executor cryptoExecutor;
+    private boolean decrypting;
+
+    public VotifierProtocol1Decoder() {
+        this(null);
+    }
+
+    /**
+     * @param cryptoExecutor where to run the RSA decryption, or null to decrypt on the event loop
+     */
+    public VotifierProtocol1Decoder(Executor cryptoExecutor) {
+        this.cryptoExecutor = cryptoExecutor;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> list) throws Exception {
-        if (!ctx.channel().isActive()) {
+        if (!ctx.channel().isActive() || decrypting) {
             buf.skipBytes(buf.readableBytes());
             return;
         }
@@ -40,14 +62,67 @@ public class VotifierProtocol1Decoder extends ByteToMessageDecoder {
 
         VotifierPlugin plugin = ctx.channel().attr(VotifierPlugin.KEY).get();
 
+        if (cryptoExecutor == null) {
+            list.add(decodeBlock(block, plugin, ctx.channel().remoteAddress()));
+
+            // We are done, remove ourselves. Why? Sometimes, we will decode multiple vote messages.
+            // Netty doesn't like this, so we must remove ourselves from the pipeline. With Protocol 1,
+            // ending votes is a "fire and forget" operation, so this is safe.
+            ctx.pipeline().remove(this);
+            return;
+        }
+
+        // Decrypt off the event loop, so a burst of v1 votes doesn't stall every other connection.
+        // Anything else the client sends in the meantime is discarded, as it would have been above.
+        decrypting = true;
+        try {
+            cryptoExecutor.execute(() -> {
+                Vote vote = null;
+                Throwable error = null;
+
+                try {
+                    vote = decodeBlock(block, plugin, ctx.channel().remoteAddress());
+                } catch (Throwable t) {
+                    error = t;
+                }
+
+                Vote decoded = vote;
+                Throwable cause = error;
+                ctx.executor().execute(() -> complete(ctx, decoded, cause));
+            });
+        } catch (RejectedExecutionException e) {
+            throw new QuietException("Too many protocol v1 votes are waiting to be decrypted, rejected vote from "
+                    + ctx.channel().remoteAddress());
+        }
+    }
+
+    private void complete(ChannelHandlerContext ctx, Vote vote, Throwable error) {
+        if (ctx.isRemoved() || !ctx.channel().isActive()) {
+            // The client went away while we were decrypting.
+            return;
+        }
+
+        if (error != null) {
+            ctx.fireExceptionCaught(error instanceof DecoderException ? error : new DecoderException(error));
+            return;
+        }
+
+        ctx.fireChannelRead(vote);
+        if (!ctx.isRemoved()) {
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    private static Vote decodeBlock(byte[] block, VotifierPlugin plugin, SocketAddress remoteAddress) throws Exception {
+        long start = System.nanoTime();
         try {
             block = RSA.decrypt(block, plugin.getProtocolV1Key().getPrivate());
         } catch (Exception e) {
             if (plugin.isDebug()) {
-                throw new CorruptedFrameException("Could not decrypt data from " + ctx.channel().remoteAddress()
+                throw new CorruptedFrameException("Could not decrypt data from " + remoteAddress
                         + ". Make sure the public key on the list is correct.", e);
             } else {
-                throw new QuietException("Could not decrypt data from " + ctx.channel().remoteAddress()
+                throw new QuietException("Could not decrypt data from " + remoteAddress
                         + ". Make sure the public key on the list is correct.");
             }
         }
@@ -67,11 +142,7 @@ public class VotifierProtocol1Decoder extends ByteToMessageDecoder {
 
         // Create the vote.
         Vote vote = new Vote(split[1], split[2], split[3], split[4]);
-        list.add(vote);
-
-        // We are done, remove ourselves. Why? Sometimes, we will decode multiple vote messages.
-        // Netty doesn't like this, so we must remove ourselves from the pipeline. With Protocol 1,
-        // ending votes is a "fire and forget" operation, so this is safe.
-        ctx.pipeline().remove(this);
+        DECODE.recordSince(start);
+        return vote;
     }
 }
@@ -1,18 +1,19 @@
 package com.vexsoftware.votifier.net.protocol;
 
 import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.net.VotifierSession;
+import com.vexsoftware.votifier.net.protocol.v2crypto.HMAC;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
 import com.vexsoftware.votifier.util.gson.GsonInst;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.MessageToMessageDecoder;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.*;
+import java.security.Key;
 import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
@@ -21,10 +22,12 @@ import java.util.UUID;
  * Decodes protocol 2 JSON votes.
  */
 public class VotifierProtocol2Decoder extends MessageToMessageDecoder<String> {
-    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final LatencyHistogram DECODE = VotifierMetrics.global().histogram(VotifierMetrics.DECODE_V2);
 
     @Override
     protected void decode(ChannelHandlerContext ctx, String s, List<Object> list) throws Exception {
+        long start = System.nanoTime();
         JsonObject voteMessage = GsonInst.GSON.fromJson(s, JsonObject.class);
         VotifierSession session = ctx.channel().attr(VotifierSession.KEY).get();
 
@@ -33,7 +36,7 @@ public class VotifierProtocol2Decoder extends MessageToMessageDecoder<String> {
         JsonObject votePayload = GsonInst.GSON.fromJson(payload, JsonObject.class);
 
         // Verify challenge.
-        if (!votePayload.get("challenge").getAsString().equals(session.getChallenge())) {
+        if (!votePayload.get("challenge").getAsString().equals(session.getExpectedChallenge())) {
             throw new CorruptedFrameException("Challenge is not valid");
         }
 
@@ -52,7 +55,7 @@ public class VotifierProtocol2Decoder extends MessageToMessageDecoder<String> {
         String sigHash = voteMessage.get("signature").getAsString();
         byte[] sigBytes = Base64.getDecoder().decode(sigHash);
 
-        if (!hmacEqual(sigBytes, payload.getBytes(StandardCharsets.UTF_8), key)) {
+        if (!HMAC.verify(HMAC.sign(key, payload.getBytes(StandardCharsets.UTF_8)), sigBytes)) {
             throw new CorruptedFrameException("Signature is not valid (invalid token?)");
         }
 
@@ -66,31 +69,18 @@ public class VotifierProtocol2Decoder extends MessageToMessageDecoder<String> {
             throw new CorruptedFrameException("Username too long");
         }
 
+        // The signed payload may ask to keep the connection open for more votes.
+        if (votePayload.has("session") && votePayload.get("session").getAsBoolean() && !session.hasCompletedVote()) {
+            session.startMultiVote();
+        }
+
         // Create the vote.
         Vote vote = new Vote(votePayload);
         list.add(vote);
+        DECODE.recordSince(start);
 
-        ctx.pipeline().remove(this);
-    }
-
-    private boolean hmacEqual(byte[] sig, byte[] message, Key key) throws NoSuchAlgorithmException, InvalidKeyException {
-        // See https://www.nccgroup.trust/us/about-us/newsroom-and-events/blog/2011/february/double-hmac-verification/
-        // This randomizes the byte order to make timing attacks more difficult.
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(key);
-        byte[] calculatedSig = mac.doFinal(message);
-
-        // Generate a random key for use in comparison
-        byte[] randomKey = new byte[32];
-        RANDOM.nextBytes(randomKey);
-
-        // Then generate two HMACs for the different signatures found
-        Mac mac2 = Mac.getInstance("HmacSHA256");
-        mac2.init(new SecretKeySpec(randomKey, "HmacSHA256"));
-        byte[] clientSig = mac2.doFinal(sig);
-        mac2.reset();
-        byte[] realSig = mac2.doFinal(calculatedSig);
-
-        return MessageDigest.isEqual(clientSig, realSig);
+        if (!session.isMultiVote()) {
+            ctx.pipeline().remove(this);
+        }
     }
 }
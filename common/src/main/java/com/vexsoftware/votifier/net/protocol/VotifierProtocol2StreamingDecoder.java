@@ -0,0 +1,192 @@
+package com.vexsoftware.votifier.net.protocol;
+
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.VotifierSession;
+import com.vexsoftware.votifier.net.protocol.v2crypto.HMAC;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.MessageToMessageDecoder;
+
+import javax.crypto.Mac;
+import java.math.BigDecimal;
+import java.security.Key;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Decodes protocol 2 JSON votes straight from the framed bytes.
+ * <p>
+ * Unlike {@link VotifierProtocol2Decoder}, the message is never turned into a {@link String}
+ * or a JSON tree: the envelope is scanned in place, the payload is unescaped into a pooled
+ * buffer which is both signed and parsed, and the {@link Vote} is built from the fields read.
+ */
+public class VotifierProtocol2StreamingDecoder extends MessageToMessageDecoder<ByteBuf> {
+
+    private static final String[] ENVELOPE_FIELDS = {"payload", "signature"};
+    private static final String[] PAYLOAD_FIELDS = {
+            "serviceName", "username", "address", "timestamp", "additionalData", "challenge", "uuid", "session"
+    };
+
+    private static final LatencyHistogram DECODE = VotifierMetrics.global().histogram(VotifierMetrics.DECODE_V2);
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> list) throws Exception {
+        long start = System.nanoTime();
+        VotifierSession session = ctx.channel().attr(VotifierSession.KEY).get();
+        ByteBuf payload = ctx.alloc().heapBuffer(frame.readableBytes());
+
+        try {
+            // Read the envelope, unescaping the payload as we go.
+            String signature = null;
+            boolean hasPayload = false;
+
+            ByteBufJsonReader envelope = new ByteBufJsonReader(frame);
+            envelope.beginObject();
+            while (envelope.hasNext()) {
+                switch (envelope.nextName(ENVELOPE_FIELDS)) {
+                    case 0:
+                        payload.clear();
+                        envelope.nextStringBytes(payload);
+                        hasPayload = true;
+                        break;
+                    case 1:
+                        signature = envelope.nextScalar();
+                        break;
+                    default:
+                        envelope.skipValue();
+                }
+            }
+
+            if (!hasPayload) {
+                throw new CorruptedFrameException("Vote payload is missing");
+            }
+
+            // Deserialize the payload.
+            String serviceName = null, username = null, address = null, timestamp = null;
+            String additionalData = null, challenge = null, uuid = null;
+            boolean multiVote = false;
+
+            ByteBufJsonReader reader = new ByteBufJsonReader(payload);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName(PAYLOAD_FIELDS)) {
+                    case 0:
+                        serviceName = reader.nextScalar();
+                        break;
+                    case 1:
+                        username = reader.nextScalar();
+                        break;
+                    case 2:
+                        address = reader.nextScalar();
+                        break;
+                    case 3:
+                        boolean quoted = reader.peekString();
+                        timestamp = readTimestamp(reader.nextScalar(), quoted);
+                        break;
+                    case 4:
+                        additionalData = reader.nextScalar();
+                        break;
+                    case 5:
+                        challenge = reader.nextScalar();
+                        break;
+                    case 6:
+                        uuid = reader.nextScalar();
+                        break;
+                    case 7:
+                        multiVote = "true".equals(reader.nextScalar());
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+
+            // Verify challenge.
+            if (challenge == null || !challenge.equals(session.getExpectedChallenge())) {
+                throw new CorruptedFrameException("Challenge is not valid");
+            }
+
+            // Verify that we have keys available.
+            VotifierPlugin plugin = ctx.channel().attr(VotifierPlugin.KEY).get();
+            Key key = serviceName == null ? null : plugin.getTokens().get(serviceName);
+
+            if (key == null) {
+                key = plugin.getTokens().get("default");
+                if (key == null) {
+                    throw new RuntimeException("Unknown service '" + serviceName + "'");
+                }
+            }
+
+            // Verify signature, straight from the unescaped payload bytes.
+            if (signature == null) {
+                throw new CorruptedFrameException("Signature is missing");
+            }
+
+            byte[] sigBytes = Base64.getDecoder().decode(signature);
+
+            Mac mac = HMAC.forKey(key);
+            mac.update(payload.array(), payload.arrayOffset() + payload.readerIndex(), payload.readableBytes());
+
+            if (!HMAC.verify(mac.doFinal(), sigBytes)) {
+                throw new CorruptedFrameException("Signature is not valid (invalid token?)");
+            }
+
+            // Stopgap: verify the "uuid" field is valid, if provided.
+            if (uuid != null) {
+                //noinspection ResultOfMethodCallIgnored
+                UUID.fromString(uuid);
+            }
+
+            if (serviceName == null || username == null || address == null || timestamp == null) {
+                throw new CorruptedFrameException("Vote payload is missing required fields");
+            }
+
+            if (username.length() > 16) {
+                throw new CorruptedFrameException("Username too long");
+            }
+
+            // The signed payload may ask to keep the connection open for more votes.
+            if (multiVote && !session.hasCompletedVote()) {
+                session.startMultiVote();
+            }
+
+            // Create the vote.
+            list.add(new Vote(serviceName, username, address, timestamp,
+                    additionalData == null ? null : Base64.getDecoder().decode(additionalData)));
+            DECODE.recordSince(start);
+        } finally {
+            payload.release();
+        }
+
+        if (!session.isMultiVote()) {
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    /**
+     * Normalizes the timestamp the same way {@link Vote#Vote(com.google.gson.JsonObject)} does.
+     */
+    private static String readTimestamp(String raw, boolean quoted) {
+        if (raw == null) {
+            return null;
+        }
+
+        try {
+            return Long.toString(Long.parseLong(raw));
+        } catch (NumberFormatException e) {
+            if (quoted) {
+                return raw;
+            }
+        }
+
+        try {
+            return Long.toString(new BigDecimal(raw).longValue());
+        } catch (NumberFormatException e) {
+            return raw;
+        }
+    }
+}
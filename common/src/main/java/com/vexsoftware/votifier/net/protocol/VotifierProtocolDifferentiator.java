@@ -1,5 +1,7 @@
 package com.vexsoftware.votifier.net.protocol;
 
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.util.QuietException;
 import io.netty.buffer.ByteBuf;
@@ -7,10 +9,10 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Attempts to determine if original protocol or protocol v2 is being used.
@@ -19,13 +21,33 @@ public class VotifierProtocolDifferentiator extends ByteToMessageDecoder {
 
     private static final QuietException V2_ONLY = new QuietException("This server only accepts well-formed Votifier v2 packets.");
     private static final short PROTOCOL_2_MAGIC = 0x733A;
+    private static final LatencyHistogram PROTOCOL_DETECT = VotifierMetrics.global().histogram(VotifierMetrics.PROTOCOL_DETECT);
 
     private final boolean testMode;
     private final boolean allowV1;
+    private final boolean streamingV2;
+    private final Executor v1CryptoExecutor;
 
     public VotifierProtocolDifferentiator(boolean testMode, boolean allowV1) {
+        this(testMode, allowV1, false);
+    }
+
+    /**
+     * @param streamingV2 decode v2 votes with {@link VotifierProtocol2StreamingDecoder} instead of
+     *                    going through a {@link String} and {@link VotifierProtocol2Decoder}
+     */
+    public VotifierProtocolDifferentiator(boolean testMode, boolean allowV1, boolean streamingV2) {
+        this(testMode, allowV1, streamingV2, null);
+    }
+
+    /**
+     * @param v1CryptoExecutor where v1 votes are decrypted, or null to decrypt them on the event loop
+     */
+    public VotifierProtocolDifferentiator(boolean testMode, boolean allowV1, boolean streamingV2, Executor v1CryptoExecutor) {
         this.testMode = testMode;
         this.allowV1 = allowV1;
+        this.streamingV2 = streamingV2;
+        this.v1CryptoExecutor = v1CryptoExecutor;
     }
 
     @Override
@@ -40,6 +62,7 @@ public class VotifierProtocolDifferentiator extends ByteToMessageDecoder {
 
         short readMagic = buf.getShort(0);
         VotifierSession session = ctx.channel().attr(VotifierSession.KEY).get();
+        PROTOCOL_DETECT.recordSince(session.getCreatedAt());
 
         if (readMagic == PROTOCOL_2_MAGIC) {
             // Short 0x733A + Message = Protocol v2 Vote
@@ -47,9 +70,12 @@ public class VotifierProtocolDifferentiator extends ByteToMessageDecoder {
 
             if (!testMode) {
                 ctx.pipeline().addAfter("protocolDifferentiator", "protocol2LengthDecoder", new LengthFieldBasedFrameDecoder(1024, 2, 2, 0, 4));
-                ctx.pipeline().addAfter("protocol2LengthDecoder", "protocol2StringDecoder", new StringDecoder(StandardCharsets.UTF_8));
-                ctx.pipeline().addAfter("protocol2StringDecoder", "protocol2VoteDecoder", new VotifierProtocol2Decoder());
-                ctx.pipeline().addAfter("protocol2VoteDecoder", "protocol2StringEncoder", new StringEncoder(StandardCharsets.UTF_8));
+                if (streamingV2) {
+                    ctx.pipeline().addAfter("protocol2LengthDecoder", "protocol2VoteDecoder", new VotifierProtocol2StreamingDecoder());
+                } else {
+                    ctx.pipeline().addAfter("protocol2LengthDecoder", "protocol2StringDecoder", new StringDecoder(StandardCharsets.UTF_8));
+                    ctx.pipeline().addAfter("protocol2StringDecoder", "protocol2VoteDecoder", new VotifierProtocol2Decoder());
+                }
                 ctx.pipeline().remove(this);
             }
         } else {
@@ -60,7 +86,7 @@ public class VotifierProtocolDifferentiator extends ByteToMessageDecoder {
             // Probably Protocol v1 Vote Message
             session.setVersion(VotifierSession.ProtocolVersion.ONE);
             if (!testMode) {
-                ctx.pipeline().addAfter("protocolDifferentiator", "protocol1Handler", new VotifierProtocol1Decoder());
+                ctx.pipeline().addAfter("protocolDifferentiator", "protocol1Handler", new VotifierProtocol1Decoder(v1CryptoExecutor));
                 ctx.pipeline().remove(this);
             }
         }
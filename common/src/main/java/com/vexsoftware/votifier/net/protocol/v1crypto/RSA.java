@@ -18,6 +18,8 @@
 
 package com.vexsoftware.votifier.net.protocol.v1crypto;
 
+import io.netty.util.concurrent.FastThreadLocal;
+
 import javax.crypto.Cipher;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -30,6 +32,17 @@ import java.security.PublicKey;
  */
 public class RSA {
 
+    /**
+     * Decrypting a vote happens on every v1 connection, so the provider lookup and key setup
+     * are only done once per thread and key.
+     */
+    private static final FastThreadLocal<DecryptCipher> DECRYPT_CIPHERS = new FastThreadLocal<DecryptCipher>() {
+        @Override
+        protected DecryptCipher initialValue() {
+            return new DecryptCipher();
+        }
+    };
+
     /**
      * Encrypts a block of data.
      *
@@ -53,8 +66,31 @@ public class RSA {
      * @throws Exception If an error occurs
      */
     public static byte[] decrypt(byte[] data, PrivateKey key) throws Exception {
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.DECRYPT_MODE, key);
-        return cipher.doFinal(data);
+        DecryptCipher cached = DECRYPT_CIPHERS.get();
+        if (cached.key != key) {
+            // First use on this thread, or the key pair has been reloaded since.
+            if (cached.cipher == null) {
+                cached.cipher = Cipher.getInstance("RSA");
+            }
+
+            cached.cipher.init(Cipher.DECRYPT_MODE, key);
+            cached.key = key;
+        }
+
+        try {
+            return cached.cipher.doFinal(data);
+        } catch (Exception e) {
+            // Don't trust the cipher state after a failure, initialize it again next time.
+            cached.key = null;
+            throw e;
+        }
+    }
+
+    /**
+     * A decryption {@link Cipher} initialized with {@link #key}, owned by a single thread.
+     */
+    private static final class DecryptCipher {
+        private Cipher cipher;
+        private PrivateKey key;
     }
 }
@@ -19,6 +19,7 @@
 package com.vexsoftware.votifier.net.protocol.v1crypto;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.Base64;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -28,7 +29,11 @@ import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPrivateCrtKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 
 /**
@@ -95,6 +100,80 @@ public class RSAIO {
         PKCS8EncodedKeySpec privateKeySpec = new PKCS8EncodedKeySpec(encodedPrivateKey);
         PrivateKey privateKey = keyFactory.generatePrivate(privateKeySpec);
 
-        return new KeyPair(publicKey, privateKey);
+        return new KeyPair(publicKey, withCrtParameters(keyFactory, publicKey, privateKey));
+    }
+
+    /**
+     * Makes sure the private key carries its CRT parameters, which makes decryption several times
+     * faster. Keys generated by NuVotifier always have them, but keys created with other tools may
+     * only contain the modulus and private exponent; in that case the primes are recovered from
+     * the public exponent.
+     *
+     * @param keyFactory An RSA key factory
+     * @param publicKey  The public key of the pair
+     * @param privateKey The private key of the pair
+     * @return A private key with CRT parameters, or the given key if they can't be recovered
+     * @throws Exception If an error occurs
+     */
+    static PrivateKey withCrtParameters(KeyFactory keyFactory, PublicKey publicKey, PrivateKey privateKey) throws Exception {
+        if (privateKey instanceof RSAPrivateCrtKey && ((RSAPrivateCrtKey) privateKey).getPrimeP().signum() > 0) {
+            return privateKey;
+        }
+
+        if (!(privateKey instanceof RSAPrivateKey) || !(publicKey instanceof RSAPublicKey)) {
+            return privateKey;
+        }
+
+        BigInteger n = ((RSAPrivateKey) privateKey).getModulus();
+        BigInteger d = ((RSAPrivateKey) privateKey).getPrivateExponent();
+        BigInteger e = ((RSAPublicKey) publicKey).getPublicExponent();
+
+        BigInteger p = recoverPrime(n, e, d);
+        if (p == null) {
+            return privateKey;
+        }
+
+        BigInteger q = n.divide(p);
+        return keyFactory.generatePrivate(new RSAPrivateCrtKeySpec(n, e, d, p, q,
+                d.mod(p.subtract(BigInteger.ONE)),
+                d.mod(q.subtract(BigInteger.ONE)),
+                q.modInverse(p)));
+    }
+
+    /**
+     * Finds a prime factor of n from the public and private exponents, as described in
+     * section 8.2.2 of NIST SP 800-56B.
+     */
+    private static BigInteger recoverPrime(BigInteger n, BigInteger e, BigInteger d) {
+        BigInteger k = d.multiply(e).subtract(BigInteger.ONE);
+        if (k.testBit(0)) {
+            return null;
+        }
+
+        int t = k.getLowestSetBit();
+        BigInteger r = k.shiftRight(t);
+        BigInteger nMinusOne = n.subtract(BigInteger.ONE);
+
+        for (int g = 2; g < 100; g++) {
+            BigInteger y = BigInteger.valueOf(g).modPow(r, n);
+            if (y.equals(BigInteger.ONE) || y.equals(nMinusOne)) {
+                continue;
+            }
+
+            for (int i = 1; i <= t; i++) {
+                BigInteger x = y.modPow(BigInteger.TWO, n);
+                if (x.equals(BigInteger.ONE)) {
+                    return y.subtract(BigInteger.ONE).gcd(n);
+                }
+
+                if (x.equals(nMinusOne)) {
+                    break;
+                }
+
+                y = x;
+            }
+        }
+
+        return null;
     }
 }
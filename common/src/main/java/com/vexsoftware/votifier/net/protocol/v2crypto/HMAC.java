@@ -0,0 +1,89 @@
+package com.vexsoftware.votifier.net.protocol.v2crypto;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HMAC-SHA256 helpers for protocol v2 signatures.
+ * <p>
+ * Initialized {@link Mac} instances are kept per thread and per token, so signing or verifying a
+ * vote does not go through the provider lookup and key setup every time.
+ */
+public class HMAC {
+
+    public static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * How many initialized engines each thread keeps around. This comfortably covers the number of
+     * tokens a server has configured; the least recently used ones are dropped after a token reload.
+     */
+    private static final int MAX_CACHED_KEYS = 64;
+
+    private static final FastThreadLocal<Map<Key, Mac>> ENGINES = new FastThreadLocal<Map<Key, Mac>>() {
+        @Override
+        protected Map<Key, Mac> initialValue() {
+            return new LinkedHashMap<Key, Mac>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Mac> eldest) {
+                    return size() > MAX_CACHED_KEYS;
+                }
+            };
+        }
+    };
+
+    private HMAC() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a reset {@link Mac} initialized with the given key, owned by the calling thread. It must
+     * not be shared with or retained past a call on another thread.
+     *
+     * @param key The token to sign with
+     * @return An initialized HMAC-SHA256 engine
+     * @throws GeneralSecurityException If the engine could not be created or initialized
+     */
+    public static Mac forKey(Key key) throws GeneralSecurityException {
+        Map<Key, Mac> engines = ENGINES.get();
+        Mac mac = engines.get(key);
+        if (mac == null) {
+            mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            engines.put(key, mac);
+        } else {
+            // A previous user may have thrown half way through an update.
+            mac.reset();
+        }
+
+        return mac;
+    }
+
+    /**
+     * Computes the HMAC-SHA256 of a whole message.
+     *
+     * @param key     The token to sign with
+     * @param message The message to sign
+     * @return The signature
+     * @throws GeneralSecurityException If the engine could not be created or initialized
+     */
+    public static byte[] sign(Key key, byte[] message) throws GeneralSecurityException {
+        return forKey(key).doFinal(message);
+    }
+
+    /**
+     * Compares a signature against the expected one in constant time.
+     *
+     * @param expected The signature we calculated
+     * @param provided The signature sent by the client
+     * @return Whether both signatures are equal
+     */
+    public static boolean verify(byte[] expected, byte[] provided) {
+        return MessageDigest.isEqual(expected, provided);
+    }
+}
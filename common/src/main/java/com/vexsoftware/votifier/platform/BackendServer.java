@@ -2,7 +2,22 @@ package com.vexsoftware.votifier.platform;
 
 public interface BackendServer {
 
+    /**
+     * The largest plugin message a Minecraft server accepts from a client connection, which is how
+     * proxies deliver them.
+     */
+    int DEFAULT_MAX_PLUGIN_MESSAGE_SIZE = 32767;
+
     String getName();
 
     boolean sendPluginMessage(String channel, byte[] data);
+
+    /**
+     * Gets the largest plugin message that can be sent to this server.
+     *
+     * @return The size limit, in bytes
+     */
+    default int getMaxPluginMessageSize() {
+        return DEFAULT_MAX_PLUGIN_MESSAGE_SIZE;
+    }
 }
@@ -0,0 +1,93 @@
+package com.vexsoftware.votifier.platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps one {@link BackendServer} wrapper per server known to the proxy, so that looking up every
+ * backend server for each forwarded vote does not create a new wrapper for each of them.
+ * <p>
+ * The proxy APIs we support do not tell us when servers are added or removed, so the cached list is
+ * checked against the proxy's current servers on each lookup and only rebuilt when they differ.
+ *
+ * @param <T> The proxy's own type for a server
+ */
+public final class BackendServerCache<T> {
+
+    private final Function<T, BackendServer> wrapper;
+    private volatile Snapshot<T> snapshot = new Snapshot<>(Collections.emptyList(), new IdentityHashMap<>());
+
+    public BackendServerCache(Function<T, BackendServer> wrapper) {
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * Gets the wrappers for the given servers.
+     *
+     * @param current The servers the proxy knows about right now
+     * @return The wrappers; callers must not modify this collection
+     */
+    public Collection<BackendServer> getAll(Collection<? extends T> current) {
+        Snapshot<T> snapshot = this.snapshot;
+        if (snapshot.matches(current)) {
+            return snapshot.servers;
+        }
+
+        // Keep the wrappers of servers we already knew about.
+        Map<T, BackendServer> wrappers = new IdentityHashMap<>(current.size());
+        List<BackendServer> servers = new ArrayList<>(current.size());
+        for (T server : current) {
+            BackendServer backendServer = snapshot.wrappers.get(server);
+            if (backendServer == null) {
+                backendServer = wrapper.apply(server);
+            }
+
+            wrappers.put(server, backendServer);
+            servers.add(backendServer);
+        }
+
+        this.snapshot = new Snapshot<>(Collections.unmodifiableList(servers), wrappers);
+        return this.snapshot.servers;
+    }
+
+    /**
+     * Gets the wrapper for a single server, reusing the cached one if there is one.
+     *
+     * @param server The server to wrap
+     * @return The wrapper
+     */
+    public BackendServer get(T server) {
+        BackendServer backendServer = snapshot.wrappers.get(server);
+        return backendServer != null ? backendServer : wrapper.apply(server);
+    }
+
+    private static final class Snapshot<T> {
+
+        private final List<BackendServer> servers;
+        private final Map<T, BackendServer> wrappers;
+
+        private Snapshot(List<BackendServer> servers, Map<T, BackendServer> wrappers) {
+            this.servers = servers;
+            this.wrappers = wrappers;
+        }
+
+        private boolean matches(Collection<? extends T> current) {
+            if (current.size() != wrappers.size() || current.size() != servers.size()) {
+                return false;
+            }
+
+            for (T server : current) {
+                if (!wrappers.containsKey(server)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -6,23 +6,83 @@ import com.google.gson.Strictness;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 
 import java.io.CharArrayReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public abstract class AbstractPluginMessagingForwardingSink implements ForwardingVoteSink {
 
+    /**
+     * How many recently delivered votes are remembered, so that a delivery the proxy resends because our
+     * acknowledgement did not reach it in time is not handled twice.
+     */
+    private static final int RECENT_VOTES = 4096;
+
     private final ForwardedVoteListener listener;
     private final LoggingAdapter logger;
 
+    private final Set<Vote> recentVotes = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<Vote, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Vote, Boolean> eldest) {
+                    return size() > RECENT_VOTES;
+                }
+            }));
+
     public AbstractPluginMessagingForwardingSink(ForwardedVoteListener listener, LoggingAdapter logger) {
         this.listener = listener;
         this.logger = logger;
     }
 
     public void handlePluginMessage(byte[] message) {
+        handlePluginMessage(message, null);
+    }
+
+    /**
+     * Handles a plugin message from the proxy.
+     *
+     * @param message The message
+     * @param reply   Sends a message back to the proxy on the same channel, or null if this platform cannot;
+     *                deliveries are then handled without being acknowledged
+     */
+    public void handlePluginMessage(byte[] message, Consumer<byte[]> reply) {
+        if (DeliveryProtocol.isDelivery(message)) {
+            try {
+                for (Vote v : VoteCodec.decode(DeliveryProtocol.unwrap(message))) {
+                    if (recentVotes.add(v)) {
+                        listener.onForward(v);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                // Still acknowledged, resending it would not help.
+                logger.error("Caught exception while handling plugin message:", e);
+            }
+
+            if (reply != null) {
+                reply.accept(DeliveryProtocol.ack(DeliveryProtocol.getId(message)));
+            }
+            return;
+        }
+
+        if (VoteCodec.isBinary(message)) {
+            try {
+                for (Vote v : VoteCodec.decode(message)) {
+                    listener.onForward(v);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.error("Caught exception while handling plugin message:", e);
+            }
+            return;
+        }
+
         String strMessage = new String(message, StandardCharsets.UTF_8);
         try (CharArrayReader reader = new CharArrayReader(strMessage.toCharArray())) {
             JsonReader r = new JsonReader(reader);
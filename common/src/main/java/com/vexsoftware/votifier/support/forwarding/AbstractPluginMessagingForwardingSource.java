@@ -1,39 +1,83 @@
 package com.vexsoftware.votifier.support.forwarding;
 
+import com.vexsoftware.votifier.metrics.Counter;
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.platform.BackendServer;
 import com.vexsoftware.votifier.platform.ProxyVotifierPlugin;
-import com.vexsoftware.votifier.support.forwarding.cache.FileVoteCache;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 public abstract class AbstractPluginMessagingForwardingSource implements ForwardingVoteSource {
 
+    /**
+     * How many threads send votes to backend servers. Each backend server always uses the same one, so
+     * the votes it receives stay in order, while different backend servers are sent to at the same time.
+     */
+    private static final int FAN_OUT_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * How long halting waits for votes that are still being sent.
+     */
+    private static final long HALT_TIMEOUT_SECONDS = 5;
+
+    private static final LatencyHistogram FORWARD = VotifierMetrics.global().histogram(VotifierMetrics.forward("pluginmessaging"));
+    private static final Counter FORWARD_FAILED = VotifierMetrics.global().counter(VotifierMetrics.forwardFailed("pluginmessaging"));
+
     protected final ProxyVotifierPlugin plugin;
     protected final String channel;
     protected final VoteCache cache;
     protected final ServerFilter serverFilter;
     private final int dumpRate;
+    private final VoteCodec.Format format;
+    private final ExecutorService[] lanes = new ExecutorService[FAN_OUT_THREADS];
+    private volatile DeliveryWindow deliveries;
+    private ScheduledVotifierTask expiryTask;
 
     public AbstractPluginMessagingForwardingSource(
             String channel,
             ServerFilter filter,
             ProxyVotifierPlugin plugin,
             VoteCache cache,
-            int dumpRate
+            int dumpRate,
+            VoteCodec.Format format
     ) {
         this.channel = channel;
         this.plugin = plugin;
         this.cache = cache;
         this.serverFilter = filter;
         this.dumpRate = dumpRate;
+        this.format = format;
+
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "Votifier forwarding #" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public AbstractPluginMessagingForwardingSource(
+            String channel,
+            ServerFilter filter,
+            ProxyVotifierPlugin plugin,
+            VoteCache cache,
+            int dumpRate
+    ) {
+        this(channel, filter, plugin, cache, dumpRate, VoteCodec.Format.JSON);
     }
 
     protected AbstractPluginMessagingForwardingSource(
@@ -45,46 +89,159 @@ public abstract class AbstractPluginMessagingForwardingSource implements Forward
         this(channel, null, plugin, voteCache, dumpRate);
     }
 
+    /**
+     * Makes backend servers acknowledge every delivery. Deliveries that are not acknowledged in time are
+     * cached again and resent, and each backend server only has a limited number of them in flight, so
+     * votes are no longer lost when a server drops a message or goes down just after receiving it.
+     * <p>
+     * Every backend server must run a version that sends acknowledgements, otherwise votes are resent
+     * over and over.
+     *
+     * @param window         How many deliveries each backend server may have in flight
+     * @param timeoutSeconds How long to wait for an acknowledgement before resending a delivery
+     */
+    public void enableAcknowledgements(int window, int timeoutSeconds) {
+        this.deliveries = new DeliveryWindow(window, timeoutSeconds);
+        this.expiryTask = plugin.getScheduler().repeatOnPool(this::expireDeliveries, 1, 1, TimeUnit.SECONDS);
+    }
+
     @Override
     public void forward(Vote v) {
-        byte[] rawData = v.serialize().toString().getBytes(StandardCharsets.UTF_8);
+        // Encoded once, then shared by every backend server.
+        byte[] rawData = format.encode(Collections.singletonList(v));
         for (BackendServer server : plugin.getAllBackendServers()) {
             if (!serverFilter.isAllowed(server.getName())) {
                 continue;
             }
 
-            if (!forwardSpecific(server, rawData)) {
+            try {
+                lanes[Math.floorMod(server.getName().hashCode(), lanes.length)]
+                        .execute(() -> forwardOrCache(server, v, rawData));
+            } catch (RejectedExecutionException e) {
+                // We are halting, keep the vote for when the server connects next.
                 attemptToAddToCache(v, server.getName());
-            } else if (plugin.isDebug()) {
-                plugin.getPluginLogger().info("Successfully forwarded vote " + v + " to server " + server.getName());
             }
         }
     }
 
+    private void forwardOrCache(BackendServer server, Vote v, byte[] rawData) {
+        boolean forwarded;
+        try {
+            forwarded = forwardSpecific(server, Collections.singletonList(v), rawData,
+                    votes -> votes.forEach(vote -> attemptToAddToCache(vote, server.getName())));
+        } catch (RuntimeException e) {
+            plugin.getPluginLogger().error("Unable to forward vote " + v + " to server " + server.getName(), e);
+            forwarded = false;
+        }
+
+        if (!forwarded) {
+            attemptToAddToCache(v, server.getName());
+        } else if (plugin.isDebug()) {
+            plugin.getPluginLogger().info("Successfully forwarded vote " + v + " to server " + server.getName());
+        }
+    }
+
     protected boolean forwardSpecific(BackendServer connection, Vote vote) {
-        byte[] rawData = vote.serialize().toString().getBytes(StandardCharsets.UTF_8);
-        return forwardSpecific(connection, rawData);
+        return forwardSpecific(connection, Collections.singletonList(vote));
     }
 
     protected boolean forwardSpecific(BackendServer connection, Collection<Vote> votes) {
-        StringBuilder data = new StringBuilder();
-        for (Vote v : votes) {
-            data.append(v.serialize().toString());
+        return forwardSpecific(connection, votes, format.encode(votes),
+                requeued -> requeued.forEach(vote -> attemptToAddToCache(vote, connection.getName())));
+    }
+
+    /**
+     * Sends an encoded message holding the given votes. When acknowledgements are enabled, the message is
+     * only sent if the server has room in its window, and requeue receives the votes if it times out.
+     */
+    private boolean forwardSpecific(BackendServer connection, Collection<Vote> votes, byte[] data,
+                                    Consumer<Collection<Vote>> requeue) {
+        long start = System.nanoTime();
+        boolean sent = send(connection, votes, data, requeue);
+        if (sent) {
+            FORWARD.record(System.nanoTime() - start, votes.size());
+        } else {
+            FORWARD_FAILED.add(votes.size());
         }
 
-        return forwardSpecific(connection, data.toString().getBytes(StandardCharsets.UTF_8));
+        return sent;
     }
 
-    private boolean forwardSpecific(BackendServer connection, byte[] data) {
-        return connection.sendPluginMessage(channel, data);
+    private boolean send(BackendServer connection, Collection<Vote> votes, byte[] data,
+                         Consumer<Collection<Vote>> requeue) {
+        DeliveryWindow deliveries = this.deliveries;
+        if (deliveries == null) {
+            return connection.sendPluginMessage(channel, data);
+        }
+
+        Long id = deliveries.open(connection.getName(), votes, requeue);
+        if (id == null) {
+            return false;
+        }
+
+        if (!connection.sendPluginMessage(channel, DeliveryProtocol.wrap(id, data))) {
+            deliveries.cancel(id);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Handles a plugin message a backend server sent on our channel. Only acknowledgements are expected,
+     * anything else is ignored.
+     *
+     * @param message The message
+     */
+    protected void handleAcknowledgement(byte[] message) {
+        DeliveryWindow deliveries = this.deliveries;
+        if (deliveries == null || !DeliveryProtocol.isAck(message)) {
+            return;
+        }
+
+        String server = deliveries.acknowledge(DeliveryProtocol.getId(message));
+        // The server caught up, send whatever was held back while its window was full.
+        if (server != null && deliveries.getInFlight(server) == 0 && cache != null
+                && cache.getCachedServers().contains(server)) {
+            plugin.getServer(server).ifPresent(this::onServerConnect);
+        }
+    }
+
+    private void expireDeliveries() {
+        for (String server : deliveries.expire()) {
+            if (plugin.isDebug()) {
+                plugin.getPluginLogger().info("Deliveries to server " + server + " were not acknowledged in time, resending them.");
+            }
+            plugin.getServer(server).ifPresent(this::onServerConnect);
+        }
     }
 
     @Override
     public void halt() {
-        if (cache instanceof FileVoteCache) {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(HALT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    plugin.getPluginLogger().warn("Timed out waiting for votes to be forwarded.");
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (deliveries != null) {
+            expiryTask.cancel();
+            // They may never be acknowledged now, keep them for the next start.
+            deliveries.expireAll();
+        }
+
+        if (cache != null) {
             try {
-                FileVoteCache c = (FileVoteCache) cache;
-                c.halt();
+                cache.halt();
             } catch (IOException e) {
                 plugin.getPluginLogger().error("Unable to save cached votes, votes will be lost.", e);
             }
@@ -128,57 +285,13 @@ public abstract class AbstractPluginMessagingForwardingSource implements Forward
         }
     }
 
-    // Returns a collection of failed votes
+    // Hands the votes that could not be delivered to cb
     private void dumpVotesToServer(
             Collection<Vote> cachedVotes, BackendServer target, String identifier, Consumer<Collection<Vote>> cb
     ) {
-        dumpVotesToServer(cachedVotes, target, identifier, 0, cb);
-    }
-
-    private void dumpVotesToServer(
-            Collection<Vote> cachedVotes,
-            BackendServer target,
-            String identifier,
-            int evictedAlready,
-            Consumer<Collection<Vote>> cb
-    ) {
-        if (!cachedVotes.isEmpty()) {
-            plugin.getScheduler().delayedOnPool(() -> {
-                int evicted = 0;
-                Iterator<Vote> vi = cachedVotes.iterator();
-                Collection<Vote> chunk = new ArrayList<>(dumpRate);
-
-                while (vi.hasNext() && evicted < dumpRate) {
-                    chunk.add(vi.next());
-                    vi.remove();
-                }
-
-                if (forwardSpecific(target, chunk)) {
-                    evicted += chunk.size();
-
-                    if (evicted >= dumpRate && !cachedVotes.isEmpty()) {
-                        // if we evicted everything we could but still need to evict more
-                        dumpVotesToServer(cachedVotes, target, identifier, evictedAlready + evicted, cb);
-                        return;
-                    }
-                } else {
-                    // so since our forwarding failed, break like we are done
-                    cachedVotes.addAll(chunk);
-                }
-
-                if (plugin.isDebug()) {
-                    plugin.getPluginLogger().info("Successfully evicted " + (evictedAlready + evicted) + " votes to " + identifier + ".");
-                    if (!cachedVotes.isEmpty()) {
-                        plugin.getPluginLogger().info("Held " + cachedVotes.size() + " votes for " + identifier + ".");
-                    }
-                }
-
-                // cachedVotes contains any votes which have yet to be evicted
-                cb.accept(cachedVotes);
-            }, evictedAlready == 0 ? 3 : 1, TimeUnit.SECONDS);
-        } else {
-            cb.accept(cachedVotes);
-        }
+        int reserved = deliveries == null ? 0 : DeliveryProtocol.OVERHEAD;
+        new VoteCacheDumper(plugin, format, target, reserved, (votes, data) -> forwardSpecific(target, votes, data, cb),
+                identifier, dumpRate, cachedVotes, cb).start();
     }
 
     protected void handlePlayerSwitch(BackendServer server, String playerName) {
@@ -0,0 +1,71 @@
+package com.vexsoftware.votifier.support.forwarding;
+
+/**
+ * The framing used by plugin messaging forwarding when acknowledgements are enabled.
+ * <p>
+ * A delivery is {@link #DELIVERY}, an 8 byte delivery ID, and then a vote message in any format
+ * {@link com.vexsoftware.votifier.model.VoteCodec} understands. Once a backend server has handled a
+ * delivery, it replies on the same channel with {@link #ACK} and the same 8 byte ID. Neither marker
+ * can start a vote message, so receivers tell them apart by their first byte.
+ */
+public final class DeliveryProtocol {
+
+    public static final byte DELIVERY = (byte) 0xB8;
+    public static final byte ACK = (byte) 0xB9;
+
+    /**
+     * How many bytes a delivery adds to the vote message it carries.
+     */
+    public static final int OVERHEAD = 9;
+
+    private DeliveryProtocol() {
+        throw new AssertionError();
+    }
+
+    public static byte[] wrap(long id, byte[] votes) {
+        byte[] message = new byte[OVERHEAD + votes.length];
+        message[0] = DELIVERY;
+        writeLong(message, id);
+        System.arraycopy(votes, 0, message, OVERHEAD, votes.length);
+        return message;
+    }
+
+    public static boolean isDelivery(byte[] message) {
+        return message.length >= OVERHEAD && message[0] == DELIVERY;
+    }
+
+    public static byte[] unwrap(byte[] delivery) {
+        byte[] votes = new byte[delivery.length - OVERHEAD];
+        System.arraycopy(delivery, OVERHEAD, votes, 0, votes.length);
+        return votes;
+    }
+
+    public static byte[] ack(long id) {
+        byte[] message = new byte[OVERHEAD];
+        message[0] = ACK;
+        writeLong(message, id);
+        return message;
+    }
+
+    public static boolean isAck(byte[] message) {
+        return message.length == OVERHEAD && message[0] == ACK;
+    }
+
+    /**
+     * Reads the delivery ID from either a delivery or an acknowledgement.
+     */
+    public static long getId(byte[] message) {
+        long id = 0;
+        for (int i = 1; i < OVERHEAD; i++) {
+            id = (id << 8) | (message[i] & 0xFF);
+        }
+        return id;
+    }
+
+    private static void writeLong(byte[] message, long id) {
+        for (int i = OVERHEAD - 1; i >= 1; i--) {
+            message[i] = (byte) id;
+            id >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.vexsoftware.votifier.support.forwarding;
+
+import com.vexsoftware.votifier.model.Vote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks deliveries that were sent to backend servers but not acknowledged yet. Each backend server
+ * may have a limited number of them at once; once a delivery is acknowledged its votes are done
+ * with, and once it times out its votes are handed back to be cached again.
+ */
+final class DeliveryWindow {
+
+    private final int size;
+    private final long timeoutNanos;
+    private final LongSupplier nanoTime;
+
+    // Starts somewhere random, so acknowledgements meant for an earlier instance are not mistaken for ours.
+    private final AtomicLong nextId = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private final Map<Long, Delivery> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlightPerServer = new ConcurrentHashMap<>();
+
+    DeliveryWindow(int size, int timeoutSeconds) {
+        this(size, TimeUnit.SECONDS.toNanos(timeoutSeconds), System::nanoTime);
+    }
+
+    DeliveryWindow(int size, long timeoutNanos, LongSupplier nanoTime) {
+        this.size = size;
+        this.timeoutNanos = timeoutNanos;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Reserves a place in the server's window for a delivery.
+     *
+     * @param requeue Receives the votes if the delivery times out
+     * @return The delivery ID, or null if the server already has as many deliveries in flight as it may
+     */
+    Long open(String server, Collection<Vote> votes, Consumer<Collection<Vote>> requeue) {
+        AtomicInteger count = inFlightPerServer.computeIfAbsent(server, k -> new AtomicInteger());
+        if (count.incrementAndGet() > size) {
+            count.decrementAndGet();
+            return null;
+        }
+
+        long id = nextId.getAndIncrement();
+        inFlight.put(id, new Delivery(server, new ArrayList<>(votes), requeue, nanoTime.getAsLong() + timeoutNanos));
+        return id;
+    }
+
+    /**
+     * Releases a delivery that could not be sent after all. Its votes are left to the caller.
+     */
+    void cancel(long id) {
+        close(id);
+    }
+
+    /**
+     * Marks a delivery as handled by its server.
+     *
+     * @return The server the delivery went to, or null if it is not known, for example because it already timed out
+     */
+    String acknowledge(long id) {
+        Delivery delivery = close(id);
+        return delivery == null ? null : delivery.server;
+    }
+
+    /**
+     * Removes every delivery that timed out, and hands their votes back.
+     *
+     * @return The servers that had deliveries time out
+     */
+    Collection<String> expire() {
+        return expireIf(nanoTime.getAsLong(), false);
+    }
+
+    /**
+     * Removes every delivery still in flight, and hands their votes back.
+     */
+    void expireAll() {
+        expireIf(0, true);
+    }
+
+    int getInFlight(String server) {
+        AtomicInteger count = inFlightPerServer.get(server);
+        return count == null ? 0 : count.get();
+    }
+
+    private Collection<String> expireIf(long now, boolean all) {
+        List<String> servers = new ArrayList<>();
+        for (Map.Entry<Long, Delivery> entry : inFlight.entrySet()) {
+            Delivery delivery = entry.getValue();
+            if ((all || now - delivery.deadline >= 0) && close(entry.getKey()) != null) {
+                delivery.requeue.accept(delivery.votes);
+                if (!servers.contains(delivery.server)) {
+                    servers.add(delivery.server);
+                }
+            }
+        }
+        return servers;
+    }
+
+    private Delivery close(long id) {
+        Delivery delivery = inFlight.remove(id);
+        if (delivery != null) {
+            inFlightPerServer.get(delivery.server).decrementAndGet();
+        }
+        return delivery;
+    }
+
+    private static final class Delivery {
+
+        private final String server;
+        private final List<Vote> votes;
+        private final Consumer<Collection<Vote>> requeue;
+        private final long deadline;
+
+        private Delivery(String server, List<Vote> votes, Consumer<Collection<Vote>> requeue, long deadline) {
+            this.server = server;
+            this.votes = votes;
+            this.requeue = requeue;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -13,4 +13,17 @@ public interface ForwardedVoteListener {
      * @param v Vote that was forwarded
      */
     void onForward(Vote v);
+
+    /**
+     * Called whenever a vote is forwarded from a {@link ForwardingVoteSink} that needs to know once the vote is
+     * handled, for example to acknowledge it. Platforms that hand votes to their listeners later should override
+     * this, and run {@code handled} once they have.
+     *
+     * @param v       Vote that was forwarded
+     * @param handled Run once the vote is handled, from any thread
+     */
+    default void onForward(Vote v, Runnable handled) {
+        onForward(v);
+        handled.run();
+    }
 }
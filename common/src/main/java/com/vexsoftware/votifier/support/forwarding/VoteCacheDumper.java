@@ -0,0 +1,156 @@
+package com.vexsoftware.votifier.support.forwarding;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
+import com.vexsoftware.votifier.platform.BackendServer;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.BiPredicate;
+
+/**
+ * Sends votes that were cached for a backend server once it can receive them again.
+ * <p>
+ * Votes are packed into as few plugin messages as the server's size limit allows, and sent in rounds.
+ * The first round sends {@code dumpRate} messages, and each round after that sends twice as many as
+ * the one before, up to {@link #MAX_MESSAGES_PER_ROUND}, for as long as the server keeps accepting
+ * them. As soon as a message is refused, the votes that are left are handed back to be cached again.
+ */
+final class VoteCacheDumper implements Runnable {
+
+    /**
+     * How long to wait before the first round, so the server has time to register its channels.
+     */
+    private static final int INITIAL_DELAY_SECONDS = 3;
+    private static final int ROUND_INTERVAL_MILLIS = 250;
+    private static final int MAX_MESSAGES_PER_ROUND = 64;
+
+    private final VotifierPlugin plugin;
+    private final VoteCodec.Format format;
+    private final BackendServer target;
+    private final int reserved;
+    private final BiPredicate<List<Vote>, byte[]> sender;
+    private final String identifier;
+    private final Consumer<Collection<Vote>> callback;
+    private final Deque<Vote> remaining;
+    private final int total;
+
+    private int messagesPerRound;
+    private int delivered;
+    private long startedAt;
+
+    /**
+     * @param reserved How many bytes of each message the sender needs for itself
+     * @param sender   Sends one message holding the given votes to the target, returning whether it was accepted
+     * @param callback Receives the votes that could not be delivered, which may be none
+     */
+    VoteCacheDumper(VotifierPlugin plugin, VoteCodec.Format format, BackendServer target, int reserved,
+                    BiPredicate<List<Vote>, byte[]> sender, String identifier, int dumpRate, Collection<Vote> votes,
+                    Consumer<Collection<Vote>> callback) {
+        this.plugin = plugin;
+        this.format = format;
+        this.target = target;
+        this.reserved = reserved;
+        this.sender = sender;
+        this.identifier = identifier;
+        this.callback = callback;
+        this.remaining = new ArrayDeque<>(votes);
+        this.total = votes.size();
+        this.messagesPerRound = Math.max(1, dumpRate);
+    }
+
+    void start() {
+        if (remaining.isEmpty()) {
+            callback.accept(Collections.emptyList());
+            return;
+        }
+
+        plugin.getScheduler().delayedOnPool(this, INITIAL_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void run() {
+        if (startedAt == 0) {
+            startedAt = System.nanoTime();
+        }
+
+        for (int sent = 0; sent < messagesPerRound && !remaining.isEmpty(); sent++) {
+            List<Vote> chunk = nextChunk();
+            if (!send(chunk)) {
+                // Put them back in order, they go back to the cache with the rest.
+                for (int i = chunk.size() - 1; i >= 0; i--) {
+                    remaining.addFirst(chunk.get(i));
+                }
+
+                finish();
+                return;
+            }
+
+            delivered += chunk.size();
+        }
+
+        if (remaining.isEmpty()) {
+            finish();
+            return;
+        }
+
+        if (plugin.isDebug()) {
+            plugin.getPluginLogger().info("Evicted " + delivered + " of " + total + " cached votes to " + identifier + " so far.");
+        }
+
+        messagesPerRound = Math.min(MAX_MESSAGES_PER_ROUND, messagesPerRound * 2);
+        plugin.getScheduler().delayedOnPool(this, ROUND_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes as many votes as fit in a single message, but always at least one.
+     */
+    private List<Vote> nextChunk() {
+        int header = format.getHeaderLength();
+        int budget = target.getMaxPluginMessageSize() - reserved - header;
+        List<Vote> chunk = new ArrayList<>();
+
+        while (!remaining.isEmpty()) {
+            Vote vote = remaining.peekFirst();
+            int size = format.encode(Collections.singletonList(vote)).length - header;
+            if (size > budget && !chunk.isEmpty()) {
+                break;
+            }
+
+            budget -= size;
+            chunk.add(remaining.pollFirst());
+        }
+
+        return chunk;
+    }
+
+    private boolean send(List<Vote> chunk) {
+        try {
+            return sender.test(chunk, format.encode(chunk));
+        } catch (RuntimeException e) {
+            plugin.getPluginLogger().error("Unable to send cached votes to " + identifier, e);
+            return false;
+        }
+    }
+
+    private void finish() {
+        if (plugin.isDebug()) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            plugin.getPluginLogger().info("Successfully evicted " + delivered + " of " + total + " cached votes to "
+                    + identifier + " in " + elapsed + " ms.");
+            if (!remaining.isEmpty()) {
+                plugin.getPluginLogger().info("Held " + remaining.size() + " votes for " + identifier + ".");
+            }
+        }
+
+        // remaining contains any votes which have yet to be evicted
+        callback.accept(remaining);
+    }
+}
@@ -3,42 +3,99 @@ package com.vexsoftware.votifier.support.forwarding.cache;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
 import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.util.gson.GsonInst;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
-import java.util.*;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32C;
+
+/**
+ * A {@link MemoryVoteCache} that survives restarts.
+ * <p>
+ * Every vote added and every eviction is appended to a {@link VoteJournal} as it happens. Every few
+ * minutes, if anything changed, the whole cache is written to the cache file as a snapshot and the
+ * journal segments it covers are deleted. On load, the snapshot is read and the journal replayed.
+ * <p>
+ * Snapshots are written to a temporary file with a checksum at the end, synced, and then moved over
+ * the cache file, so a crash never leaves a half-written cache behind. The snapshot being replaced
+ * is kept as a fallback in case the new one turns out to be damaged anyway.
+ */
 public class FileVoteCache extends MemoryVoteCache {
 
+    private static final String CHECKSUM_PREFIX = "crc32c ";
+
     private final LoggingAdapter l;
     private final File cacheFile;
+    private final File previousFile;
+    private final File temporaryFile;
+    private final VoteJournal journal;
+    private final AtomicLong journaled = new AtomicLong();
     private final ScheduledVotifierTask saveTask;
 
     public FileVoteCache(final VotifierPlugin plugin, File cacheFile, long voteTTL) throws IOException {
         super(plugin, voteTTL);
         this.cacheFile = cacheFile;
+        this.previousFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".prev");
+        this.temporaryFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
         this.l = plugin.getPluginLogger();
 
-        this.load();
+        long nextSegment = this.load();
+        this.journal = new VoteJournal(cacheFile, nextSegment, l);
         this.saveTask = plugin.getScheduler().repeatOnPool(() -> {
             try {
-                save();
+                compact();
             } catch (IOException e) {
-                l.error("Unable to save cached votes, votes will be lost if you restart.", e);
+                l.error("Unable to save cached votes, they are still kept in the vote journal.", e);
             }
         }, 3, 3, TimeUnit.MINUTES);
     }
 
+    @Override
+    protected void onAdded(boolean player, String key, VoteWithRecordedTimestamp vote) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", "add");
+        record.addProperty("player", player);
+        record.addProperty("key", key);
+        record.add("vote", vote.serialize());
+        journal.append(GsonInst.GSON.toJson(record));
+        journaled.incrementAndGet();
+    }
+
+    @Override
+    protected void onEvicted(boolean player, String key) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", "evict");
+        record.addProperty("player", player);
+        record.addProperty("key", key);
+        journal.append(GsonInst.GSON.toJson(record));
+        journaled.incrementAndGet();
+    }
+
     private static Set<String> keySet(JsonObject object) {
         Set<String> set = new HashSet<>();
         for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
@@ -47,18 +104,41 @@ public class FileVoteCache extends MemoryVoteCache {
         return set;
     }
 
-    private void load() throws IOException {
+    /**
+     * Loads the snapshot and replays the journal over it.
+     *
+     * @return The number of the journal segment to write next
+     */
+    private long load() throws IOException {
         // Load the cache from disk
         JsonObject object;
+        boolean recovered = false;
+
+        try {
+            object = readSnapshot(cacheFile);
+        } catch (IOException e) {
+            File backupFile = nextBackupFile();
+            if (!cacheFile.renameTo(backupFile)) {
+                throw e;
+            }
+
+            l.error("Vote cache file is damaged, moved it to " + backupFile.getAbsolutePath()
+                    + " and falling back to the previous snapshot.", e);
+            object = null;
+        }
+
+        if (object == null) {
+            // Either the cache is damaged, or we crashed while replacing it. Both leave the previous snapshot behind.
+            try {
+                object = readSnapshot(previousFile);
+                recovered = object != null;
+            } catch (IOException e) {
+                l.error("Previous vote cache snapshot is damaged too, starting with an empty vote cache.", e);
+            }
 
-        try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
-            object = GsonInst.GSON.fromJson(reader, JsonObject.class);
             if (object == null) {
-                // When the input is not malformed but instead empty, this returns null. Simply assume it is empty.
                 object = new JsonObject();
             }
-        } catch (NoSuchFileException e) {
-            object = new JsonObject();
         }
 
         boolean resave = false;
@@ -89,28 +169,156 @@ public class FileVoteCache extends MemoryVoteCache {
             voteCache.put(server, readVotes(servers.getAsJsonArray(server)));
         }
 
-        if (resave) {
-            File replacementFile;
+        TreeMap<Long, File> segments = VoteJournal.segments(cacheFile);
+        for (File segment : segments.values()) {
+            replay(segment);
+        }
 
-            for (int i = 0; ; i++) {
-                replacementFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".bak." + i);
-                if (!replacementFile.exists()) {
-                    break;
-                }
-            }
+        long nextSegment = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+
+        if (resave && cacheFile.exists()) {
+            File replacementFile = nextBackupFile();
 
             if (!cacheFile.renameTo(replacementFile)) {
                 l.error("Backup movement failed! Will not save.");
-                return;
+                return nextSegment;
             }
 
             l.warn("Saving new vote cache format to file - backup moved to " + replacementFile.getAbsolutePath());
             save();
+        } else if (resave || recovered || !segments.isEmpty()) {
+            // Fold the replayed journal into a fresh snapshot.
+            save();
+        }
+
+        for (File segment : segments.values()) {
+            if (!segment.delete()) {
+                l.warn("Unable to delete vote journal segment " + segment + ".");
+            }
+        }
+
+        return nextSegment;
+    }
+
+    private File nextBackupFile() {
+        for (int i = 0; ; i++) {
+            File backupFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".bak." + i);
+            if (!backupFile.exists()) {
+                return backupFile;
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot and checks it against its checksum. Snapshots written before checksums were
+     * added are accepted as long as they parse.
+     *
+     * @return The snapshot, or null if the file does not exist
+     * @throws IOException If the file could not be read, or is damaged
+     */
+    private static JsonObject readSnapshot(File file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        int length = bytes.length;
+        int footerStart = lastLineStart(bytes, length);
+        if (footerStart > 0 && startsWith(bytes, footerStart, CHECKSUM_PREFIX)) {
+            String footer = new String(bytes, footerStart, length - footerStart, StandardCharsets.US_ASCII).trim();
+            long expected;
+            try {
+                expected = Long.parseLong(footer.substring(CHECKSUM_PREFIX.length()), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed checksum in " + file);
+            }
+
+            // The checksum covers everything before the newline that precedes it.
+            length = footerStart - 1;
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, length);
+            if (crc.getValue() != expected) {
+                throw new IOException("Checksum mismatch in " + file);
+            }
+        }
+
+        JsonObject object;
+        try {
+            object = GsonInst.GSON.fromJson(new String(bytes, 0, length, StandardCharsets.UTF_8), JsonObject.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Unable to parse " + file, e);
+        }
+
+        // When the input is not malformed but instead empty, this returns null. Simply assume it is empty.
+        return object == null ? new JsonObject() : object;
+    }
+
+    private static int lastLineStart(byte[] bytes, int length) {
+        int end = length;
+        if (end > 0 && bytes[end - 1] == '\n') {
+            end--;
+        }
+
+        for (int i = end - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+        if (bytes.length - offset < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void replay(File segment) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                JsonObject record;
+                try {
+                    record = GsonInst.GSON.fromJson(line, JsonObject.class);
+                } catch (JsonParseException e) {
+                    // Most likely a record that was cut short by a crash, nothing after it was synced.
+                    l.warn("Ignoring the rest of vote journal segment " + segment + ", it ends with a damaged record.");
+                    return;
+                }
+
+                Map<String, Collection<VoteWithRecordedTimestamp>> m =
+                        record.get("player").getAsBoolean() ? playerVoteCache : voteCache;
+                String key = record.get("key").getAsString();
+
+                if (record.get("op").getAsString().equals("evict")) {
+                    m.remove(key);
+                } else {
+                    VoteWithRecordedTimestamp vote = new VoteWithRecordedTimestamp(record.getAsJsonObject("vote"));
+                    Collection<VoteWithRecordedTimestamp> votes = m.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>());
+                    // The snapshot may have been taken after this record was written.
+                    if (!hasTimedOut(vote) && !votes.contains(vote)) {
+                        votes.add(vote);
+                    }
+                }
+            }
         }
     }
 
     private Collection<VoteWithRecordedTimestamp> readVotes(JsonArray voteArray) {
-        Collection<VoteWithRecordedTimestamp> votes = new HashSet<>(voteArray.size());
+        Collection<VoteWithRecordedTimestamp> votes = new ConcurrentLinkedQueue<>();
 
         for (int i = 0; i < voteArray.size(); i++) {
             JsonObject voteObject = voteArray.get(i).getAsJsonObject();
@@ -126,55 +334,153 @@ public class FileVoteCache extends MemoryVoteCache {
         return votes;
     }
 
-    public void save() throws IOException {
+    public synchronized void save() throws IOException {
+        byte[] snapshot;
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            snapshot = snapshot();
+        } finally {
+            lock.unlock();
+        }
+
+        write(snapshot);
+    }
+
+    /**
+     * Serializes the cache. Must be called while holding the change lock for writing.
+     */
+    private byte[] snapshot() {
         JsonObject votesObject = new JsonObject();
+        votesObject.addProperty("version", 2);
+        votesObject.add("players", serializeMap(playerVoteCache));
+        votesObject.add("servers", serializeMap(voteCache));
+        return GsonInst.GSON.toJson(votesObject).getBytes(StandardCharsets.UTF_8);
+    }
 
-        cacheLock.lock();
+    private void write(byte[] snapshot) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(snapshot);
+        byte[] footer = String.format("\n%s%08x\n", CHECKSUM_PREFIX, crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+
+        try (FileChannel channel = FileChannel.open(temporaryFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer = ByteBuffer.wrap(footer);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        // If we crash in between, load() finds no cache file and falls back to the previous snapshot.
+        if (cacheFile.exists()) {
+            move(cacheFile, previousFile);
+        }
+        move(temporaryFile, cacheFile);
+        syncDirectory();
+    }
+
+    private static void move(File source, File target) throws IOException {
         try {
-            votesObject.addProperty("version", 2);
-            votesObject.add("players", serializeMap(playerVoteCache));
-            votesObject.add("servers", serializeMap(voteCache));
-        } finally {
-            cacheLock.unlock();
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
+    }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(cacheFile.toPath(), StandardCharsets.UTF_8)) {
-            GsonInst.GSON.toJson(votesObject, writer);
+    private void syncDirectory() {
+        // Makes the renames themselves durable. Not every platform lets us open a directory, which is fine.
+        try (FileChannel directory = FileChannel.open(cacheFile.getAbsoluteFile().getParentFile().toPath(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException ignored) {
         }
     }
 
-    public JsonObject serializeMap(Map<String, Collection<VoteWithRecordedTimestamp>> map) {
+    public JsonObject serializeMap(ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> map) {
         JsonObject o = new JsonObject();
 
-        Iterator<Map.Entry<String, Collection<VoteWithRecordedTimestamp>>> entryItr = map.entrySet().iterator();
-        while (entryItr.hasNext()) {
-            Map.Entry<String, Collection<VoteWithRecordedTimestamp>> entry = entryItr.next();
-            JsonArray array = new JsonArray();
-            Iterator<VoteWithRecordedTimestamp> voteItr = entry.getValue().iterator();
-            while (voteItr.hasNext()) {
-                VoteWithRecordedTimestamp vote = voteItr.next();
-
-                // if the vote is no longer valid, notify and remove
-                if (hasTimedOut(vote)) {
-                    l.warn("Purging out of date vote.", vote);
-                    voteItr.remove();
-                } else {
-                    array.add(vote.serialize());
-                }
+        for (Map.Entry<String, Collection<VoteWithRecordedTimestamp>> entry : map.entrySet()) {
+            // if the vote is no longer valid, notify and remove
+            purgeTimedOut(entry.getValue());
 
+            JsonArray array = new JsonArray();
+            for (VoteWithRecordedTimestamp vote : entry.getValue()) {
+                array.add(vote.serialize());
             }
 
             // if, during our iteration, we TTL invalidated all of the votes
-            if (entry.getValue().isEmpty())
-                entryItr.remove();
-            o.add(entry.getKey(), array);
+            if (array.size() == 0) {
+                removeIfEmpty(map, entry.getKey());
+            } else {
+                o.add(entry.getKey(), array);
+            }
         }
         return o;
     }
 
+    /**
+     * Writes a snapshot and deletes the journal segments it covers, if anything changed since the last one.
+     */
+    synchronized void compact() throws IOException {
+        if (journaled.getAndSet(0) == 0) {
+            return;
+        }
+
+        // With no change in progress, the records queued before the roll are exactly those the snapshot covers.
+        CompletableFuture<Long> rolled;
+        byte[] snapshot;
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            rolled = journal.roll();
+            snapshot = snapshot();
+        } finally {
+            lock.unlock();
+        }
+
+        long lastSegment;
+        try {
+            lastSegment = rolled.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to roll the vote journal", e.getCause());
+        }
+
+        write(snapshot);
+        journal.deleteUpTo(lastSegment);
+    }
+
+    @Override
+    public synchronized void halt() throws IOException {
+        stopSweeping();
+        saveTask.cancel();
+
+        byte[] snapshot;
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            journal.close();
+            snapshot = snapshot();
+        } finally {
+            lock.unlock();
+        }
+
+        write(snapshot);
+        journal.deleteUpTo(Long.MAX_VALUE);
+    }
 
-    public void halt() throws IOException {
+    /**
+     * Stops journaling without writing a snapshot, leaving the files behind as a crash would.
+     */
+    synchronized void abandon() {
+        stopSweeping();
         saveTask.cancel();
-        save();
+        journal.close();
     }
 }
@@ -1,59 +1,72 @@
 package com.vexsoftware.votifier.support.forwarding.cache;
 
 import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
 import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 
-import java.util.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Created by Joe Hirschfeld on 10/20/2015.
+ * <p>
+ * Votes are kept in a concurrent queue per server and per player. Adding and evicting votes only
+ * locks the key involved, so operations on different servers or players never wait on each other,
+ * and sweeping or saving the cache doesn't block them either.
  */
 public class MemoryVoteCache implements VoteCache {
 
+    private static final LatencyHistogram ADD_LATENCY = VotifierMetrics.global().histogram(VotifierMetrics.CACHE_ADD);
+    private static final LatencyHistogram EVICT_LATENCY = VotifierMetrics.global().histogram(VotifierMetrics.CACHE_EVICT);
+
     private final LoggingAdapter l;
     private final long voteTTL;
+    private final ScheduledVotifierTask sweepTask;
 
-    protected final Map<String, Collection<VoteWithRecordedTimestamp>> voteCache;
-    protected final Map<String, Collection<VoteWithRecordedTimestamp>> playerVoteCache;
+    protected final ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> voteCache;
+    protected final ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> playerVoteCache;
 
-    protected final ReentrantLock cacheLock = new ReentrantLock();
+    /**
+     * Held for reading while a vote is added or evicted, including the call to {@link #onAdded} or
+     * {@link #onEvicted}. Holding it for writing sees the cache with no change half done, so it matches
+     * everything those calls recorded.
+     */
+    protected final ReadWriteLock changeLock = new ReentrantReadWriteLock();
 
     public MemoryVoteCache(VotifierPlugin p, long voteTTL) {
-        this.voteCache = new HashMap<>();
-        this.playerVoteCache = new HashMap<>();
+        this.voteCache = new ConcurrentHashMap<>();
+        this.playerVoteCache = new ConcurrentHashMap<>();
 
         this.voteTTL = voteTTL;
         this.l = p.getPluginLogger();
 
-        p.getScheduler().repeatOnPool(this::sweep, 12, 12, TimeUnit.HOURS);
+        this.sweepTask = p.getScheduler().repeatOnPool(this::sweep, 12, 12, TimeUnit.HOURS);
     }
 
     @Override
     public Collection<String> getCachedServers() {
-        cacheLock.lock();
-
-        try {
-            return Collections.unmodifiableCollection(new ArrayList<>(voteCache.keySet()));
-        } finally {
-            cacheLock.unlock();
-        }
+        return Collections.unmodifiableCollection(new ArrayList<>(voteCache.keySet()));
     }
 
     @Override
     public void addToCache(Vote v, String server) {
         if (server == null) throw new NullPointerException();
-        cacheLock.lock();
-
-        try {
-            voteCache.computeIfAbsent(server, k -> new HashSet<>()).add(new VoteWithRecordedTimestamp(v));
-        } finally {
-            cacheLock.unlock();
-        }
+        add(voteCache, false, server, new VoteWithRecordedTimestamp(v));
     }
 
     @Override
@@ -62,13 +75,29 @@ public class MemoryVoteCache implements VoteCache {
             throw new IllegalArgumentException("player cannot be null");
         }
 
-        cacheLock.lock();
+        add(playerVoteCache, true, player, new VoteWithRecordedTimestamp(v));
+    }
 
+    private void add(ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> m, boolean player, String key,
+                     VoteWithRecordedTimestamp vote) {
+        long start = System.nanoTime();
+        Lock lock = changeLock.readLock();
+        lock.lock();
         try {
-            playerVoteCache.computeIfAbsent(player, k -> new HashSet<>()).add(new VoteWithRecordedTimestamp(v));
+            // Adding inside compute() means a concurrent evict() either takes the vote with it or leaves a fresh queue.
+            m.compute(key, (k, votes) -> {
+                if (votes == null) {
+                    votes = new ConcurrentLinkedQueue<>();
+                }
+
+                votes.add(vote);
+                onAdded(player, k, vote);
+                return votes;
+            });
         } finally {
-            cacheLock.unlock();
+            lock.unlock();
         }
+        ADD_LATENCY.recordSince(start);
     }
 
     @Override
@@ -77,18 +106,7 @@ public class MemoryVoteCache implements VoteCache {
             throw new IllegalArgumentException("player cannot be null");
         }
 
-        cacheLock.lock();
-
-        try {
-            Collection<VoteWithRecordedTimestamp> playerVotes = playerVoteCache.remove(player);
-            if (playerVotes != null) {
-                return new HashSet<>(playerVotes);
-            } else {
-                return Collections.emptySet();
-            }
-        } finally {
-            cacheLock.unlock();
-        }
+        return evict(playerVoteCache, true, player);
     }
 
     @Override
@@ -97,43 +115,104 @@ public class MemoryVoteCache implements VoteCache {
             throw new IllegalArgumentException("server cannot be null");
         }
 
-        cacheLock.lock();
+        return evict(voteCache, false, server);
+    }
 
+    private Collection<Vote> evict(ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> m, boolean player, String key) {
+        long start = System.nanoTime();
+        List<Vote> evicted = new ArrayList<>();
+        Lock lock = changeLock.readLock();
+        lock.lock();
         try {
-            Collection<VoteWithRecordedTimestamp> serverVotes = voteCache.remove(server);
-            if (serverVotes != null) {
-                return new HashSet<>(serverVotes);
-            } else {
-                return Collections.emptySet();
-            }
+            m.computeIfPresent(key, (k, votes) -> {
+                evicted.addAll(votes);
+                onEvicted(player, k);
+                return null;
+            });
         } finally {
-            cacheLock.unlock();
+            lock.unlock();
         }
+        EVICT_LATENCY.recordSince(start);
+
+        return evicted.isEmpty() ? Collections.emptySet() : evicted;
     }
 
-    public void sweep() {
-        cacheLock.lock();
+    /**
+     * Called when a vote is added, while no other thread can add to or evict the same key.
+     *
+     * @param player Whether the vote was added for a player rather than a server
+     * @param key    The server or player name
+     * @param vote   The vote added
+     */
+    protected void onAdded(boolean player, String key, VoteWithRecordedTimestamp vote) {
+    }
 
-        try {
-            sweep(voteCache);
-            sweep(playerVoteCache);
-        } finally {
-            cacheLock.unlock();
+    /**
+     * Called when the votes of a key are evicted, while no other thread can add to or evict the same key.
+     *
+     * @param player Whether the votes were evicted for a player rather than a server
+     * @param key    The server or player name
+     */
+    protected void onEvicted(boolean player, String key) {
+    }
+
+    /**
+     * Stops sweeping the cache. The votes still held are only kept in memory, so they are dropped, and how many
+     * is logged.
+     */
+    @Override
+    public void halt() throws IOException {
+        stopSweeping();
+
+        int dropped = count(voteCache) + count(playerVoteCache);
+        if (dropped > 0) {
+            l.error("Dropping " + dropped + " cached vote(s) that could not be delivered, they were only kept in memory.");
         }
     }
 
-    private void sweep(Map<String, Collection<VoteWithRecordedTimestamp>> m) {
+    protected void stopSweeping() {
+        sweepTask.cancel();
+    }
+
+    private static int count(ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> m) {
+        int count = 0;
+        for (Collection<VoteWithRecordedTimestamp> votes : m.values()) {
+            count += votes.size();
+        }
+        return count;
+    }
+
+    public void sweep() {
+        sweep(voteCache);
+        sweep(playerVoteCache);
+    }
+
+    private void sweep(ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> m) {
         for (Map.Entry<String, Collection<VoteWithRecordedTimestamp>> entry : m.entrySet()) {
-            Iterator<VoteWithRecordedTimestamp> vi = entry.getValue().iterator();
-            while (vi.hasNext()) {
-                VoteWithRecordedTimestamp v = vi.next();
+            purgeTimedOut(entry.getValue());
+            removeIfEmpty(m, entry.getKey());
+        }
+    }
 
-                if (hasTimedOut(v)) {
-                    l.warn("Purging out of date vote.", v);
-                    vi.remove();
-                }
+    /**
+     * Removes the votes that have outlived the TTL from a cached queue.
+     */
+    protected void purgeTimedOut(Collection<VoteWithRecordedTimestamp> votes) {
+        votes.removeIf(v -> {
+            if (hasTimedOut(v)) {
+                l.warn("Purging out of date vote.", v);
+                return true;
             }
-        }
+
+            return false;
+        });
+    }
+
+    /**
+     * Drops a key whose queue is empty, unless a vote was added to it in the meantime.
+     */
+    protected static void removeIfEmpty(ConcurrentMap<String, Collection<VoteWithRecordedTimestamp>> m, String key) {
+        m.computeIfPresent(key, (k, votes) -> votes.isEmpty() ? null : votes);
     }
 
     protected boolean hasTimedOut(VoteWithRecordedTimestamp v) {
@@ -2,6 +2,7 @@ package com.vexsoftware.votifier.support.forwarding.cache;
 
 import com.vexsoftware.votifier.model.Vote;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -53,4 +54,13 @@ public interface VoteCache {
     default Collection<Vote> evictPlayer(String player) {
         return Collections.emptyList();
     }
+
+    /**
+     * Stops the background tasks of the cache and saves the votes it holds, if it can. The cache must not be used
+     * afterwards.
+     *
+     * @throws IOException If the votes could not be saved
+     */
+    default void halt() throws IOException {
+    }
 }
@@ -0,0 +1,202 @@
+package com.vexsoftware.votifier.support.forwarding.cache;
+
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only log of the changes made to a {@link FileVoteCache} since its last snapshot.
+ * <p>
+ * Records are single lines of JSON appended to numbered segment files next to the cache file. A
+ * single writer thread appends whatever records are waiting and then syncs the segment, so the
+ * cost of a sync is shared by every record that arrived while the previous one was running.
+ * Rolling to a new segment lets the cache write a snapshot and then delete the older segments.
+ */
+final class VoteJournal {
+
+    private static final Object STOP = new Object();
+
+    /**
+     * How long closing the journal waits for the records still queued to be written.
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final File cacheFile;
+    private final File directory;
+    private final String prefix;
+    private final LoggingAdapter l;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private long segment;
+    private FileChannel channel;
+
+    /**
+     * @param cacheFile The snapshot file; segments are named after it
+     * @param segment   The number of the first segment to write, after any existing one
+     */
+    VoteJournal(File cacheFile, long segment, LoggingAdapter l) throws IOException {
+        this.cacheFile = cacheFile;
+        this.directory = cacheFile.getAbsoluteFile().getParentFile();
+        this.prefix = cacheFile.getName() + ".log.";
+        this.l = l;
+        this.segment = segment;
+        this.channel = open(segment);
+
+        this.writer = new Thread(this::write, "Votifier vote journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Lists the segments of the journal for the given cache file, oldest first.
+     */
+    static TreeMap<Long, File> segments(File cacheFile) {
+        TreeMap<Long, File> segments = new TreeMap<>();
+        String prefix = cacheFile.getName() + ".log.";
+        File[] files = cacheFile.getAbsoluteFile().getParentFile().listFiles((dir, name) -> name.startsWith(prefix));
+        if (files == null) {
+            return segments;
+        }
+
+        for (File file : files) {
+            try {
+                segments.put(Long.parseLong(file.getName().substring(prefix.length())), file);
+            } catch (NumberFormatException e) {
+                // Not one of ours.
+            }
+        }
+
+        return segments;
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(new File(directory, prefix + segment).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Queues a record to be appended. Records are written in the order they are queued.
+     *
+     * @param record A single line of JSON
+     */
+    void append(String record) {
+        queue.add(record);
+    }
+
+    /**
+     * Switches to a new segment once every record queued so far is written.
+     *
+     * @return The number of the last segment that holds those records
+     */
+    CompletableFuture<Long> roll() {
+        CompletableFuture<Long> rolled = new CompletableFuture<>();
+        queue.add(rolled);
+        return rolled;
+    }
+
+    /**
+     * Deletes every segment up to and including the given one.
+     */
+    void deleteUpTo(long segment) {
+        for (File file : segments(cacheFile).headMap(segment, true).values()) {
+            if (!file.delete()) {
+                l.warn("Unable to delete vote journal segment " + file + ".");
+            }
+        }
+    }
+
+    /**
+     * Writes the records still queued and closes the current segment.
+     */
+    void close() {
+        queue.add(STOP);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write() {
+        List<Object> batch = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            queue.drainTo(batch);
+
+            for (Object item : batch) {
+                if (item instanceof String) {
+                    pending.append((String) item).append('\n');
+                    continue;
+                }
+
+                // Everything before a roll or a stop belongs in the current segment.
+                flush(pending);
+
+                if (item == STOP) {
+                    closeChannel();
+                    return;
+                }
+
+                CompletableFuture<Long> rolled = (CompletableFuture<Long>) item;
+                try {
+                    // Open the next segment first, so we keep appending to this one if that fails.
+                    FileChannel next = open(segment + 1);
+                    closeChannel();
+                    channel = next;
+                    rolled.complete(segment++);
+                } catch (IOException e) {
+                    rolled.completeExceptionally(e);
+                }
+            }
+
+            flush(pending);
+            batch.clear();
+        }
+    }
+
+    private void flush(StringBuilder pending) {
+        if (pending.length() == 0) {
+            return;
+        }
+
+        try {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(pending.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            l.error("Unable to write to the vote journal, recent votes will be lost if you restart.", e);
+        }
+
+        pending.setLength(0);
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            l.error("Unable to close vote journal segment.", e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.vexsoftware.votifier.support.forwarding.proxy;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierProtocol2Encoder;
+import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierProtocol2SessionHandler;
+import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierResponseHandler;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.DelimiterBasedFrameDecoder;
+import io.netty.handler.codec.Delimiters;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.timeout.IdleStateHandler;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a few connections to one backend server open and sends votes over them, using multi-vote sessions
+ * so that most votes skip the connect and the handshake. If the server turns out not to support sessions,
+ * every vote gets a connection of its own, as it did before.
+ */
+final class BackendConnectionPool {
+
+    private static final StringDecoder STRING_DECODER = new StringDecoder(StandardCharsets.US_ASCII);
+
+    private static final int MAX_CONNECTIONS = 2;
+    private static final int MAX_IN_FLIGHT = 32;
+    private static final int READ_TIMEOUT_SECONDS = 5;
+
+    /**
+     * How long a connection may sit unused before we close it. This is less than the default read timeout
+     * of the server, so it is normally us who closes it, rather than the server while we are sending a vote.
+     */
+    private static final int KEEP_ALIVE_SECONDS = 4;
+
+    private final VotifierPlugin plugin;
+    private final Supplier<Bootstrap> nettyBootstrap;
+    private final InetSocketAddress address;
+    private final Key key;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+    private volatile boolean sessionsSupported = true;
+    private volatile boolean closed;
+
+    BackendConnectionPool(VotifierPlugin plugin, Supplier<Bootstrap> nettyBootstrap, InetSocketAddress address, Key key) {
+        this.plugin = plugin;
+        this.nettyBootstrap = nettyBootstrap;
+        this.address = address;
+        this.key = key;
+    }
+
+    void send(Vote vote, VotifierResponseHandler responseHandler) {
+        if (closed) {
+            responseHandler.onFailure(new ClosedChannelException());
+            return;
+        }
+
+        Connection connection;
+        synchronized (this) {
+            connection = sessionsSupported ? pick() : null;
+            if (connection == null) {
+                connection = open();
+            }
+
+            connection.handler.reserve();
+        }
+
+        VotifierProtocol2SessionHandler handler = connection.handler;
+        try {
+            connection.channel.eventLoop().execute(() -> handler.send(vote, responseHandler));
+        } catch (RejectedExecutionException e) {
+            responseHandler.onFailure(e);
+        }
+    }
+
+    void close() {
+        closed = true;
+        for (Connection connection : connections) {
+            connection.channel.close();
+        }
+    }
+
+    /**
+     * Picks the least busy connection, or none if another one should be opened.
+     */
+    private Connection pick() {
+        Connection best = null;
+        for (Connection connection : connections) {
+            if (connection.handler.isUsable()
+                    && (best == null || connection.handler.getPending() < best.handler.getPending())) {
+                best = connection;
+            }
+        }
+
+        if (best != null && best.handler.getPending() > 0 && connections.size() < MAX_CONNECTIONS) {
+            return null;
+        }
+
+        return best;
+    }
+
+    private Connection open() {
+        Connection connection = new Connection();
+        ChannelFuture future = nettyBootstrap.get()
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new DelimiterBasedFrameDecoder(256, true, Delimiters.lineDelimiter()));
+                        channel.pipeline().addLast(new IdleStateHandler(READ_TIMEOUT_SECONDS, 0, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS));
+                        channel.pipeline().addLast(STRING_DECODER);
+                        channel.pipeline().addLast(new VotifierProtocol2Encoder(key));
+                        channel.pipeline().addLast(connection.handler);
+                    }
+                })
+                .connect(address);
+
+        connection.channel = future.channel();
+        connections.add(connection);
+        future.addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                connections.remove(connection);
+                connection.handler.connectFailed(f.cause());
+            }
+        });
+
+        return connection;
+    }
+
+    private final class Connection implements VotifierProtocol2SessionHandler.Listener {
+
+        private final VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(plugin, MAX_IN_FLIGHT, this);
+        private Channel channel;
+
+        @Override
+        public void onSessionNegotiated(boolean accepted) {
+            if (sessionsSupported != accepted && plugin.isDebug()) {
+                plugin.getPluginLogger().info(address + (accepted ? " now supports" : " does not support")
+                        + " multi-vote sessions.");
+            }
+
+            sessionsSupported = accepted;
+        }
+
+        @Override
+        public void onOrphaned(Vote vote, VotifierResponseHandler responseHandler) {
+            send(vote, responseHandler);
+        }
+
+        @Override
+        public void onClosed() {
+            connections.remove(this);
+        }
+    }
+}
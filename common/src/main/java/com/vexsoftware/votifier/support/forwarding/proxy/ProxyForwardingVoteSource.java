@@ -1,43 +1,43 @@
 package com.vexsoftware.votifier.support.forwarding.proxy;
 
+import com.vexsoftware.votifier.metrics.Counter;
+import com.vexsoftware.votifier.metrics.LatencyHistogram;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSource;
 import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
-import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierProtocol2Encoder;
-import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierProtocol2HandshakeHandler;
 import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierResponseHandler;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.ChannelFutureListener;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
-import io.netty.handler.codec.Delimiters;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.timeout.ReadTimeoutHandler;
 
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class ProxyForwardingVoteSource implements ForwardingVoteSource {
 
     private static final int MAX_RETRIES = 5;
-    private static final StringDecoder STRING_DECODER = new StringDecoder(StandardCharsets.US_ASCII);
+
+    private static final LatencyHistogram FORWARD = VotifierMetrics.global().histogram(VotifierMetrics.forward("proxy"));
+    private static final Counter FORWARD_FAILED = VotifierMetrics.global().counter(VotifierMetrics.forwardFailed("proxy"));
 
     private final VotifierPlugin plugin;
-    private final Supplier<Bootstrap> nettyBootstrap;
     private final List<BackendServer> backendServers;
+    private final Map<BackendServer, BackendConnectionPool> pools = new IdentityHashMap<>();
     private final VoteCache voteCache;
 
     public ProxyForwardingVoteSource(VotifierPlugin plugin, Supplier<Bootstrap> nettyBootstrap, List<BackendServer> backendServers, VoteCache voteCache) {
         this.plugin = plugin;
-        this.nettyBootstrap = nettyBootstrap;
         this.backendServers = backendServers;
         this.voteCache = voteCache;
+
+        for (BackendServer server : backendServers) {
+            pools.put(server, new BackendConnectionPool(plugin, nettyBootstrap, server.address, server.key));
+        }
     }
 
     @Override
@@ -61,35 +61,22 @@ public class ProxyForwardingVoteSource implements ForwardingVoteSource {
     }
 
     private void forwardVote(final BackendServer server, final Vote v, final int tries) {
-        nettyBootstrap.get()
-                .handler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    protected void initChannel(SocketChannel channel) {
-                        channel.pipeline().addLast(new DelimiterBasedFrameDecoder(256, true, Delimiters.lineDelimiter()));
-                        channel.pipeline().addLast(new ReadTimeoutHandler(5, TimeUnit.SECONDS));
-                        channel.pipeline().addLast(STRING_DECODER);
-                        channel.pipeline().addLast(new VotifierProtocol2Encoder(server.key));
-                        channel.pipeline().addLast(new VotifierProtocol2HandshakeHandler(v, new VotifierResponseHandler() {
-                            @Override
-                            public void onSuccess() {
-                                if (plugin.isDebug()) {
-                                    plugin.getPluginLogger().info("Successfully forwarded vote " + v + " to " + server.address + ".");
-                                }
-                            }
-
-                            @Override
-                            public void onFailure(Throwable error) {
-                                handleFailure(server, v, error, tries);
-                            }
-                        }, plugin));
-                    }
-                })
-                .connect(server.address)
-                .addListener((ChannelFutureListener) future -> {
-                    if (!future.isSuccess()) {
-                        handleFailure(server, v, future.cause(), tries);
-                    }
-                });
+        long start = System.nanoTime();
+        pools.get(server).send(v, new VotifierResponseHandler() {
+            @Override
+            public void onSuccess() {
+                FORWARD.recordSince(start);
+                if (plugin.isDebug()) {
+                    plugin.getPluginLogger().info("Successfully forwarded vote " + v + " to " + server.address + ".");
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                FORWARD_FAILED.increment();
+                handleFailure(server, v, error, tries);
+            }
+        });
     }
 
     private void handleFailure(final BackendServer server, final Vote v, Throwable cause, final int tries) {
@@ -119,7 +106,11 @@ public class ProxyForwardingVoteSource implements ForwardingVoteSource {
     }
 
     @Override
-    public void halt() {}
+    public void halt() {
+        for (BackendConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+    }
 
     public static class BackendServer {
 
@@ -6,10 +6,19 @@ public class VoteRequest {
 
     private final String challenge;
     private final Vote vote;
+    private final boolean session;
 
     public VoteRequest(String challenge, Vote vote) {
+        this(challenge, vote, false);
+    }
+
+    /**
+     * @param session Whether to ask the server to keep the connection open for more votes
+     */
+    public VoteRequest(String challenge, Vote vote, boolean session) {
         this.challenge = challenge;
         this.vote = vote;
+        this.session = session;
     }
 
     public String getChallenge() {
@@ -20,11 +29,16 @@ public class VoteRequest {
         return vote;
     }
 
+    public boolean isSession() {
+        return session;
+    }
+
     @Override
     public String toString() {
         return "VoteRequest{" +
                 "challenge='" + challenge + '\'' +
                 ", vote=" + vote +
+                ", session=" + session +
                 '}';
     }
 }
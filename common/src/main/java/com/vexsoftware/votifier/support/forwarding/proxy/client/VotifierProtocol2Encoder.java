@@ -1,12 +1,11 @@
 package com.vexsoftware.votifier.support.forwarding.proxy.client;
 
 import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.net.protocol.v2crypto.HMAC;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
-import javax.crypto.Mac;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Base64;
@@ -26,22 +25,21 @@ public class VotifierProtocol2Encoder extends MessageToByteEncoder<VoteRequest>
         JsonObject object = new JsonObject();
         JsonObject payloadObject = req.getVote().serialize();
         payloadObject.addProperty("challenge", req.getChallenge());
+        if (req.isSession()) {
+            payloadObject.addProperty("session", true);
+        }
         String payload = payloadObject.toString();
         object.addProperty("payload", payload);
 
         // Generate the MAC
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(key);
-        mac.update(payload.getBytes(StandardCharsets.UTF_8));
-        String computed = Base64.getEncoder().encodeToString(mac.doFinal());
+        String computed = Base64.getEncoder().encodeToString(HMAC.sign(key, payload.getBytes(StandardCharsets.UTF_8)));
         object.addProperty("signature", computed);
 
         // JSON message is ready for encoding.
-        String finalMessage = object.toString();
+        // The length is in bytes, which is not the same as the number of characters once anything is outside ASCII.
+        byte[] finalMessage = object.toString().getBytes(StandardCharsets.UTF_8);
         buf.writeShort(MAGIC);
-        buf.writeShort(finalMessage.length());
-        ByteBuf messageBytes = Unpooled.copiedBuffer(finalMessage, StandardCharsets.UTF_8);
-        buf.writeBytes(messageBytes);
-        messageBytes.release();
+        buf.writeShort(finalMessage.length);
+        buf.writeBytes(finalMessage);
     }
 }
@@ -0,0 +1,334 @@
+package com.vexsoftware.votifier.support.forwarding.proxy.client;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.util.gson.GsonInst;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.ReadTimeoutException;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends any number of votes over a single connection, using the multi-vote session extension to protocol v2.
+ * <p>
+ * The first vote asks for a session in its signed payload. A server that supports sessions says so in its
+ * response and keeps the connection open, and the votes after that are pipelined: each one is signed with
+ * the server's challenge followed by {@code :} and the number of votes sent before it, so none of them can
+ * be replayed. A server that does not support sessions answers the first vote as usual and closes the
+ * connection, and the votes that were not sent yet are handed back through {@link Listener#onOrphaned}.
+ * <p>
+ * Unless noted otherwise, methods must be called from the channel's event loop.
+ */
+public class VotifierProtocol2SessionHandler extends SimpleChannelInboundHandler<String> {
+
+    /**
+     * How long a connection is used for new votes. Servers close connections after a while whatever they
+     * are doing, so we stop using them a little earlier than the default limit.
+     */
+    private static final int MAX_AGE_SECONDS = 10;
+
+    private final VotifierPlugin plugin;
+    private final int maxInFlight;
+    private final int maxAgeSeconds;
+    private final Listener listener;
+
+    private final Deque<PendingVote> waiting = new ArrayDeque<>();
+    private final Deque<PendingVote> inFlight = new ArrayDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private ChannelHandlerContext ctx;
+    private String challenge;
+    private int sent;
+    private State state = State.CONNECTING;
+    private Throwable connectFailure;
+    private volatile boolean usable = true;
+
+    /**
+     * @param maxInFlight How many votes may be sent before their responses arrive, once the session is open
+     */
+    public VotifierProtocol2SessionHandler(VotifierPlugin plugin, int maxInFlight, Listener listener) {
+        this(plugin, maxInFlight, MAX_AGE_SECONDS, listener);
+    }
+
+    VotifierProtocol2SessionHandler(VotifierPlugin plugin, int maxInFlight, int maxAgeSeconds, Listener listener) {
+        this.plugin = plugin;
+        this.maxInFlight = maxInFlight;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.listener = listener;
+    }
+
+    /**
+     * Gets how many votes were given to this connection and have not been answered yet. Safe to call from any thread.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Whether this connection still takes new votes. Safe to call from any thread.
+     */
+    public boolean isUsable() {
+        return usable;
+    }
+
+    /**
+     * Marks a vote as on its way to this connection, before it is handed over with {@link #send}. Safe to call
+     * from any thread.
+     */
+    public void reserve() {
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Sends a vote, or queues it until the session is open. A vote given to a connection that is being retired is
+     * handed back through {@link Listener#onOrphaned}, but one given to a connection that is closed fails, so the
+     * caller's own retries and backoff apply, rather than a new connection being opened straight away.
+     */
+    public void send(Vote vote, VotifierResponseHandler responseHandler) {
+        if (state == State.DRAINING) {
+            pending.decrementAndGet();
+            listener.onOrphaned(vote, responseHandler);
+            return;
+        }
+
+        if (state == State.CLOSED) {
+            pending.decrementAndGet();
+            responseHandler.onFailure(connectFailure != null ? connectFailure : new ClosedChannelException());
+            return;
+        }
+
+        PendingVote pendingVote = new PendingVote(vote, responseHandler);
+
+        waiting.add(pendingVote);
+        writeWaiting();
+    }
+
+    /**
+     * Fails every vote waiting for a connection that could not be made.
+     */
+    public void connectFailed(Throwable cause) {
+        usable = false;
+        state = State.CLOSED;
+        connectFailure = cause;
+        failAll(waiting, cause);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        ctx.executor().schedule(this::retire, maxAgeSeconds, TimeUnit.SECONDS);
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, String msg) {
+        if (challenge == null) {
+            String[] handshakeContents = msg.split(" ");
+            if (handshakeContents.length != 3) {
+                throw new CorruptedFrameException("Handshake is not valid.");
+            }
+
+            challenge = handshakeContents[2];
+            state = State.NEGOTIATING;
+            writeWaiting();
+            return;
+        }
+
+        PendingVote answered = inFlight.poll();
+        if (answered == null) {
+            throw new CorruptedFrameException("Unexpected response from server.");
+        }
+
+        JsonObject object = GsonInst.GSON.fromJson(msg, JsonObject.class);
+        String status = object.get("status").getAsString();
+
+        if (!status.equals("ok")) {
+            complete(answered, new Exception("Remote server error: " + object.get("cause").getAsString() +
+                    ": " + object.get("error").getAsString()));
+            ctx.close();
+            return;
+        }
+
+        if (state == State.NEGOTIATING) {
+            JsonElement session = object.get("session");
+            boolean accepted = session != null && session.isJsonPrimitive() && session.getAsBoolean();
+            listener.onSessionNegotiated(accepted);
+
+            if (accepted && usable) {
+                state = State.OPEN;
+            } else {
+                // Without a session the server closes the connection itself, the votes still waiting are handed back then.
+                usable = false;
+                state = State.DRAINING;
+            }
+        }
+
+        complete(answered, null);
+        writeWaiting();
+
+        if (state == State.DRAINING && inFlight.isEmpty()) {
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+        if (!(evt instanceof IdleStateEvent)) {
+            ctx.fireUserEventTriggered(evt);
+            return;
+        }
+
+        IdleState idleState = ((IdleStateEvent) evt).state();
+        if (idleState == IdleState.READER_IDLE && !inFlight.isEmpty()) {
+            exceptionCaught(ctx, ReadTimeoutException.INSTANCE);
+        } else if (idleState == IdleState.ALL_IDLE && inFlight.isEmpty() && waiting.isEmpty()) {
+            // Nothing to send for a while, no need to keep the connection open.
+            retire();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        usable = false;
+        state = State.CLOSED;
+        failAll(inFlight, new ClosedChannelException());
+
+        if (sent == 0) {
+            // Nothing got through, so another connection is unlikely to do better.
+            failAll(waiting, new ClosedChannelException());
+        } else {
+            PendingVote orphan;
+            while ((orphan = waiting.poll()) != null) {
+                pending.decrementAndGet();
+                listener.onOrphaned(orphan.vote, orphan.responseHandler);
+            }
+        }
+
+        listener.onClosed();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        failAll(inFlight, cause);
+        ctx.close();
+    }
+
+    /**
+     * Stops taking new votes, and closes the connection once the ones already sent are answered.
+     */
+    private void retire() {
+        usable = false;
+        if (state == State.OPEN || state == State.CONNECTING) {
+            state = State.DRAINING;
+        }
+
+        if (inFlight.isEmpty()) {
+            ctx.close();
+        }
+    }
+
+    private void writeWaiting() {
+        boolean wrote = false;
+        while (!waiting.isEmpty() && canWrite()) {
+            PendingVote next = waiting.poll();
+            VoteRequest request = sent == 0
+                    ? new VoteRequest(challenge, next.vote, true)
+                    : new VoteRequest(challenge + ":" + sent, next.vote);
+
+            if (plugin.isDebug()) {
+                plugin.getPluginLogger().info("Sent request: " + request);
+            }
+
+            sent++;
+            inFlight.add(next);
+            ctx.write(request);
+            wrote = true;
+        }
+
+        if (wrote) {
+            ctx.flush();
+        }
+    }
+
+    private boolean canWrite() {
+        switch (state) {
+            case NEGOTIATING:
+                // Until the server answers, we do not know if it takes more than one vote.
+                return sent == 0;
+            case OPEN:
+                return inFlight.size() < maxInFlight;
+            default:
+                return false;
+        }
+    }
+
+    private void complete(PendingVote vote, Throwable error) {
+        pending.decrementAndGet();
+        if (error == null) {
+            vote.responseHandler.onSuccess();
+        } else {
+            vote.responseHandler.onFailure(error);
+        }
+    }
+
+    private void failAll(Deque<PendingVote> votes, Throwable cause) {
+        PendingVote vote;
+        while ((vote = votes.poll()) != null) {
+            complete(vote, cause);
+        }
+    }
+
+    private enum State {
+        CONNECTING,
+        NEGOTIATING,
+        OPEN,
+        DRAINING,
+        CLOSED
+    }
+
+    private static final class PendingVote {
+
+        private final Vote vote;
+        private final VotifierResponseHandler responseHandler;
+
+        private PendingVote(Vote vote, VotifierResponseHandler responseHandler) {
+            this.vote = vote;
+            this.responseHandler = responseHandler;
+        }
+    }
+
+    public interface Listener {
+
+        /**
+         * Called once the server answered the first vote.
+         *
+         * @param accepted Whether the server keeps the connection open for more votes
+         */
+        void onSessionNegotiated(boolean accepted);
+
+        /**
+         * Called for each vote that was given to this connection but never sent, so it can be sent over another one.
+         */
+        void onOrphaned(Vote vote, VotifierResponseHandler responseHandler);
+
+        /**
+         * Called once the connection is closed.
+         */
+        void onClosed();
+    }
+}
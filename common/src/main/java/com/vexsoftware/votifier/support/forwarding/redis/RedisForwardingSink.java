@@ -1,69 +1,248 @@
 package com.vexsoftware.votifier.support.forwarding.redis;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.vexsoftware.votifier.metrics.Counter;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.support.forwarding.ForwardedVoteListener;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSink;
-import com.vexsoftware.votifier.util.gson.GsonInst;
 import com.vexsoftware.votifier.util.redis.RedisPoolBuilder;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPubSub;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
+ * Receives votes published by {@link RedisForwardingVoteSource}. Messages are received as raw bytes, so
+ * both the JSON and the binary format can be read, whichever the publisher uses.
+ * <p>
+ * The subscription is kept up by a single thread: whenever the connection is lost, it subscribes again
+ * after a jittered, growing delay. Votes published meanwhile are not received, but votes published as JSON
+ * carry a sequence number, so the ones that were missed are at least counted and logged.
+ *
  * @author AkramL, azurejelly
  */
-public class RedisForwardingSink extends JedisPubSub implements ForwardingVoteSink {
+public class RedisForwardingSink implements ForwardingVoteSink {
+
+    private static final long MIN_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+    private static final long HALT_TIMEOUT_SECONDS = 5;
 
-    private final RedisCredentials credentials;
+    private final byte[][] channels;
     private final ForwardedVoteListener listener;
     private final LoggingAdapter logger;
     private final JedisPool pool;
+    private final SequenceTracker sequences = new SequenceTracker();
+
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong missedVotes = new AtomicLong();
+    private final Counter reconnectsCounter = VotifierMetrics.global().counter(VotifierMetrics.REDIS_SINK_RECONNECTS);
+    private final Counter missedVotesCounter = VotifierMetrics.global().counter(VotifierMetrics.REDIS_SINK_MISSED);
+    private final LongSupplier subscribedGauge = () -> state == State.SUBSCRIBED ? 1 : 0;
+    private volatile long lastMessageAt;
+    private volatile State state = State.STOPPED;
+    private volatile boolean running;
+    private volatile Subscription subscription;
     private Thread thread;
 
-    public RedisForwardingSink(RedisCredentials credentials, ForwardedVoteListener listener, LoggingAdapter logger) {
+    /**
+     * @param channels The channels to subscribe to, such as the channel of this server and its shards, see
+     *                 {@link RedisVoteRouter}. The configured channel itself is always subscribed to.
+     */
+    public RedisForwardingSink(RedisCredentials credentials, Collection<String> channels,
+                               ForwardedVoteListener listener, LoggingAdapter logger) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(credentials.getChannel());
+        names.addAll(channels);
+
         this.pool = RedisPoolBuilder.fromCredentials(credentials);
-        this.credentials = credentials;
+        this.channels = names.stream().map(name -> name.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
         this.logger = logger;
         this.listener = listener;
     }
 
-    private void handleMessage(String message) {
-        JsonObject object = GsonInst.GSON.fromJson(message, JsonObject.class);
-        Vote vote = new Vote(object);
-        listener.onForward(vote);
+    public RedisForwardingSink(RedisCredentials credentials, ForwardedVoteListener listener, LoggingAdapter logger) {
+        this(credentials, Collections.emptyList(), listener, logger);
+    }
+
+    /**
+     * Gets what the subscriber is doing right now.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets how many times the subscription had to be made again since this sink started.
+     */
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * Gets how many votes were published but never received, as far as can be told from their sequence numbers.
+     */
+    public long getMissedVotes() {
+        return missedVotes.get();
+    }
+
+    /**
+     * Gets when the last message was received, in milliseconds since the epoch, or 0 if none was.
+     */
+    public long getLastMessageAt() {
+        return lastMessageAt;
     }
 
     @Override
-    public void onMessage(String channel, String message) {
-        if (channel.equals(credentials.getChannel())) {
-            // Using try-catch block to avoid channel break on exceptions.
+    public void init() throws RuntimeException {
+        this.running = true;
+        this.state = State.CONNECTING;
+        VotifierMetrics.global().gauge(VotifierMetrics.REDIS_SINK_SUBSCRIBED, subscribedGauge);
+        this.thread = new Thread(this::subscribe, "Votifier Redis Forwarding Sink");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void subscribe() {
+        int failures = 0;
+
+        while (running) {
+            Subscription current = new Subscription();
+            subscription = current;
+
+            try (Jedis jedis = pool.getResource()) {
+                // Blocks until we unsubscribe or the connection is lost.
+                jedis.subscribe(current, channels);
+            } catch (RuntimeException ex) {
+                if (running) {
+                    logger.error("Lost the Redis subscription", ex);
+                }
+            }
+
+            if (!running) {
+                break;
+            }
+
+            if (current.subscribed) {
+                failures = 0;
+            }
+
+            state = State.RECONNECTING;
+            reconnects.incrementAndGet();
+            reconnectsCounter.increment();
+
+            long delay = backoff(failures++);
+            logger.warn("Subscribing to Redis again in " + delay + " ms.");
             try {
-                handleMessage(message);
-            } catch (Exception ex) {
-                logger.error("Failed to handle Redis message", ex);
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                break;
             }
         }
+
+        state = State.STOPPED;
     }
 
-    @Override
-    public void init() throws RuntimeException {
-        this.thread = new Thread(() -> {
-            try (Jedis jedis = pool.getResource()) {
-                jedis.subscribe(this, credentials.getChannel());
+    /**
+     * Doubles the delay with each failure in a row, and picks somewhere in the upper half of it, so servers that
+     * lost Redis at the same time don't all come back at once.
+     */
+    private static long backoff(int failures) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(failures, 16));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private void handleMessage(byte[] channel, byte[] message) {
+        lastMessageAt = System.currentTimeMillis();
+
+        List<Vote> votes = VoteCodec.isBinary(message) ? VoteCodec.decode(message) : decodeJson(channel, message);
+        for (Vote vote : votes) {
+            listener.onForward(vote);
+        }
+    }
+
+    /**
+     * Decodes votes published as JSON, noting the sequence numbers they carry along the way.
+     */
+    private List<Vote> decodeJson(byte[] channel, byte[] message) {
+        JsonReader reader = new JsonReader(new StringReader(new String(message, StandardCharsets.UTF_8)));
+        reader.setStrictness(Strictness.LENIENT);
+
+        List<Vote> votes = new ArrayList<>();
+        try {
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                JsonObject object = JsonParser.parseReader(reader).getAsJsonObject();
+                track(channel, object);
+                votes.add(new Vote(object));
             }
-        }, "Votifier Redis Forwarding Sink");
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Malformed vote message", e);
+        }
 
-        this.thread.start();
+        return votes;
+    }
+
+    private void track(byte[] channel, JsonObject object) {
+        JsonElement source = object.get(RedisForwardingVoteSource.SOURCE_FIELD);
+        JsonElement sequence = object.get(RedisForwardingVoteSource.SEQUENCE_FIELD);
+        if (source == null || sequence == null) {
+            // Published by an older version.
+            return;
+        }
+
+        // Votes are numbered per channel.
+        String key = source.getAsString() + '/' + new String(channel, StandardCharsets.UTF_8);
+        long missed = sequences.track(key, sequence.getAsLong());
+        if (missed > 0) {
+            missedVotes.addAndGet(missed);
+            missedVotesCounter.add(missed);
+            logger.warn("Missed " + missed + " vote(s) published to Redis, probably while the subscription was down.");
+        }
     }
 
     @Override
     public void halt() {
-        try {
+        running = false;
+        VotifierMetrics.global().removeGauge(VotifierMetrics.REDIS_SINK_SUBSCRIBED, subscribedGauge);
+
+        Subscription current = subscription;
+        if (current != null && current.isSubscribed()) {
+            try {
+                current.unsubscribe();
+            } catch (RuntimeException ex) {
+                logger.error("Failed to unsubscribe from Redis", ex);
+            }
+        }
+
+        if (thread != null) {
+            // Wakes it up if it is waiting to subscribe again.
             thread.interrupt();
-        } catch (Exception ex) {
-            logger.error("Failed to interrupt thread", ex);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(HALT_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
         try {
@@ -72,4 +251,65 @@ public class RedisForwardingSink extends JedisPubSub implements ForwardingVoteSi
             logger.error("Failed to destroy Redis pool", ex);
         }
     }
+
+    private boolean isSubscribedTo(byte[] channel) {
+        for (byte[] subscribed : channels) {
+            if (Arrays.equals(channel, subscribed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public enum State {
+        /**
+         * Connecting to Redis for the first time.
+         */
+        CONNECTING,
+        /**
+         * Subscribed, votes are being received.
+         */
+        SUBSCRIBED,
+        /**
+         * The connection was lost, waiting to subscribe again.
+         */
+        RECONNECTING,
+        /**
+         * Halted, or not started yet.
+         */
+        STOPPED
+    }
+
+    private final class Subscription extends BinaryJedisPubSub {
+
+        private volatile boolean subscribed;
+
+        @Override
+        public void onSubscribe(byte[] channel, int subscribedChannels) {
+            if (!running) {
+                // Halted while we were connecting.
+                unsubscribe();
+                return;
+            }
+
+            if (reconnects.get() > 0) {
+                logger.info("Subscribed to Redis again.");
+            }
+
+            subscribed = true;
+            state = State.SUBSCRIBED;
+        }
+
+        @Override
+        public void onMessage(byte[] channel, byte[] message) {
+            if (isSubscribedTo(channel)) {
+                // Using try-catch block to avoid channel break on exceptions.
+                try {
+                    handleMessage(channel, message);
+                } catch (Exception ex) {
+                    logger.error("Failed to handle Redis message", ex);
+                }
+            }
+        }
+    }
 }
@@ -1,42 +1,320 @@
 package com.vexsoftware.votifier.support.forwarding.redis;
 
+import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 import com.vexsoftware.votifier.util.gson.GsonInst;
 import com.vexsoftware.votifier.util.redis.RedisPoolBuilder;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Publishes votes to Redis, each to the channel its {@link RedisVoteRouter} picks.
+ * <p>
+ * Votes are queued and published by a single writer thread, so the thread that received the vote never
+ * waits on Redis. The writer collects whatever arrives within a short linger window and sends it as one
+ * pipeline. Votes that cannot be published, because Redis is unreachable or the queue is full, are kept in
+ * the spill cache if there is one, and published once Redis can be reached again. The spill cache is halted
+ * along with this source, so a {@link com.vexsoftware.votifier.support.forwarding.cache.FileVoteCache} keeps
+ * them until the next start.
+ * <p>
+ * A vote routed to a channel no server is subscribed to, such as the channel of a server that is down, is
+ * published again to the configured channel, so it reaches every server rather than none.
+ *
  * @author AkramL, azurejelly
  */
 public class RedisForwardingVoteSource implements ForwardingVoteSource {
 
+    private static final int QUEUE_SIZE = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long LINGER_MILLIS = 2;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+    private static final long HALT_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Fields added to each vote published as JSON, so subscribers can tell when they missed some. Votes are
+     * numbered per channel. Older subscribers ignore them.
+     */
+    static final String SOURCE_FIELD = "source";
+    static final String SEQUENCE_FIELD = "sequence";
+
     private final RedisCredentials credentials;
+    private final VoteCodec.Format format;
+    private final RedisVoteRouter router;
+    private final RedisVoteRouter fallbackRouter;
+    private final VoteCache spill;
     private final LoggingAdapter logger;
     private final JedisPool pool;
+    private final BlockingQueue<Vote> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Thread writer;
+    private final String source = UUID.randomUUID().toString();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private final Set<String> unheardChannels = new HashSet<>();
 
-    public RedisForwardingVoteSource(RedisCredentials credentials, LoggingAdapter logger) {
+    private volatile boolean running = true;
+
+    /**
+     * @param router Picks the channel of each vote
+     * @param spill  Where to keep votes that cannot be published right away, or null to drop them
+     */
+    public RedisForwardingVoteSource(RedisCredentials credentials, VoteCodec.Format format, RedisVoteRouter router,
+                                     VoteCache spill, LoggingAdapter logger) {
+        this(credentials, format, router, spill, RedisPoolBuilder.fromCredentials(credentials), logger);
+    }
+
+    RedisForwardingVoteSource(RedisCredentials credentials, VoteCodec.Format format, RedisVoteRouter router,
+                              VoteCache spill, JedisPool pool, LoggingAdapter logger) {
         this.credentials = credentials;
+        this.format = format;
+        this.router = router;
+        this.fallbackRouter = RedisVoteRouter.broadcast(credentials.getChannel());
+        this.spill = spill;
         this.logger = logger;
-        this.pool = RedisPoolBuilder.fromCredentials(credentials);
+        this.pool = pool;
+        this.writer = new Thread(this::write, "Votifier Redis Forwarding Source");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * @param spill Where to keep votes that cannot be published right away, or null to drop them
+     */
+    public RedisForwardingVoteSource(RedisCredentials credentials, VoteCodec.Format format, VoteCache spill, LoggingAdapter logger) {
+        this(credentials, format, RedisVoteRouter.broadcast(credentials.getChannel()), spill, logger);
+    }
+
+    public RedisForwardingVoteSource(RedisCredentials credentials, VoteCodec.Format format, LoggingAdapter logger) {
+        this(credentials, format, null, logger);
+    }
+
+    public RedisForwardingVoteSource(RedisCredentials credentials, LoggingAdapter logger) {
+        this(credentials, VoteCodec.Format.JSON, logger);
     }
 
     @Override
     public void init() {
-        /* noop */
+        writer.start();
     }
 
     @Override
     public void forward(Vote v) {
+        if (!running || !queue.offer(v)) {
+            spill(Collections.singletonList(v));
+        }
+    }
+
+    private void write() {
+        List<Vote> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        long backoff = 0;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                if (backoff > 0) {
+                    Thread.sleep(backoff);
+                }
+
+                Vote first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    linger(batch);
+                }
+            } catch (InterruptedException e) {
+                // Halting, publish whatever is left below.
+                queue.drainTo(batch);
+            }
+
+            if (batch.isEmpty() && !hasSpilled()) {
+                continue;
+            }
+
+            if (publish(batch) && publishSpilled()) {
+                backoff = 0;
+            } else {
+                backoff = Math.min(MAX_BACKOFF_MILLIS, Math.max(100, backoff * 2));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Adds whatever else arrives within the linger window, up to a full batch.
+     */
+    private void linger(List<Vote> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MILLIS);
+        while (batch.size() < MAX_BATCH_SIZE) {
+            queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= MAX_BATCH_SIZE || remaining <= 0) {
+                return;
+            }
+
+            Vote next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Publishes the votes in a single pipeline, spilling them if that fails.
+     */
+    private boolean publish(List<Vote> votes) {
+        return publish(votes, router);
+    }
+
+    private boolean publish(List<Vote> votes, RedisVoteRouter router) {
+        if (votes.isEmpty()) {
+            return true;
+        }
+
+        VotifierMetrics metrics = VotifierMetrics.global();
+        long start = System.nanoTime();
+        List<Vote> unheard = new ArrayList<>();
         try (Jedis jedis = pool.getResource()) {
-            jedis.publish(credentials.getChannel(), GsonInst.GSON.toJson(v.serialize()));
+            Pipeline pipeline = jedis.pipelined();
+            List<String> channels = new ArrayList<>(votes.size());
+            List<Response<Long>> receivers = new ArrayList<>(votes.size());
+            for (Vote vote : votes) {
+                String channel = router.route(vote);
+                channels.add(channel);
+                receivers.add(append(pipeline, vote, channel));
+            }
+            pipeline.sync();
+            metrics.histogram(VotifierMetrics.forward(getTransport())).record(System.nanoTime() - start, votes.size());
+
+            for (int i = 0; i < votes.size(); i++) {
+                if (isUnheard(channels.get(i), receivers.get(i))) {
+                    unheard.add(votes.get(i));
+                }
+            }
+        } catch (RuntimeException ex) {
+            metrics.counter(VotifierMetrics.forwardFailed(getTransport())).add(votes.size());
+            logger.error("Unable to publish " + votes.size() + " vote(s) to Redis", ex);
+            spill(votes);
+            return false;
+        }
+
+        return publish(unheard, fallbackRouter);
+    }
+
+    /**
+     * Whether a vote was published to a channel of its own that no server is subscribed to, warning about the
+     * channel the first time.
+     */
+    private boolean isUnheard(String channel, Response<Long> receivers) {
+        if (receivers == null || receivers.get() > 0 || channel.equals(credentials.getChannel())) {
+            return false;
+        }
+
+        if (unheardChannels.add(channel)) {
+            logger.warn("No server is subscribed to Redis channel " + channel + ", votes routed there are published to "
+                    + credentials.getChannel() + " instead.");
+        }
+        return true;
+    }
+
+    /**
+     * Gets the name this transport is recorded under in {@link VotifierMetrics}.
+     */
+    protected String getTransport() {
+        return "redis";
+    }
+
+    /**
+     * Adds the command that publishes a single vote to the pipeline. Only called from the writer thread.
+     *
+     * @param channel The channel the vote was routed to
+     * @return How many subscribers received the vote, once the pipeline is synced, or null if that does not
+     * matter because votes are kept until someone reads them
+     */
+    protected Response<Long> append(Pipeline pipeline, Vote vote, String channel) {
+        if (format == VoteCodec.Format.JSON) {
+            JsonObject object = vote.serialize();
+            object.addProperty(SOURCE_FIELD, source);
+            object.addProperty(SEQUENCE_FIELD, sequences.merge(channel, 1L, Long::sum));
+            return pipeline.publish(channel, GsonInst.GSON.toJson(object));
+        } else {
+            return pipeline.publish(channel.getBytes(StandardCharsets.UTF_8), format.encode(Collections.singletonList(vote)));
+        }
+    }
+
+    private boolean hasSpilled() {
+        return spill != null && spill.getCachedServers().contains(credentials.getChannel());
+    }
+
+    /**
+     * Publishes the votes spilled earlier, now that Redis can be reached.
+     */
+    private boolean publishSpilled() {
+        if (!hasSpilled()) {
+            return true;
+        }
+
+        List<Vote> spilled = new ArrayList<>(spill.evict(credentials.getChannel()));
+        for (int i = 0; i < spilled.size(); i += MAX_BATCH_SIZE) {
+            if (!publish(spilled.subList(i, Math.min(spilled.size(), i + MAX_BATCH_SIZE)))) {
+                // The rest go back as well.
+                spill(spilled.subList(Math.min(spilled.size(), i + MAX_BATCH_SIZE), spilled.size()));
+                return false;
+            }
+        }
+
+        logger.info("Published " + spilled.size() + " vote(s) held while Redis could not be reached.");
+        return true;
+    }
+
+    private void spill(Collection<Vote> votes) {
+        if (spill == null) {
+            logger.error("Could not publish " + votes.size() + " vote(s) to Redis, they will be lost!");
+            return;
+        }
+
+        for (Vote vote : votes) {
+            spill.addToCache(vote, credentials.getChannel());
         }
     }
 
     @Override
     public void halt() {
+        running = false;
+        writer.interrupt();
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(HALT_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (spill != null) {
+            // Whatever the writer could not publish is in there now.
+            try {
+                spill.halt();
+            } catch (IOException e) {
+                logger.error("Unable to save the votes held for Redis, they will be lost.", e);
+            }
+        }
+
         try {
             pool.destroy();
         } catch (Exception ex) {
@@ -0,0 +1,263 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+import com.vexsoftware.votifier.support.forwarding.ForwardedVoteListener;
+import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSink;
+import com.vexsoftware.votifier.util.redis.RedisPoolBuilder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives votes added to a Redis stream by {@link RedisStreamForwardingVoteSource}.
+ * <p>
+ * Each backend server reads the stream with a consumer group of its own, so every server receives every
+ * vote, and the group remembers how far the server got while it is down. Entries are acknowledged once the
+ * vote is handled. On startup, entries that were delivered but never acknowledged, whether to this server
+ * before it restarted or to another consumer of the group that has been idle for a while, are handled first.
+ */
+public class RedisStreamForwardingSink implements ForwardingVoteSink {
+
+    private static final int BATCH_SIZE = 128;
+    private static final int BLOCK_MILLIS = 1000;
+    private static final long CLAIM_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    /**
+     * The group earlier configurations shipped with. Every server that kept it would share one group, and each vote
+     * would only reach one of them.
+     */
+    private static final String SHARED_DEFAULT_GROUP = "server";
+
+    private final String stream;
+    private final String group;
+    private final String consumer;
+    private final ForwardedVoteListener listener;
+    private final LoggingAdapter logger;
+    private final JedisPool pool;
+    private final Queue<StreamEntryID> handled = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param group    The consumer group, which must be different for every backend server
+     * @param consumer The name of this server within the group, which should stay the same across restarts, or
+     *                 null or empty to use the group name
+     * @throws IllegalArgumentException If the group is not set, or is the one shared by default in earlier versions
+     */
+    public RedisStreamForwardingSink(RedisCredentials credentials, String group, String consumer,
+                                     ForwardedVoteListener listener, LoggingAdapter logger) {
+        this(credentials.getChannel(), checkGroup(group), consumer == null || consumer.isEmpty() ? group : consumer,
+                RedisPoolBuilder.fromCredentials(credentials), listener, logger);
+    }
+
+    RedisStreamForwardingSink(String stream, String group, String consumer, JedisPool pool,
+                              ForwardedVoteListener listener, LoggingAdapter logger) {
+        this.pool = pool;
+        this.stream = stream;
+        this.group = group;
+        this.consumer = consumer;
+        this.listener = listener;
+        this.logger = logger;
+    }
+
+    private static String checkGroup(String group) {
+        if (group == null || group.trim().isEmpty() || group.equals(SHARED_DEFAULT_GROUP)) {
+            throw new IllegalArgumentException("The Redis stream transport needs a consumer 'group' unique to this "
+                    + "server, such as its name on the proxy. Servers sharing a group would each only receive some of "
+                    + "the votes.");
+        }
+
+        return group;
+    }
+
+    @Override
+    public void init() throws RuntimeException {
+        this.running = true;
+        this.thread = new Thread(this::read, "Votifier Redis Stream Forwarding Sink");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void read() {
+        boolean recovered = false;
+        long backoff = 0;
+
+        while (running) {
+            try (Jedis jedis = pool.getResource()) {
+                createGroup(jedis);
+                if (!recovered) {
+                    recover(jedis);
+                    recovered = true;
+                }
+
+                backoff = 0;
+                while (running) {
+                    acknowledge(jedis);
+
+                    List<Map.Entry<String, List<StreamEntry>>> read = jedis.xreadGroup(group, consumer,
+                            XReadGroupParams.xReadGroupParams().count(BATCH_SIZE).block(BLOCK_MILLIS),
+                            Collections.singletonMap(stream, StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY));
+                    if (read != null) {
+                        for (Map.Entry<String, List<StreamEntry>> entries : read) {
+                            entries.getValue().forEach(this::handle);
+                        }
+                    }
+                }
+
+                acknowledge(jedis);
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    break;
+                }
+
+                backoff = Math.min(MAX_BACKOFF_MILLIS, Math.max(1000, backoff * 2));
+                logger.error("Lost connection to the Redis stream, retrying in " + backoff + " ms", ex);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void createGroup(Jedis jedis) {
+        try {
+            // Only votes added from now on, the stream may hold votes from long before this server used it.
+            jedis.xgroupCreate(stream, group, StreamEntryID.XGROUP_LAST_ENTRY, true);
+            logger.info("Created consumer group '" + group + "' for Redis stream '" + stream + "'.");
+        } catch (JedisDataException ex) {
+            if (ex.getMessage() == null || !ex.getMessage().startsWith("BUSYGROUP")) {
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Handles the entries that were delivered before but never acknowledged.
+     */
+    private void recover(Jedis jedis) {
+        int recovered = 0;
+
+        // Ours, from before a restart. Reading from 0 returns them instead of new entries.
+        StreamEntryID after = new StreamEntryID();
+        while (true) {
+            List<Map.Entry<String, List<StreamEntry>>> read = jedis.xreadGroup(group, consumer,
+                    XReadGroupParams.xReadGroupParams().count(BATCH_SIZE), Collections.singletonMap(stream, after));
+            List<StreamEntry> entries = read == null || read.isEmpty() ? Collections.emptyList() : read.get(0).getValue();
+            if (entries.isEmpty()) {
+                break;
+            }
+
+            for (StreamEntry entry : entries) {
+                handle(entry);
+                after = entry.getID();
+            }
+            recovered += entries.size();
+        }
+
+        // Those of other consumers in the group, which have not come back for them.
+        StreamEntryID start = new StreamEntryID();
+        do {
+            Map.Entry<StreamEntryID, List<StreamEntry>> claimed = jedis.xautoclaim(stream, group, consumer,
+                    CLAIM_IDLE_MILLIS, start, new XAutoClaimParams().count(BATCH_SIZE));
+            for (StreamEntry entry : claimed.getValue()) {
+                handle(entry);
+            }
+
+            recovered += claimed.getValue().size();
+            start = claimed.getKey();
+        } while (!start.equals(new StreamEntryID()));
+
+        if (recovered > 0) {
+            logger.info("Recovered " + recovered + " vote(s) from Redis stream '" + stream + "' that were not acknowledged.");
+        }
+    }
+
+    private void handle(StreamEntry entry) {
+        StreamEntryID id = entry.getID();
+        Map<String, String> fields = entry.getFields();
+        String data = fields == null ? null : fields.get(RedisStreamForwardingVoteSource.VOTE_FIELD);
+        if (data == null) {
+            // Trimmed or malformed, there is nothing to handle.
+            handled.add(id);
+            return;
+        }
+
+        List<Vote> votes;
+        try {
+            votes = VoteCodec.decode(data.getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException ex) {
+            // Reading it again won't help.
+            logger.error("Failed to handle Redis stream entry " + id, ex);
+            handled.add(id);
+            return;
+        }
+
+        for (Vote vote : votes) {
+            listener.onForward(vote, () -> handled.add(id));
+        }
+    }
+
+    /**
+     * Acknowledges the entries whose votes were handled since the last call.
+     */
+    private void acknowledge(Jedis jedis) {
+        if (handled.isEmpty()) {
+            return;
+        }
+
+        List<StreamEntryID> ids = new ArrayList<>();
+        StreamEntryID id;
+        while ((id = handled.poll()) != null) {
+            ids.add(id);
+        }
+
+        try {
+            jedis.xack(stream, group, ids.toArray(new StreamEntryID[0]));
+        } catch (RuntimeException ex) {
+            // Try again with the next ones.
+            handled.addAll(ids);
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops reading the stream, and acknowledges the entries whose votes were handled until now. Votes handed to
+     * the listener but only handled after this are not acknowledged, and are delivered again on the next start,
+     * so the listener must handle, or give up on, the votes it is still holding before this is called.
+     */
+    @Override
+    public void halt() {
+        running = false;
+        try {
+            // The reader wakes up from its blocking read on its own, and acknowledges what it can.
+            thread.join(BLOCK_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            pool.destroy();
+        } catch (Exception ex) {
+            logger.error("Failed to destroy Redis pool", ex);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
+import com.vexsoftware.votifier.util.gson.GsonInst;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.XAddParams;
+
+import java.util.Collections;
+
+/**
+ * Adds votes to a Redis stream, named after the configured channel, instead of publishing them.
+ * <p>
+ * Unlike a channel, a stream keeps its entries, so backend servers that are down receive the votes they
+ * missed once they are back. Each backend server reads the stream with its own consumer group, see
+ * {@link RedisStreamForwardingSink}. The stream is trimmed to roughly {@code maxLength} entries.
+ */
+public class RedisStreamForwardingVoteSource extends RedisForwardingVoteSource {
+
+    /**
+     * The field of each stream entry that holds the vote, as JSON.
+     */
+    static final String VOTE_FIELD = "vote";
+
+    public static final long DEFAULT_MAX_LENGTH = 10000;
+
+    private final String stream;
+    private final XAddParams params;
+
+    /**
+     * @param maxLength How many entries the stream keeps, roughly
+     * @param spill     Where to keep votes that cannot be added right away, or null to drop them
+     */
+    public RedisStreamForwardingVoteSource(RedisCredentials credentials, long maxLength, VoteCache spill, LoggingAdapter logger) {
+        super(credentials, VoteCodec.Format.JSON, spill, logger);
+        this.stream = credentials.getChannel();
+        this.params = XAddParams.xAddParams().maxLen(maxLength).approximateTrimming();
+    }
+
+    @Override
+    protected String getTransport() {
+        return "redis-stream";
+    }
+
+    @Override
+    protected Response<Long> append(Pipeline pipeline, Vote vote, String channel) {
+        pipeline.xadd(stream, params, Collections.singletonMap(VOTE_FIELD, GsonInst.GSON.toJson(vote.serialize())));
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import com.vexsoftware.votifier.model.Vote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Picks the Redis channel each vote is published to.
+ * <p>
+ * Besides the configured channel, which every backend server subscribes to, votes may be published to a
+ * channel of a single backend server, named {@code <channel>:server:<name>}, or to one of a fixed number of
+ * shards, named {@code <channel>:shard:<n>}. Backend servers then only receive, and decode, the votes meant
+ * for them.
+ */
+public interface RedisVoteRouter {
+
+    /**
+     * Gets the channel to publish the vote to. May be called from any thread.
+     */
+    String route(Vote vote);
+
+    /**
+     * Publishes every vote to the channel itself.
+     */
+    static RedisVoteRouter broadcast(String channel) {
+        return vote -> channel;
+    }
+
+    /**
+     * Spreads votes over a number of shards by username, so all the votes of a player end up on the same shard.
+     */
+    static RedisVoteRouter sharded(String channel, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+
+        return vote -> shardChannel(channel, shardOf(vote.getUsername(), shards));
+    }
+
+    /**
+     * Publishes votes to the channel of the server the player is on. Votes of players who are not online go to
+     * the fallback server, or to every server if there is none.
+     *
+     * @param playerServer Finds the server a player is on, by username
+     * @param fallback     The server to send votes of players who are not online to, or null
+     */
+    static RedisVoteRouter perServer(String channel, Function<String, Optional<String>> playerServer, String fallback) {
+        return vote -> {
+            Optional<String> server = playerServer.apply(vote.getUsername());
+            if (server.isPresent()) {
+                return serverChannel(channel, server.get());
+            }
+
+            return fallback == null || fallback.isEmpty() ? channel : serverChannel(channel, fallback);
+        };
+    }
+
+    /**
+     * Looks up a router by the name used in the configuration, ignoring case.
+     *
+     * @param name         {@code broadcast}, {@code server} or {@code shard}
+     * @param shards       How many shards to use, for {@code shard}
+     * @param playerServer Finds the server a player is on, for {@code server}
+     * @param fallback     Where votes of players who are not online go, for {@code server}, or null
+     * @throws IllegalArgumentException If no router has that name
+     */
+    static RedisVoteRouter fromName(String name, String channel, int shards,
+                                    Function<String, Optional<String>> playerServer, String fallback) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "broadcast":
+                return broadcast(channel);
+            case "server":
+                return perServer(channel, playerServer, fallback);
+            case "shard":
+                return sharded(channel, shards);
+            default:
+                throw new IllegalArgumentException("Unknown Redis routing '" + name + "'");
+        }
+    }
+
+    /**
+     * Gets the channels a backend server subscribes to besides the channel itself.
+     *
+     * @param server The name of the server on the proxy, or null or empty if it does not have a channel
+     * @param shards The shards the server handles
+     */
+    static List<String> subscriptions(String channel, String server, Collection<Integer> shards) {
+        List<String> channels = new ArrayList<>();
+        if (server != null && !server.isEmpty()) {
+            channels.add(serverChannel(channel, server));
+        }
+        for (int shard : shards) {
+            channels.add(shardChannel(channel, shard));
+        }
+        return channels;
+    }
+
+    static String serverChannel(String channel, String server) {
+        return channel + ":server:" + server;
+    }
+
+    static String shardChannel(String channel, int shard) {
+        return channel + ":shard:" + shard;
+    }
+
+    /**
+     * Gets the shard of a player. This only depends on the username, ignoring case, so it is the same on every proxy.
+     */
+    static int shardOf(String username, int shards) {
+        return Math.floorMod(username.toLowerCase(Locale.ROOT).hashCode(), shards);
+    }
+}
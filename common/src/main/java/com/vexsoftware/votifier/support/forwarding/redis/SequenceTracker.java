@@ -0,0 +1,44 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the last sequence number seen from each publisher, to tell how many messages were missed in between.
+ * <p>
+ * Every publisher numbers its messages from 1 and picks a new source ID whenever it starts, so a gap between
+ * two numbers of the same source means messages were published that never arrived, usually while the
+ * subscriber was reconnecting. Only the most recently seen sources are remembered.
+ */
+final class SequenceTracker {
+
+    private static final int MAX_SOURCES = 64;
+
+    private final Map<String, Long> lastSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_SOURCES;
+        }
+    };
+
+    /**
+     * Records a message.
+     *
+     * @return How many messages of the source were skipped since the last one seen, or 0 if the source is new
+     *         or the message arrived late
+     */
+    synchronized long track(String source, long sequence) {
+        Long last = lastSeen.get(source);
+        if (last == null) {
+            lastSeen.put(source, sequence);
+            return 0;
+        }
+
+        if (sequence <= last) {
+            return 0;
+        }
+
+        lastSeen.put(source, sequence);
+        return sequence - last - 1;
+    }
+}
@@ -0,0 +1,79 @@
+package com.vexsoftware.votifier.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value);
+            }
+        }
+
+        for (int bucket = 1; bucket <= LatencyHistogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            long lowest = LatencyHistogram.highestValueOf(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucketOf(lowest));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueOf(bucket)));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(50500, snapshot.getMean(), 0.001);
+        assertEquals(100000, snapshot.getMax());
+
+        long p50 = snapshot.getValueAtPercentile(50);
+        assertTrue(p50 >= 50000 && p50 <= 50000 * 1.125, "p50 was " + p50);
+        long p99 = snapshot.getValueAtPercentile(99);
+        assertTrue(p99 >= 99000 && p99 <= 100000, "p99 was " + p99);
+        assertEquals(100000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testEmptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+        assertEquals(0, histogram.snapshot().getMean());
+
+        histogram.record(-5);
+        histogram.record(10, 0);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+    }
+
+    @Test
+    public void testRecordSeveralTimes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(200, 3);
+        histogram.record(1000);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(4, snapshot.getCount());
+        assertEquals(400, snapshot.getMean(), 0.001);
+        assertTrue(snapshot.getValueAtPercentile(75) < 1000);
+        assertEquals(1000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testRegistryReusesMetrics() {
+        VotifierMetrics metrics = new VotifierMetrics();
+        assertSame(metrics.histogram(VotifierMetrics.DECODE_V2), metrics.histogram(VotifierMetrics.DECODE_V2));
+        metrics.counter(VotifierMetrics.forwardFailed("redis")).add(2);
+        assertEquals(2, metrics.getCounters().get("forward.redis.failed").get());
+    }
+}
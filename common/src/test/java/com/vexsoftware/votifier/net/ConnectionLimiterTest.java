@@ -0,0 +1,139 @@
+package com.vexsoftware.votifier.net;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Connects from a real address, as {@link EmbeddedChannel}'s own is not limited per address.
+     */
+    private static EmbeddedChannel connectFrom(String host, ConnectionLimiter limiter) {
+        InetSocketAddress address = new InetSocketAddress(host, 40000);
+        return new EmbeddedChannel(limiter) {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return address;
+            }
+        };
+    }
+
+    @Test
+    public void testTokenBucket() {
+        ConnectionLimiter.TokenBucket bucket = new ConnectionLimiter.TokenBucket(3, 2, 0);
+
+        // The burst is available straight away.
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+
+        // Then two per second.
+        assertTrue(bucket.tryAcquire(SECOND / 2));
+        assertFalse(bucket.tryAcquire(SECOND / 2));
+        assertFalse(bucket.isFull(SECOND));
+        assertTrue(bucket.isFull(SECOND * 3));
+    }
+
+    @Test
+    public void testMaxConnections() {
+        ConnectionLimiter limiter = new ConnectionLimiter(VotifierServerSettings.builder().maxConnections(2).build());
+
+        EmbeddedChannel first = new EmbeddedChannel(limiter);
+        EmbeddedChannel second = new EmbeddedChannel(limiter);
+        assertTrue(first.isOpen());
+        assertTrue(second.isOpen());
+
+        EmbeddedChannel third = new EmbeddedChannel(limiter);
+        assertFalse(third.isOpen());
+        assertEquals(1, limiter.getRejectedConnections());
+
+        // Once a connection closes, there is room for a new one.
+        first.close();
+        assertEquals(1, limiter.getOpenConnections());
+        EmbeddedChannel fourth = new EmbeddedChannel(limiter);
+        assertTrue(fourth.isOpen());
+
+        second.close();
+        fourth.close();
+        assertEquals(0, limiter.getOpenConnections());
+    }
+
+    @Test
+    public void testRejectedConnectionIsNotGreeted() {
+        ConnectionLimiter limiter = new ConnectionLimiter(VotifierServerSettings.builder().maxConnections(1).build());
+        EmbeddedChannel first = new EmbeddedChannel(limiter);
+
+        AtomicBoolean active = new AtomicBoolean();
+        EmbeddedChannel second = new EmbeddedChannel(limiter, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) {
+                active.set(true);
+            }
+        });
+
+        assertFalse(second.isOpen());
+        assertFalse(active.get());
+        first.close();
+    }
+
+    @Test
+    public void testIdleConnectionIsClosed() {
+        ConnectionLimiter limiter = new ConnectionLimiter(VotifierServerSettings.defaults());
+        EmbeddedChannel channel = new EmbeddedChannel(limiter);
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT);
+        assertFalse(channel.isOpen());
+        assertEquals(0, limiter.getOpenConnections());
+    }
+
+    @Test
+    public void testConnectionTimeout() throws InterruptedException {
+        ConnectionLimiter limiter = new ConnectionLimiter(VotifierServerSettings.builder().connectionTimeout(1).build());
+        EmbeddedChannel channel = new EmbeddedChannel(limiter);
+        assertTrue(channel.isOpen());
+
+        Thread.sleep(1100);
+        channel.runScheduledPendingTasks();
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testNoLimitsByDefault() {
+        ConnectionLimiter limiter = new ConnectionLimiter(VotifierServerSettings.defaults(), () -> 0);
+
+        // A burst from a single address, such as a proxy forwarding votes, is let through.
+        for (int i = 0; i < 500; i++) {
+            assertTrue(connectFrom("127.0.0.1", limiter).isOpen());
+        }
+        assertEquals(0, limiter.getRejectedConnections());
+    }
+
+    @Test
+    public void testConnectionsPerIp() {
+        ConnectionLimiter limiter = new ConnectionLimiter(VotifierServerSettings.builder()
+                .connectionsPerSecondPerIp(1)
+                .connectionBurstPerIp(2)
+                .build(), () -> 0);
+
+        assertTrue(connectFrom("10.0.0.1", limiter).isOpen());
+        assertTrue(connectFrom("10.0.0.1", limiter).isOpen());
+        assertFalse(connectFrom("10.0.0.1", limiter).isOpen());
+
+        // Other addresses have a bucket of their own.
+        assertTrue(connectFrom("10.0.0.2", limiter).isOpen());
+        assertEquals(1, limiter.getRejectedConnections());
+    }
+}
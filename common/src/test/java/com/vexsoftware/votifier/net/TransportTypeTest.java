@@ -0,0 +1,35 @@
+package com.vexsoftware.votifier.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransportTypeTest {
+
+    @Test
+    public void testFromName() {
+        assertEquals(TransportType.AUTO, TransportType.fromName(null));
+        assertEquals(TransportType.AUTO, TransportType.fromName("auto"));
+        assertEquals(TransportType.NIO, TransportType.fromName("nio"));
+        assertEquals(TransportType.EPOLL, TransportType.fromName("Epoll"));
+        assertEquals(TransportType.IO_URING, TransportType.fromName("io_uring"));
+        assertEquals(TransportType.IO_URING, TransportType.fromName("io-uring"));
+        assertEquals(TransportType.IO_URING, TransportType.fromName("iouring"));
+        assertThrows(IllegalArgumentException.class, () -> TransportType.fromName("kqueue"));
+    }
+
+    @Test
+    public void testAutoResolvesToAvailableTransport() {
+        TransportType resolved = TransportType.AUTO.resolve();
+        assertNotEquals(TransportType.AUTO, resolved);
+        assertTrue(resolved.isAvailable());
+        assertNotNull(resolved.getServerChannelClass());
+    }
+
+    @Test
+    public void testAutoUsesResolvedTransport() {
+        TransportType resolved = TransportType.AUTO.resolve();
+        assertEquals(resolved.getServerChannelClass(), TransportType.AUTO.getServerChannelClass());
+        assertEquals(resolved.getSocketChannelClass(), TransportType.AUTO.getSocketChannelClass());
+    }
+}
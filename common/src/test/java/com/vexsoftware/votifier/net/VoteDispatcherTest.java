@@ -0,0 +1,73 @@
+package com.vexsoftware.votifier.net;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import com.vexsoftware.votifier.util.QuietException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VoteDispatcherTest {
+
+    @Test
+    public void testVotesAreHandledInOrderPerPlayer() throws Exception {
+        List<Vote> received = Collections.synchronizedList(new ArrayList<>());
+        VoteDispatcher dispatcher = new VoteDispatcher(new TestVotifierPlugin() {
+            @Override
+            public void onVoteReceived(Vote vote, VotifierSession.ProtocolVersion protocolVersion, String remoteAddress) {
+                received.add(vote);
+            }
+        }, 4, 256, 8);
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.onVoteReceived(new Vote("Test", "player" + (i % 5), "127.0.0.1", Integer.toString(i)),
+                    VotifierSession.ProtocolVersion.TWO, "127.0.0.1");
+        }
+
+        // Shutting down waits for the queued votes.
+        dispatcher.shutdown();
+        assertEquals(100, received.size());
+
+        for (int player = 0; player < 5; player++) {
+            String username = "player" + player;
+            long last = -1;
+            for (Vote vote : received) {
+                if (vote.getUsername().equals(username)) {
+                    long timestamp = Long.parseLong(vote.getTimestamp());
+                    assertTrue(timestamp > last);
+                    last = timestamp;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFullQueueRejectsVotes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VoteDispatcher dispatcher = new VoteDispatcher(new TestVotifierPlugin() {
+            @Override
+            public void onVoteReceived(Vote vote, VotifierSession.ProtocolVersion protocolVersion, String remoteAddress) throws Exception {
+                started.countDown();
+                release.await();
+            }
+        }, 1, 1, 1);
+
+        Vote vote = new Vote("Test", "test", "127.0.0.1", "0");
+        dispatcher.onVoteReceived(vote, VotifierSession.ProtocolVersion.TWO, "127.0.0.1");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The consumer is busy: one vote fits in the queue, the next one is rejected.
+        dispatcher.onVoteReceived(vote, VotifierSession.ProtocolVersion.TWO, "127.0.0.1");
+        assertThrows(QuietException.class, () -> dispatcher.onVoteReceived(vote, VotifierSession.ProtocolVersion.TWO, "127.0.0.1"));
+
+        release.countDown();
+        dispatcher.shutdown();
+    }
+}
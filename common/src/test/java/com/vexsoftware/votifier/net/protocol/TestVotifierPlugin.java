@@ -4,6 +4,7 @@ import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
 import com.vexsoftware.votifier.util.KeyCreator;
 import io.netty.channel.Channel;
@@ -19,6 +20,7 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class TestVotifierPlugin implements VotifierPlugin {
     private static final byte[] PUBLIC_KEY;
@@ -42,12 +44,77 @@ public class TestVotifierPlugin implements VotifierPlugin {
 
     public static final TestVotifierPlugin I = new TestVotifierPlugin();
 
+    /**
+     * Never runs anything, for code that only schedules housekeeping. The default.
+     */
+    public static final VotifierScheduler NO_OP_SCHEDULER = new VotifierScheduler() {
+        @Override
+        public ScheduledVotifierTask delayedOnPool(Runnable runnable, int delay, TimeUnit unit) {
+            return () -> {};
+        }
+
+        @Override
+        public ScheduledVotifierTask repeatOnPool(Runnable runnable, int delay, int repeat, TimeUnit unit) {
+            return () -> {};
+        }
+    };
+
+    /**
+     * Runs delayed tasks straight away, on the calling thread, and never runs repeating ones.
+     */
+    public static final VotifierScheduler INLINE_SCHEDULER = new VotifierScheduler() {
+        @Override
+        public ScheduledVotifierTask delayedOnPool(Runnable runnable, int delay, TimeUnit unit) {
+            runnable.run();
+            return () -> {};
+        }
+
+        @Override
+        public ScheduledVotifierTask repeatOnPool(Runnable runnable, int delay, int repeat, TimeUnit unit) {
+            return () -> {};
+        }
+    };
+
     public static TestVotifierPlugin getI() {
         return I;
     }
 
+    /**
+     * Drops every message, so code that logs while under test does not need a platform.
+     */
+    public static final LoggingAdapter QUIET_LOGGER = new LoggingAdapter() {
+        @Override
+        public void error(String s) {
+        }
+
+        @Override
+        public void error(String s, Object... o) {
+        }
+
+        @Override
+        public void error(String s, Throwable e, Object... o) {
+        }
+
+        @Override
+        public void warn(String s) {
+        }
+
+        @Override
+        public void warn(String s, Object... o) {
+        }
+
+        @Override
+        public void info(String s) {
+        }
+
+        @Override
+        public void info(String s, Object... o) {
+        }
+    };
+
     private final Map<String, Key> keyMap = new HashMap<>();
     private final KeyPair keyPair;
+    private VotifierScheduler scheduler = NO_OP_SCHEDULER;
 
     public TestVotifierPlugin() {
         try {
@@ -77,12 +144,17 @@ public class TestVotifierPlugin implements VotifierPlugin {
 
     @Override
     public LoggingAdapter getPluginLogger() {
-        return null;
+        return QUIET_LOGGER;
     }
 
     @Override
     public VotifierScheduler getScheduler() {
-        return null;
+        return scheduler;
+    }
+
+    public TestVotifierPlugin withScheduler(VotifierScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
     }
 
     @Override
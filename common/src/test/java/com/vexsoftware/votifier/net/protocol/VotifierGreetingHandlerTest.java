@@ -0,0 +1,45 @@
+package com.vexsoftware.votifier.net.protocol;
+
+import com.vexsoftware.votifier.net.VotifierSession;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VotifierGreetingHandlerTest {
+
+    private static String readGreeting(VotifierSession session) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.attr(VotifierSession.KEY).set(session);
+        channel.pipeline().addLast(VotifierGreetingHandler.INSTANCE);
+        channel.pipeline().fireChannelActive();
+
+        StringBuilder greeting = new StringBuilder();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            greeting.append(buf.toString(StandardCharsets.UTF_8));
+            buf.release();
+        }
+
+        assertFalse(channel.finish());
+        return greeting.toString();
+    }
+
+    @Test
+    public void testGreeting() {
+        VotifierSession session = new VotifierSession();
+        assertEquals("VOTIFIER 2 " + session.getChallenge() + "\n", readGreeting(session));
+    }
+
+    @Test
+    public void testSharedPrefixIsNotConsumed() {
+        // The constant part is written from a shared buffer, every connection must still get all of it.
+        for (int i = 0; i < 3; i++) {
+            VotifierSession session = new VotifierSession();
+            assertEquals("VOTIFIER 2 " + session.getChallenge() + "\n", readGreeting(session));
+        }
+    }
+}
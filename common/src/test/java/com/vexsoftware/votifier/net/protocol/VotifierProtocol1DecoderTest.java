@@ -16,6 +16,8 @@ import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -82,4 +84,49 @@ public class VotifierProtocol1DecoderTest {
         assertThrows(DecoderException.class, ()->channel.writeInbound(encryptedByteBuf));
         channel.close();
     }
+
+    @Test
+    public void testSuccessfulDecodeOnCryptoExecutor() throws Exception {
+        Vote votePojo = new Vote("Test", "test", "test", "test");
+
+        EmbeddedChannel channel = new EmbeddedChannel(new VotifierProtocol1Decoder(Runnable::run));
+        channel.attr(VotifierSession.KEY).set(SESSION);
+        channel.attr(VotifierPlugin.KEY).set(TestVotifierPlugin.getI());
+
+        // The vote is handed back to the event loop, which runs its pending tasks as part of the write.
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(VoteUtil.encodePOJOv1(votePojo))));
+        assertEquals(votePojo, channel.readInbound());
+        assertNull(channel.pipeline().get(VotifierProtocol1Decoder.class));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFailureDecodeOnCryptoExecutor() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new VotifierProtocol1Decoder(Runnable::run));
+        channel.attr(VotifierSession.KEY).set(SESSION);
+        channel.attr(VotifierPlugin.KEY).set(TestVotifierPlugin.getI());
+
+        byte[] encrypted = RSA.encrypt("TEST\nTest\ntest\ntest\ntest\n".getBytes(StandardCharsets.UTF_8),
+                TestVotifierPlugin.getI().getProtocolV1Key().getPublic());
+
+        assertThrows(DecoderException.class, () -> channel.writeInbound(Unpooled.wrappedBuffer(encrypted)));
+        channel.close();
+    }
+
+    @Test
+    public void testFailureCryptoExecutorFull() throws Exception {
+        Executor full = command -> {
+            throw new RejectedExecutionException();
+        };
+
+        EmbeddedChannel channel = new EmbeddedChannel(new VotifierProtocol1Decoder(full));
+        channel.attr(VotifierSession.KEY).set(SESSION);
+        channel.attr(VotifierPlugin.KEY).set(TestVotifierPlugin.getI());
+
+        byte[] encrypted = VoteUtil.encodePOJOv1(new Vote("Test", "test", "test", "test"));
+
+        DecoderException e = assertThrows(DecoderException.class, () -> channel.writeInbound(Unpooled.wrappedBuffer(encrypted)));
+        assertInstanceOf(QuietException.class, e.getCause());
+        channel.close();
+    }
 }
@@ -0,0 +1,209 @@
+package com.vexsoftware.votifier.net.protocol;
+
+import com.google.gson.JsonObject;
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.VotifierSession;
+import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.util.KeyCreator;
+import com.vexsoftware.votifier.util.gson.GsonInst;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.DecoderException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VotifierProtocol2StreamingDecoderTest {
+    private static final VotifierSession SESSION = new VotifierSession();
+
+    private EmbeddedChannel createChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel(new VotifierProtocol2StreamingDecoder());
+        channel.attr(VotifierSession.KEY).set(SESSION);
+        channel.attr(VotifierPlugin.KEY).set(TestVotifierPlugin.getI());
+        return channel;
+    }
+
+    private static String sign(String payload, Key key) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(key);
+        return Base64.getEncoder().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static boolean write(EmbeddedChannel channel, String message) {
+        return channel.writeInbound(Unpooled.copiedBuffer(message, StandardCharsets.UTF_8));
+    }
+
+    private void sendVote(Vote vote, Key key, boolean expectSuccess) throws Exception {
+        // Create a well-formed request
+        EmbeddedChannel channel = createChannel();
+
+        JSONObject object = new JSONObject();
+        JsonObject payload = vote.serialize();
+        payload.addProperty("challenge", SESSION.getChallenge());
+        String payloadEncoded = GsonInst.GSON.toJson(payload);
+        object.put("payload", payloadEncoded);
+        object.put("signature", sign(payloadEncoded, key));
+
+        if (expectSuccess) {
+            assertTrue(write(channel, object.toString()));
+            assertEquals(vote, channel.readInbound());
+            assertFalse(channel.finish());
+        } else {
+            try {
+                write(channel, object.toString());
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSuccessfulDecode() throws Exception {
+        sendVote(new Vote("Test", "test", "test", "0"), TestVotifierPlugin.getI().getTokens().get("default"), true);
+    }
+
+    @Test
+    public void testSuccessfulDecodeWithAdditionalData() throws Exception {
+        // The base64 padding gets escaped by Gson, and has to be unescaped again before verifying.
+        byte[] additionalData = "extra data for the listener!!".getBytes(StandardCharsets.UTF_8);
+        sendVote(new Vote("Test", "tést", "test", "1", additionalData),
+                TestVotifierPlugin.getI().getTokens().get("default"), true);
+    }
+
+    @Test
+    public void testSuccessfulDecodeEscapedEnvelope() throws Exception {
+        EmbeddedChannel channel = createChannel();
+
+        // Some sites escape forward slashes and non-ASCII characters.
+        String payload = "{\"serviceName\":\"Test\",\"username\":\"tést\",\"address\":\"a/b\","
+                + "\"timestamp\":1500,\"challenge\":\"" + SESSION.getChallenge() + "\",\"extra\":{\"a\":[1,2]}}";
+        String escaped = payload.replace("\"", "\\\"").replace("/", "\\/").replace("é", "\\u00e9");
+        String message = "{ \"signature\" : \"" + sign(payload, TestVotifierPlugin.getI().getTokens().get("default"))
+                + "\", \"payload\" : \"" + escaped + "\" }";
+
+        assertTrue(write(channel, message));
+        assertEquals(new Vote("Test", "tést", "a/b", "1500"), channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFailureDecodeBadPacket() {
+        // Create a well-formed request
+        EmbeddedChannel channel = createChannel();
+
+        Vote vote = new Vote("Test", "test", "test", "0");
+        JSONObject object = new JSONObject();
+        JsonObject payload = vote.serialize();
+        payload.addProperty("challenge", SESSION.getChallenge());
+        object.put("payload", GsonInst.GSON.toJson(payload));
+        // We "forget" the signature.
+
+        assertThrows(DecoderException.class, () -> write(channel, object.toString()));
+        channel.close();
+    }
+
+    @Test
+    public void testFailureDecodeMalformedJson() {
+        EmbeddedChannel channel = createChannel();
+        assertThrows(CorruptedFrameException.class, () -> write(channel, "{\"payload\": \"{\\\"serviceName\\\""));
+        channel.close();
+    }
+
+    @Test
+    public void testFailureDecodeBadVoteField() throws Exception {
+        // Create a well-formed request
+        EmbeddedChannel channel = createChannel();
+
+        Vote vote = new Vote("Test", "test", "test", "0");
+        JSONObject object = new JSONObject();
+        JsonObject payload = vote.serialize();
+        String payloadEncoded = GsonInst.GSON.toJson(payload);
+        // We "forget" the challenge.
+        object.put("payload", payloadEncoded);
+        object.put("signature", sign(payloadEncoded, TestVotifierPlugin.getI().getTokens().get("default")));
+
+        assertThrows(DecoderException.class, () -> write(channel, object.toString()));
+        channel.close();
+    }
+
+    @Test
+    public void testFailureDecodeBadChallenge() throws Exception {
+        // Create a well-formed request
+        EmbeddedChannel channel = createChannel();
+
+        Vote vote = new Vote("Test", "test", "test", "0");
+        JSONObject object = new JSONObject();
+        JsonObject payload = vote.serialize();
+        // We provide the wrong challenge.
+        payload.addProperty("challenge", "not a challenge for me");
+        String payloadEncoded = GsonInst.GSON.toJson(payload);
+        object.put("payload", payloadEncoded);
+        object.put("signature", sign(payloadEncoded, TestVotifierPlugin.getI().getTokens().get("default")));
+
+        assertThrows(DecoderException.class, () -> write(channel, object.toString()));
+        channel.close();
+    }
+
+    @Test
+    public void testFailureDecodeNonExistentKey() throws Exception {
+        TestVotifierPlugin.getI().specificKeysOnly();
+
+        Vote vote = new Vote("Bad Service", "test", "test", "0");
+
+        assertThrows(DecoderException.class, () -> sendVote(vote, TestVotifierPlugin.getI().getTokens().get("Test"), false));
+
+        TestVotifierPlugin.getI().restoreDefault();
+    }
+
+    @Test
+    public void testFailureDecodeBadSignature() {
+        Vote vote = new Vote("Bad Service", "test", "test", "0");
+        assertThrows(CorruptedFrameException.class, () -> sendVote(vote, KeyCreator.createKeyFrom("BadKey"), false));
+    }
+
+    private static String signedMessage(Vote vote, String challenge, boolean session) throws Exception {
+        JSONObject object = new JSONObject();
+        JsonObject payload = vote.serialize();
+        payload.addProperty("challenge", challenge);
+        if (session) {
+            payload.addProperty("session", true);
+        }
+        String payloadEncoded = GsonInst.GSON.toJson(payload);
+        object.put("payload", payloadEncoded);
+        object.put("signature", sign(payloadEncoded, TestVotifierPlugin.getI().getTokens().get("default")));
+        return object.toString();
+    }
+
+    @Test
+    public void testMultiVoteSession() throws Exception {
+        VotifierSession session = new VotifierSession();
+        session.setVersion(VotifierSession.ProtocolVersion.TWO);
+        EmbeddedChannel channel = new EmbeddedChannel(new VotifierProtocol2StreamingDecoder());
+        channel.attr(VotifierSession.KEY).set(session);
+        channel.attr(VotifierPlugin.KEY).set(TestVotifierPlugin.getI());
+
+        Vote first = new Vote("Test", "test", "test", "0");
+        assertTrue(write(channel, signedMessage(first, session.getChallenge(), true)));
+        assertEquals(first, channel.readInbound());
+        assertTrue(session.isMultiVote());
+        session.completeVote();
+
+        // Later votes are signed with the number of votes before them, and the decoder stays in the pipeline.
+        Vote second = new Vote("Test", "test", "test", "1");
+        assertTrue(write(channel, signedMessage(second, session.getChallenge() + ":1", false)));
+        assertEquals(second, channel.readInbound());
+        session.completeVote();
+
+        // A replayed vote is refused.
+        String replayed = signedMessage(second, session.getChallenge() + ":1", false);
+        assertThrows(DecoderException.class, () -> write(channel, replayed));
+        channel.close();
+    }
+}
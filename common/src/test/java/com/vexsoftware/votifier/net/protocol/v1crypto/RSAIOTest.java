@@ -0,0 +1,46 @@
+package com.vexsoftware.votifier.net.protocol.v1crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPrivateKeySpec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RSAIOTest {
+
+    @Test
+    public void testRecoversCrtParameters() throws Exception {
+        KeyPair keyPair = RSAKeygen.generate(2048);
+        RSAPrivateCrtKey original = (RSAPrivateCrtKey) keyPair.getPrivate();
+
+        // Strip the CRT parameters, like keys created by some other tools.
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        PrivateKey plain = keyFactory.generatePrivate(new RSAPrivateKeySpec(original.getModulus(), original.getPrivateExponent()));
+        assertFalse(plain instanceof RSAPrivateCrtKey);
+
+        PrivateKey recovered = RSAIO.withCrtParameters(keyFactory, keyPair.getPublic(), plain);
+        assertInstanceOf(RSAPrivateCrtKey.class, recovered);
+
+        RSAPrivateCrtKey crt = (RSAPrivateCrtKey) recovered;
+        assertEquals(original.getModulus(), crt.getPrimeP().multiply(crt.getPrimeQ()));
+        assertNotEquals(BigInteger.ONE, crt.getPrimeP());
+
+        byte[] message = "VOTE\nTest\ntest\ntest\n0\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] encrypted = RSA.encrypt(message, keyPair.getPublic());
+        assertArrayEquals(message, RSA.decrypt(encrypted, recovered));
+    }
+
+    @Test
+    public void testKeepsExistingCrtKey() throws Exception {
+        KeyPair keyPair = RSAKeygen.generate(2048);
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+
+        assertSame(keyPair.getPrivate(), RSAIO.withCrtParameters(keyFactory, keyPair.getPublic(), keyPair.getPrivate()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.vexsoftware.votifier.platform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackendServerCacheTest {
+
+    private static BackendServer wrap(String name) {
+        return new BackendServer() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public boolean sendPluginMessage(String channel, byte[] data) {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void testWrappersAreReused() {
+        AtomicInteger created = new AtomicInteger();
+        BackendServerCache<String> cache = new BackendServerCache<>(name -> {
+            created.incrementAndGet();
+            return wrap(name);
+        });
+
+        List<String> servers = new ArrayList<>(Arrays.asList("lobby", "survival"));
+        List<BackendServer> first = new ArrayList<>(cache.getAll(servers));
+        assertEquals(2, first.size());
+        assertSame(cache.getAll(servers), cache.getAll(new ArrayList<>(servers)));
+        assertSame(first.get(0), cache.get(servers.get(0)));
+        assertEquals(2, created.get());
+
+        // A new server only creates a wrapper for itself.
+        servers.add("creative");
+        List<BackendServer> second = new ArrayList<>(cache.getAll(servers));
+        assertEquals(3, second.size());
+        assertSame(first.get(0), second.get(0));
+        assertEquals(3, created.get());
+
+        servers.remove("survival");
+        assertEquals(2, cache.getAll(servers).size());
+        assertEquals(3, created.get());
+    }
+}
@@ -0,0 +1,59 @@
+package com.vexsoftware.votifier.support.forwarding;
+
+import com.vexsoftware.votifier.model.Vote;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeliveryWindowTest {
+
+    private static final Vote VOTE = new Vote("Test", "test", "127.0.0.1", "0");
+
+    @Test
+    public void testWindowLimitsDeliveriesInFlight() {
+        DeliveryWindow window = new DeliveryWindow(2, 1000, () -> 0);
+
+        Long first = window.open("lobby", Collections.singletonList(VOTE), votes -> fail());
+        Long second = window.open("lobby", Collections.singletonList(VOTE), votes -> fail());
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(window.open("lobby", Collections.singletonList(VOTE), votes -> fail()));
+
+        // Other servers have their own window.
+        assertNotNull(window.open("survival", Collections.singletonList(VOTE), votes -> fail()));
+
+        assertEquals("lobby", window.acknowledge(first));
+        assertNull(window.acknowledge(first));
+        assertEquals(1, window.getInFlight("lobby"));
+        assertNotNull(window.open("lobby", Collections.singletonList(VOTE), votes -> fail()));
+    }
+
+    @Test
+    public void testExpiredDeliveriesAreRequeued() {
+        AtomicLong now = new AtomicLong();
+        DeliveryWindow window = new DeliveryWindow(8, 1000, now::get);
+        List<Vote> requeued = new ArrayList<>();
+
+        Long expired = window.open("lobby", Collections.singletonList(VOTE), requeued::addAll);
+        now.set(500);
+        Long acknowledged = window.open("lobby", Collections.singletonList(VOTE), requeued::addAll);
+        Long pending = window.open("lobby", Collections.singletonList(VOTE), requeued::addAll);
+        window.acknowledge(acknowledged);
+
+        now.set(1000);
+        assertEquals(Collections.singletonList("lobby"), new ArrayList<>(window.expire()));
+        assertEquals(Collections.singletonList(VOTE), requeued);
+        assertNull(window.acknowledge(expired));
+        assertEquals(1, window.getInFlight("lobby"));
+
+        window.expireAll();
+        assertEquals(2, requeued.size());
+        assertNull(window.acknowledge(pending));
+        assertEquals(0, window.getInFlight("lobby"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.vexsoftware.votifier.support.forwarding;
 
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
@@ -9,6 +10,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PMForwardingSinkTest {
 
@@ -47,4 +49,57 @@ public class PMForwardingSinkTest {
             assertEquals(sentVotes.get(i), receivedVotes.get(i));
         }
     }
+
+    @Test
+    public void testSuccessfulBinaryMultiDecode() {
+        List<Vote> receivedVotes = new ArrayList<>();
+        ForwardedVoteListener vl = receivedVotes::add;
+
+        List<Vote> sentVotes = new ArrayList<>(Arrays.asList(
+                new Vote("serviceA", "usernameA", "1.1.1.1", "1546300800"),
+                new Vote("serviceB", "usernameBBBBBBB", "1.2.23.4", "1514764800", new byte[]{1, 2, 3})
+        ));
+
+        AbstractPluginMessagingForwardingSink sink = new AbstractPluginMessagingForwardingSink(vl, null) {
+            @Override
+            public void init() {}
+
+            @Override
+            public void halt() {}
+        };
+
+        sink.handlePluginMessage(VoteCodec.Format.BINARY.encode(sentVotes));
+
+        assertEquals(sentVotes, receivedVotes);
+    }
+
+    @Test
+    public void testDeliveryIsAcknowledgedOnce() {
+        List<Vote> receivedVotes = new ArrayList<>();
+        List<byte[]> replies = new ArrayList<>();
+        AbstractPluginMessagingForwardingSink sink = new AbstractPluginMessagingForwardingSink(receivedVotes::add, null) {
+            @Override
+            public void init() {}
+
+            @Override
+            public void halt() {}
+        };
+
+        List<Vote> sentVotes = Arrays.asList(
+                new Vote("serviceA", "usernameA", "1.1.1.1", "1546300800"),
+                new Vote("serviceB", "usernameB", "1.2.23.4", "1514764800")
+        );
+        byte[] delivery = DeliveryProtocol.wrap(-42L, VoteCodec.Format.BINARY.encode(sentVotes));
+
+        // The second time is a resend, as if the first acknowledgement was lost.
+        sink.handlePluginMessage(delivery, replies::add);
+        sink.handlePluginMessage(delivery, replies::add);
+
+        assertEquals(sentVotes, receivedVotes);
+        assertEquals(2, replies.size());
+        for (byte[] reply : replies) {
+            assertTrue(DeliveryProtocol.isAck(reply));
+            assertEquals(-42L, DeliveryProtocol.getId(reply));
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.vexsoftware.votifier.support.forwarding;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import com.vexsoftware.votifier.platform.BackendServer;
+import com.vexsoftware.votifier.platform.ProxyVotifierPlugin;
+import com.vexsoftware.votifier.support.forwarding.cache.MemoryVoteCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PMForwardingSourceTest {
+
+    private static class TestProxyPlugin extends TestVotifierPlugin implements ProxyVotifierPlugin {
+
+        private final List<BackendServer> servers = new ArrayList<>();
+
+        @Override
+        public Collection<BackendServer> getAllBackendServers() {
+            return servers;
+        }
+
+        @Override
+        public Optional<BackendServer> getServer(String name) {
+            return servers.stream().filter(s -> s.getName().equals(name)).findFirst();
+        }
+
+        @Override
+        public boolean isDebug() {
+            return false;
+        }
+    }
+
+    @Test
+    public void testVoteIsSentToEveryServerInOrder() {
+        TestProxyPlugin plugin = new TestProxyPlugin();
+        Map<String, List<byte[]>> received = new ConcurrentHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            String name = "server" + i;
+            boolean online = i % 5 != 0;
+            plugin.servers.add(new BackendServer() {
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public boolean sendPluginMessage(String channel, byte[] data) {
+                    if (online) {
+                        received.computeIfAbsent(name, k -> Collections.synchronizedList(new ArrayList<>())).add(data);
+                    }
+                    return online;
+                }
+            });
+        }
+
+        MemoryVoteCache cache = new MemoryVoteCache(plugin, -1);
+        AbstractPluginMessagingForwardingSource source = new AbstractPluginMessagingForwardingSource(
+                "nuvotifier:votes", new ServerFilter(Collections.emptyList(), false), plugin, cache, 5) {
+            @Override
+            public void init() {}
+        };
+
+        List<Vote> votes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Vote vote = new Vote("Test", "player", "127.0.0.1", Integer.toString(i));
+            votes.add(vote);
+            source.forward(vote);
+        }
+
+        // Halting waits for the votes still being sent.
+        source.halt();
+
+        assertEquals(16, received.size());
+        for (List<byte[]> messages : received.values()) {
+            List<Vote> decoded = new ArrayList<>();
+            for (byte[] message : messages) {
+                decoded.addAll(VoteCodec.decode(message));
+            }
+            assertEquals(votes, decoded);
+        }
+
+        assertEquals(4, cache.getCachedServers().size());
+        assertEquals(votes, new ArrayList<>(cache.evict("server0")));
+    }
+}
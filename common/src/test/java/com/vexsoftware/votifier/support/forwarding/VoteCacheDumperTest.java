@@ -0,0 +1,92 @@
+package com.vexsoftware.votifier.support.forwarding;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import com.vexsoftware.votifier.platform.BackendServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VoteCacheDumperTest {
+
+    private static final int MAX_MESSAGE_SIZE = 4096;
+
+    // Runs every round straight away.
+    private static final TestVotifierPlugin PLUGIN = new TestVotifierPlugin() {
+        @Override
+        public boolean isDebug() {
+            return false;
+        }
+    }.withScheduler(TestVotifierPlugin.INLINE_SCHEDULER);
+
+    private static final BackendServer TARGET = new BackendServer() {
+        @Override
+        public String getName() {
+            return "lobby";
+        }
+
+        @Override
+        public boolean sendPluginMessage(String channel, byte[] data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getMaxPluginMessageSize() {
+            return MAX_MESSAGE_SIZE;
+        }
+    };
+
+    private static List<Vote> votes(int count) {
+        List<Vote> votes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            votes.add(new Vote("Test", "player" + i, "127.0.0.1", Integer.toString(i)));
+        }
+        return votes;
+    }
+
+    @Test
+    public void testVotesArePackedWithinSizeLimit() {
+        for (VoteCodec.Format format : VoteCodec.Format.values()) {
+            List<Vote> votes = votes(2000);
+            List<Vote> received = new ArrayList<>();
+            AtomicReference<Collection<Vote>> failed = new AtomicReference<>();
+
+            new VoteCacheDumper(PLUGIN, format, TARGET, 0, (chunk, data) -> {
+                assertTrue(data.length <= MAX_MESSAGE_SIZE);
+                received.addAll(VoteCodec.decode(data));
+                return true;
+            }, "server 'lobby'", 5, votes, failed::set).start();
+
+            assertEquals(votes, received);
+            assertTrue(failed.get().isEmpty());
+        }
+    }
+
+    @Test
+    public void testRefusedVotesAreHandedBack() {
+        List<Vote> votes = votes(2000);
+        List<Vote> received = new ArrayList<>();
+        AtomicReference<Collection<Vote>> failed = new AtomicReference<>();
+        AtomicInteger messages = new AtomicInteger();
+
+        new VoteCacheDumper(PLUGIN, VoteCodec.Format.JSON, TARGET, 0, (chunk, data) -> {
+            if (messages.incrementAndGet() > 3) {
+                return false;
+            }
+            received.addAll(VoteCodec.decode(data));
+            return true;
+        }, "server 'lobby'", 5, votes, failed::set).start();
+
+        List<Vote> all = new ArrayList<>(received);
+        all.addAll(failed.get());
+        assertEquals(votes, all);
+        assertFalse(failed.get().isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+package com.vexsoftware.votifier.support.forwarding.cache;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileVoteCacheTest {
+
+    private static final TestVotifierPlugin PLUGIN = new TestVotifierPlugin();
+
+    @TempDir
+    Path directory;
+
+    private static String record(String op, boolean player, String key, String username, int i) {
+        String record = "{\"op\":\"" + op + "\",\"player\":" + player + ",\"key\":\"" + key + "\"";
+        if (username != null) {
+            record += ",\"vote\":{\"serviceName\":\"Test\",\"username\":\"" + username
+                    + "\",\"address\":\"127.0.0.1\",\"timestamp\":\"" + i
+                    + "\",\"recorded\":" + System.currentTimeMillis() + "}";
+        }
+        return record + "}\n";
+    }
+
+    @Test
+    public void testJournalIsReplayedAndFolded() throws Exception {
+        File cacheFile = directory.resolve("cached-votes.json").toFile();
+        String add = record("add", false, "lobby", "a", 0);
+        Files.write(directory.resolve("cached-votes.json.log.0"), (add
+                + record("add", false, "survival", "b", 1)
+                + record("evict", false, "survival", null, 0)).getBytes(StandardCharsets.UTF_8));
+        // The same record again, as if the snapshot had already included it, then a write cut short.
+        Files.write(directory.resolve("cached-votes.json.log.1"), (add
+                + record("add", true, "c", "c", 2)
+                + "{\"op\":\"add\",\"pla").getBytes(StandardCharsets.UTF_8));
+
+        FileVoteCache cache = new FileVoteCache(PLUGIN, cacheFile, -1);
+        assertTrue(VoteJournal.segments(cacheFile).headMap(1L, true).isEmpty());
+        assertTrue(cacheFile.exists());
+
+        List<Vote> lobby = new ArrayList<>(cache.evict("lobby"));
+        assertEquals(1, lobby.size());
+        assertEquals("a", lobby.get(0).getUsername());
+        assertTrue(cache.evict("survival").isEmpty());
+        assertEquals(1, cache.evictPlayer("c").size());
+        cache.halt();
+    }
+
+    @Test
+    public void testVotesSurviveRestart() throws Exception {
+        File cacheFile = directory.resolve("cached-votes.json").toFile();
+
+        FileVoteCache cache = new FileVoteCache(PLUGIN, cacheFile, -1);
+        cache.addToCache(new Vote("Test", "a", "127.0.0.1", "0"), "lobby");
+        cache.addToCache(new Vote("Test", "b", "127.0.0.1", "1"), "survival");
+        cache.evict("survival");
+        cache.halt();
+        assertTrue(VoteJournal.segments(cacheFile).isEmpty());
+
+        FileVoteCache reloaded = new FileVoteCache(PLUGIN, cacheFile, -1);
+        assertEquals(1, reloaded.evict("lobby").size());
+        assertTrue(reloaded.evict("survival").isEmpty());
+        reloaded.halt();
+    }
+
+    @Test
+    public void testDamagedSnapshotFallsBackToPrevious() throws Exception {
+        File cacheFile = directory.resolve("cached-votes.json").toFile();
+
+        FileVoteCache cache = new FileVoteCache(PLUGIN, cacheFile, -1);
+        cache.addToCache(new Vote("Test", "a", "127.0.0.1", "0"), "lobby");
+        cache.halt();
+
+        cache = new FileVoteCache(PLUGIN, cacheFile, -1);
+        cache.addToCache(new Vote("Test", "b", "127.0.0.1", "1"), "lobby");
+        cache.halt();
+
+        // Flip a byte in the middle of the newest snapshot.
+        byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(cacheFile.toPath(), bytes);
+
+        FileVoteCache reloaded = new FileVoteCache(PLUGIN, cacheFile, -1);
+        List<Vote> lobby = new ArrayList<>(reloaded.evict("lobby"));
+        assertEquals(1, lobby.size());
+        assertEquals("a", lobby.get(0).getUsername());
+        assertTrue(directory.resolve("cached-votes.json.bak.0").toFile().exists());
+        reloaded.halt();
+    }
+
+    /**
+     * Pauses after each change is journaled but before it is visible in the cache, where a compaction used to be
+     * able to slip in.
+     */
+    private static FileVoteCache slowCache(File cacheFile) throws Exception {
+        return new FileVoteCache(PLUGIN, cacheFile, -1) {
+            @Override
+            protected void onAdded(boolean player, String key, VoteWithRecordedTimestamp vote) {
+                super.onAdded(player, key, vote);
+                LockSupport.parkNanos(50_000);
+            }
+
+            @Override
+            protected void onEvicted(boolean player, String key) {
+                super.onEvicted(player, key);
+                LockSupport.parkNanos(50_000);
+            }
+        };
+    }
+
+    @Test
+    public void testCompactionDuringChangesLosesNothing() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            File cacheFile = directory.resolve("cached-votes-" + round + ".json").toFile();
+            FileVoteCache cache = slowCache(cacheFile);
+
+            ExecutorService executor = Executors.newFixedThreadPool(5);
+            AtomicBoolean done = new AtomicBoolean();
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        cache.addToCache(new Vote("Test", "user" + i, "127.0.0.1", Integer.toString(i)),
+                                "server-" + thread + "-" + (i % 50));
+                        if (i % 3 == 0) {
+                            cache.evict("server-" + thread + "-" + ((i + 25) % 50));
+                        }
+                    }
+                }));
+            }
+
+            Future<?> compactor = executor.submit(() -> {
+                while (!done.get()) {
+                    cache.compact();
+                }
+                return null;
+            });
+
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            compactor.get(30, TimeUnit.SECONDS);
+            executor.shutdown();
+
+            // Crash, then check that the snapshot and the journal left behind hold exactly what was cached.
+            cache.abandon();
+            FileVoteCache reloaded = new FileVoteCache(PLUGIN, cacheFile, -1);
+            assertEquals(cache.voteCache.keySet(), reloaded.voteCache.keySet());
+            for (Map.Entry<String, Collection<MemoryVoteCache.VoteWithRecordedTimestamp>> entry : cache.voteCache.entrySet()) {
+                assertEquals(new ArrayList<>(entry.getValue()), new ArrayList<>(reloaded.voteCache.get(entry.getKey())),
+                        "Votes of " + entry.getKey());
+            }
+            reloaded.halt();
+        }
+    }
+}
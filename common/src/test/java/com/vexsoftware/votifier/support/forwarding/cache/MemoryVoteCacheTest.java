@@ -0,0 +1,111 @@
+package com.vexsoftware.votifier.support.forwarding.cache;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
+import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryVoteCacheTest {
+
+    private static final TestVotifierPlugin PLUGIN = new TestVotifierPlugin();
+
+    private static Vote vote(String username, int i) {
+        return new Vote("Test", username, "127.0.0.1", Integer.toString(i));
+    }
+
+    @Test
+    public void testAddAndEvict() {
+        MemoryVoteCache cache = new MemoryVoteCache(PLUGIN, -1);
+        cache.addToCache(vote("a", 0), "lobby");
+        cache.addToCache(vote("b", 1), "lobby");
+        cache.addToCache(vote("c", 2), "survival");
+        cache.addToCachePlayer(vote("d", 3), "d");
+
+        assertEquals(2, cache.getCachedServers().size());
+
+        Collection<Vote> lobby = cache.evict("lobby");
+        assertEquals(List.of(vote("a", 0), vote("b", 1)), new ArrayList<>(lobby));
+        assertTrue(cache.evict("lobby").isEmpty());
+        assertEquals(List.of("survival"), new ArrayList<>(cache.getCachedServers()));
+
+        assertEquals(1, cache.evictPlayer("d").size());
+        assertTrue(cache.evictPlayer("d").isEmpty());
+    }
+
+    @Test
+    public void testHaltStopsSweeping() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        TestVotifierPlugin plugin = new TestVotifierPlugin().withScheduler(new VotifierScheduler() {
+            @Override
+            public ScheduledVotifierTask delayedOnPool(Runnable runnable, int delay, TimeUnit unit) {
+                throw new AssertionError("Nothing should be delayed");
+            }
+
+            @Override
+            public ScheduledVotifierTask repeatOnPool(Runnable runnable, int delay, int repeat, TimeUnit unit) {
+                return () -> cancelled.set(true);
+            }
+        });
+
+        MemoryVoteCache cache = new MemoryVoteCache(plugin, -1);
+        cache.addToCache(vote("a", 0), "lobby");
+        cache.halt();
+
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    public void testConcurrentAddAndEvictLosesNothing() throws Exception {
+        MemoryVoteCache cache = new MemoryVoteCache(PLUGIN, -1);
+        int writers = 4, votesPerWriter = 5000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < votesPerWriter; i++) {
+                        cache.addToCache(vote("player" + writer, i), "lobby");
+                    }
+                    return null;
+                }));
+            }
+
+            Future<Integer> evictor = executor.submit(() -> {
+                start.await();
+                int evicted = 0;
+                for (int i = 0; i < 1000; i++) {
+                    evicted += cache.evict("lobby").size();
+                    cache.sweep();
+                }
+                return evicted;
+            });
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            int total = evictor.get(30, TimeUnit.SECONDS) + cache.evict("lobby").size();
+            assertEquals(writers * votesPerWriter, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
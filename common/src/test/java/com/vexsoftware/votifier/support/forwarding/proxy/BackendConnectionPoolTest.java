@@ -0,0 +1,155 @@
+package com.vexsoftware.votifier.support.forwarding.proxy;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import com.vexsoftware.votifier.support.forwarding.proxy.client.VotifierResponseHandler;
+import com.vexsoftware.votifier.util.KeyCreator;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackendConnectionPoolTest {
+
+    private EventLoopGroup group;
+    private Channel server;
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    /**
+     * Starts a server that behaves like NuVotifier before multi-vote sessions: it answers one vote per
+     * connection, ignores the session request, and closes the connection.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        group = new NioEventLoopGroup(2);
+        server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            private boolean answered;
+
+                            @Override
+                            public void channelActive(ChannelHandlerContext ctx) {
+                                accepted.incrementAndGet();
+                                ctx.writeAndFlush(Unpooled.copiedBuffer("VOTIFIER 2 challenge\n", StandardCharsets.US_ASCII));
+                            }
+
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                ReferenceCountUtil.release(msg);
+                                if (!answered) {
+                                    answered = true;
+                                    ctx.writeAndFlush(Unpooled.copiedBuffer("{\"status\":\"ok\"}\r\n", StandardCharsets.US_ASCII))
+                                            .addListener(ChannelFutureListener.CLOSE);
+                                }
+                            }
+                        });
+                    }
+                })
+                .bind(InetAddress.getLoopbackAddress(), 0)
+                .sync()
+                .channel();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.close().sync();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    private BackendConnectionPool createPool(InetSocketAddress address) {
+        return new BackendConnectionPool(TestVotifierPlugin.getI(),
+                () -> new Bootstrap().group(group).channel(NioSocketChannel.class),
+                address, KeyCreator.createKeyFrom("test"));
+    }
+
+    /**
+     * Sends votes through the pool and waits for all of them to be answered.
+     *
+     * @return The failures
+     */
+    private static List<Throwable> sendAll(BackendConnectionPool pool, int votes) throws Exception {
+        CountDownLatch done = new CountDownLatch(votes);
+        AtomicInteger[] completions = new AtomicInteger[votes];
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        try {
+            for (int i = 0; i < votes; i++) {
+                AtomicInteger completed = completions[i] = new AtomicInteger();
+                pool.send(new Vote("Test", "player" + i, "127.0.0.1", String.valueOf(i)), new VotifierResponseHandler() {
+                    @Override
+                    public void onSuccess() {
+                        completed.incrementAndGet();
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        failures.add(error);
+                        completed.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS), "Every vote should be answered");
+        } finally {
+            pool.close();
+        }
+
+        for (AtomicInteger completed : completions) {
+            assertEquals(1, completed.get());
+        }
+        return failures;
+    }
+
+    @Test
+    public void testFallsBackToOneConnectionPerVote() throws Exception {
+        int votes = 10;
+        List<Throwable> failures = sendAll(createPool((InetSocketAddress) server.localAddress()), votes);
+
+        assertTrue(failures.isEmpty(), "No vote should fail: " + failures);
+        assertEquals(votes, accepted.get());
+    }
+
+    @Test
+    public void testFailedConnectFailsVotes() throws Exception {
+        InetSocketAddress closed;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closed = (InetSocketAddress) socket.getLocalSocketAddress();
+        }
+
+        // The votes must come back to the caller, whose retries back off, instead of opening connection after
+        // connection to a server that is down.
+        int votes = 10;
+        List<Throwable> failures = sendAll(createPool(closed), votes);
+        assertEquals(votes, failures.size());
+    }
+}
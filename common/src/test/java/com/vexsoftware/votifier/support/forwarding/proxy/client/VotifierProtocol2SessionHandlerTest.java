@@ -0,0 +1,301 @@
+package com.vexsoftware.votifier.support.forwarding.proxy.client;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.net.protocol.TestVotifierPlugin;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VotifierProtocol2SessionHandlerTest {
+
+    private static final String HANDSHAKE = "VOTIFIER 2 abc";
+    private static final String OK = "{\"status\":\"ok\"}";
+    private static final String OK_SESSION = "{\"status\":\"ok\",\"session\":true}";
+    private static final String ERROR = "{\"status\":\"error\",\"cause\":\"Exception\",\"error\":\"Bad signature\"}";
+
+    private final Events events = new Events();
+
+    private static Vote vote(int i) {
+        return new Vote("Test", "player" + i, "127.0.0.1", String.valueOf(i));
+    }
+
+    private static Response[] send(VotifierProtocol2SessionHandler handler, int count) {
+        Response[] responses = new Response[count];
+        for (int i = 0; i < count; i++) {
+            responses[i] = new Response();
+            handler.reserve();
+            handler.send(vote(i), responses[i]);
+        }
+        return responses;
+    }
+
+    private static void assertRequest(EmbeddedChannel channel, String challenge, Vote vote, boolean session) {
+        VoteRequest request = channel.readOutbound();
+        assertNotNull(request, "Expected a vote to be sent with challenge " + challenge);
+        assertEquals(challenge, request.getChallenge());
+        assertEquals(vote, request.getVote());
+        assertEquals(session, request.isSession());
+    }
+
+    @Test
+    public void testSessionAccepted() {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 32, events);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        Response[] responses = send(handler, 3);
+        assertNull(channel.readOutbound(), "Nothing can be sent before the handshake");
+
+        channel.writeInbound(HANDSHAKE);
+        assertRequest(channel, "abc", vote(0), true);
+        assertNull(channel.readOutbound(), "Only the first vote is sent until the server answers it");
+
+        channel.writeInbound(OK_SESSION);
+        assertEquals(Collections.singletonList(true), events.negotiated);
+        assertRequest(channel, "abc:1", vote(1), false);
+        assertRequest(channel, "abc:2", vote(2), false);
+
+        channel.writeInbound(OK);
+        channel.writeInbound(OK);
+
+        for (Response response : responses) {
+            response.assertSucceeded();
+        }
+        assertEquals(0, handler.getPending());
+        assertTrue(handler.isUsable());
+        assertTrue(channel.isOpen());
+        assertTrue(events.orphaned.isEmpty());
+    }
+
+    @Test
+    public void testSessionRejectedOrphansWaitingVotes() {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 32, events);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        Response[] responses = send(handler, 3);
+
+        channel.writeInbound(HANDSHAKE);
+        assertRequest(channel, "abc", vote(0), true);
+
+        // An older server answers the vote as usual and closes the connection.
+        channel.writeInbound(OK);
+        assertEquals(Collections.singletonList(false), events.negotiated);
+        assertNull(channel.readOutbound(), "No more votes may be sent once the session is refused");
+        assertFalse(channel.isOpen());
+        assertEquals(1, events.closed);
+
+        responses[0].assertSucceeded();
+        assertEquals(Arrays.asList(vote(1), vote(2)), events.orphaned);
+        for (int i = 1; i < responses.length; i++) {
+            assertEquals(0, responses[i].completions(), "Orphaned votes must be left to the caller");
+        }
+        assertEquals(0, handler.getPending());
+
+        // Sending the orphans over another connection completes each of them exactly once.
+        Events retryEvents = new Events();
+        VotifierProtocol2SessionHandler retry = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 32, retryEvents);
+        EmbeddedChannel retryChannel = new EmbeddedChannel(retry);
+        for (int i = 0; i < events.orphaned.size(); i++) {
+            retry.reserve();
+            retry.send(events.orphaned.get(i), events.orphanedHandlers.get(i));
+        }
+
+        retryChannel.writeInbound(HANDSHAKE);
+        assertRequest(retryChannel, "abc", vote(1), true);
+        retryChannel.writeInbound(OK_SESSION);
+        assertRequest(retryChannel, "abc:1", vote(2), false);
+        retryChannel.writeInbound(OK);
+
+        for (Response response : responses) {
+            response.assertSucceeded();
+        }
+    }
+
+    @Test
+    public void testErrorResponseMidPipeline() {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 2, events);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        Response[] responses = send(handler, 4);
+
+        channel.writeInbound(HANDSHAKE);
+        assertRequest(channel, "abc", vote(0), true);
+        channel.writeInbound(OK_SESSION);
+        assertRequest(channel, "abc:1", vote(1), false);
+        assertRequest(channel, "abc:2", vote(2), false);
+        assertNull(channel.readOutbound(), "No more than two votes may be in flight");
+
+        channel.writeInbound(ERROR);
+        assertFalse(channel.isOpen());
+
+        responses[0].assertSucceeded();
+        Throwable error = responses[1].assertFailed();
+        assertEquals("Remote server error: Exception: Bad signature", error.getMessage());
+        assertTrue(responses[2].assertFailed() instanceof ClosedChannelException);
+
+        // The last vote was never sent, so it may safely go over another connection.
+        assertEquals(0, responses[3].completions());
+        assertEquals(Collections.singletonList(vote(3)), events.orphaned);
+        assertEquals(0, handler.getPending());
+    }
+
+    @Test
+    public void testMaxAgeRetiresOnceVotesAreAnswered() throws Exception {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 32, 1, events);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        Response[] responses = send(handler, 3);
+
+        channel.writeInbound(HANDSHAKE);
+        assertRequest(channel, "abc", vote(0), true);
+        channel.writeInbound(OK_SESSION);
+        assertRequest(channel, "abc:1", vote(1), false);
+        assertRequest(channel, "abc:2", vote(2), false);
+
+        Thread.sleep(1100);
+        channel.runScheduledPendingTasks();
+        assertFalse(handler.isUsable());
+        assertTrue(channel.isOpen(), "Votes in flight must still be answered");
+
+        // A vote that arrives late goes elsewhere rather than onto a connection about to close.
+        Response late = new Response();
+        handler.reserve();
+        handler.send(vote(3), late);
+        assertEquals(Collections.singletonList(vote(3)), events.orphaned);
+        assertNull(channel.readOutbound());
+
+        channel.writeInbound(OK);
+        assertTrue(channel.isOpen());
+        channel.writeInbound(OK);
+        assertFalse(channel.isOpen());
+
+        for (Response response : responses) {
+            response.assertSucceeded();
+        }
+        assertEquals(0, late.completions());
+        assertEquals(0, handler.getPending());
+    }
+
+    @Test
+    public void testIdleRetiresOnceVotesAreAnswered() {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 32, events);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        Response[] responses = send(handler, 1);
+
+        channel.writeInbound(HANDSHAKE);
+        assertRequest(channel, "abc", vote(0), true);
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+        channel.runPendingTasks();
+        assertTrue(channel.isOpen(), "A connection with votes in flight is not idle");
+
+        channel.writeInbound(OK_SESSION);
+        responses[0].assertSucceeded();
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+        channel.runPendingTasks();
+        assertFalse(channel.isOpen());
+        assertEquals(1, events.closed);
+        assertTrue(events.orphaned.isEmpty());
+    }
+
+    @Test
+    public void testReadTimeoutWhileVotesInFlight() {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 1, events);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        Response[] responses = send(handler, 3);
+
+        channel.writeInbound(HANDSHAKE);
+        assertRequest(channel, "abc", vote(0), true);
+        channel.writeInbound(OK_SESSION);
+        assertRequest(channel, "abc:1", vote(1), false);
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.READER_IDLE_STATE_EVENT);
+        channel.runPendingTasks();
+        assertFalse(channel.isOpen());
+
+        responses[0].assertSucceeded();
+        assertSame(ReadTimeoutException.INSTANCE, responses[1].assertFailed());
+        assertEquals(0, responses[2].completions());
+        assertEquals(Collections.singletonList(vote(2)), events.orphaned);
+        assertEquals(0, handler.getPending());
+    }
+
+    @Test
+    public void testVotesFailOnceConnectFailed() {
+        VotifierProtocol2SessionHandler handler = new VotifierProtocol2SessionHandler(TestVotifierPlugin.getI(), 32, events);
+        Response[] queued = send(handler, 1);
+
+        ConnectException refused = new ConnectException("Connection refused");
+        handler.connectFailed(refused);
+        assertSame(refused, queued[0].assertFailed());
+
+        // A vote that was on its way when the connect failed must not be handed back for another connection
+        // right away, or it would skip the caller's backoff.
+        Response late = send(handler, 1)[0];
+        assertSame(refused, late.assertFailed());
+        assertTrue(events.orphaned.isEmpty());
+        assertEquals(0, handler.getPending());
+        assertFalse(handler.isUsable());
+    }
+
+    private static final class Events implements VotifierProtocol2SessionHandler.Listener {
+
+        private final List<Boolean> negotiated = new ArrayList<>();
+        private final List<Vote> orphaned = new ArrayList<>();
+        private final List<VotifierResponseHandler> orphanedHandlers = new ArrayList<>();
+        private int closed;
+
+        @Override
+        public void onSessionNegotiated(boolean accepted) {
+            negotiated.add(accepted);
+        }
+
+        @Override
+        public void onOrphaned(Vote vote, VotifierResponseHandler responseHandler) {
+            orphaned.add(vote);
+            orphanedHandlers.add(responseHandler);
+        }
+
+        @Override
+        public void onClosed() {
+            closed++;
+        }
+    }
+
+    private static final class Response implements VotifierResponseHandler {
+
+        private int successes;
+        private final List<Throwable> failures = new ArrayList<>();
+
+        @Override
+        public void onSuccess() {
+            successes++;
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            failures.add(error);
+        }
+
+        int completions() {
+            return successes + failures.size();
+        }
+
+        void assertSucceeded() {
+            assertEquals(1, successes, "Vote should have succeeded once");
+            assertTrue(failures.isEmpty(), "Vote should not have failed: " + failures);
+        }
+
+        Throwable assertFailed() {
+            assertEquals(0, successes, "Vote should not have succeeded");
+            assertEquals(1, failures.size(), "Vote should have failed once");
+            return failures.get(0);
+        }
+    }
+}
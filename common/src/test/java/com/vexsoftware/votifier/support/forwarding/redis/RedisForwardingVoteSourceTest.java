@@ -0,0 +1,84 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RedisForwardingVoteSourceTest {
+
+    private static final String CHANNEL = "votes";
+    private static final String LOBBY = RedisVoteRouter.serverChannel(CHANNEL, "lobby");
+
+    private final RedisCredentials credentials = RedisCredentials.builder().host("127.0.0.1").port(6379).channel(CHANNEL).build();
+    private final LoggingAdapter logger = mock(LoggingAdapter.class);
+
+    private JedisPool pool;
+    private Pipeline pipeline;
+
+    @SuppressWarnings("unchecked")
+    private static Response<Long> receivers(long count) {
+        Response<Long> response = mock(Response.class);
+        when(response.get()).thenReturn(count);
+        return response;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        Jedis jedis = mock(Jedis.class);
+        pipeline = mock(Pipeline.class);
+        pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pipeline.publish(eq(CHANNEL), anyString())).thenReturn(receivers(2));
+    }
+
+    private void forward(Vote... votes) {
+        RedisVoteRouter router = RedisVoteRouter.perServer(CHANNEL, username -> Optional.of("lobby"), null);
+        RedisForwardingVoteSource source = new RedisForwardingVoteSource(credentials, VoteCodec.Format.JSON, router, null, pool, logger);
+        source.init();
+        for (Vote vote : votes) {
+            source.forward(vote);
+        }
+        // Publishes whatever is still queued.
+        source.halt();
+    }
+
+    @Test
+    public void testRoutedVotesStayOnTheirChannel() {
+        when(pipeline.publish(eq(LOBBY), anyString())).thenReturn(receivers(1));
+
+        forward(new Vote("Test", "notch", "127.0.0.1", "0"));
+
+        verify(pipeline).publish(eq(LOBBY), anyString());
+        verify(pipeline, never()).publish(eq(CHANNEL), anyString());
+    }
+
+    @Test
+    public void testUnheardVotesArePublishedToTheChannel() {
+        when(pipeline.publish(eq(LOBBY), anyString())).thenReturn(receivers(0));
+
+        forward(new Vote("Test", "notch", "127.0.0.1", "0"), new Vote("Test", "jeb_", "127.0.0.1", "1"));
+
+        verify(pipeline, times(2)).publish(eq(LOBBY), anyString());
+        verify(pipeline, times(2)).publish(eq(CHANNEL), anyString());
+        // Once per channel is enough to tell something is wrong.
+        verify(logger, times(1)).warn(contains(LOBBY));
+    }
+}
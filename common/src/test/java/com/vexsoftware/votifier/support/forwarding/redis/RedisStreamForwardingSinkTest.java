@@ -0,0 +1,132 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.platform.LoggingAdapter;
+import com.vexsoftware.votifier.support.forwarding.ForwardedVoteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RedisStreamForwardingSinkTest {
+
+    private static final String STREAM = "votes";
+    private static final String GROUP = "lobby";
+    private static final String CONSUMER = "lobby-1";
+    private static final StreamEntryID ID = new StreamEntryID(1, 0);
+
+    private final Vote vote = new Vote("Test", "notch", "127.0.0.1", "0");
+    private final List<Runnable> queued = new CopyOnWriteArrayList<>();
+    private final CountDownLatch received = new CountDownLatch(1);
+
+    private Jedis jedis;
+    private RedisStreamForwardingSink sink;
+
+    @BeforeEach
+    public void setUp() {
+        jedis = mock(Jedis.class);
+        JedisPool pool = mock(JedisPool.class);
+        when(pool.getResource()).thenReturn(jedis);
+
+        AtomicBoolean delivered = new AtomicBoolean();
+        when(jedis.xreadGroup(eq(GROUP), eq(CONSUMER), any(XReadGroupParams.class), anyMap())).thenAnswer(invocation -> {
+            Map<String, StreamEntryID> streams = invocation.getArgument(3);
+            if (streams.get(STREAM) != StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY) {
+                // Nothing left over from before.
+                return Collections.emptyList();
+            }
+
+            if (delivered.compareAndSet(false, true)) {
+                StreamEntry entry = new StreamEntry(ID,
+                        Collections.singletonMap(RedisStreamForwardingVoteSource.VOTE_FIELD, vote.serialize().toString()));
+                return Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(STREAM, Collections.singletonList(entry)));
+            }
+
+            Thread.sleep(10);
+            return null;
+        });
+        when(jedis.xautoclaim(anyString(), anyString(), anyString(), anyLong(), any(StreamEntryID.class), any(XAutoClaimParams.class)))
+                .thenReturn(new AbstractMap.SimpleImmutableEntry<>(new StreamEntryID(), Collections.<StreamEntry>emptyList()));
+
+        // Holds on to votes like a platform that fires their events later.
+        ForwardedVoteListener listener = new ForwardedVoteListener() {
+            @Override
+            public void onForward(Vote v) {
+                throw new AssertionError("Votes read from a stream must be acknowledged once handled");
+            }
+
+            @Override
+            public void onForward(Vote v, Runnable handled) {
+                assertEquals(vote, v);
+                queued.add(handled);
+                received.countDown();
+            }
+        };
+
+        sink = new RedisStreamForwardingSink(STREAM, GROUP, CONSUMER, pool, listener, mock(LoggingAdapter.class));
+    }
+
+    @Test
+    public void testVotesHandledBeforeHaltAreAcknowledged() throws Exception {
+        sink.init();
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        verify(jedis, never()).xack(STREAM, GROUP, ID);
+
+        // The platform fires what it has queued, then halts the forwarding method.
+        queued.forEach(Runnable::run);
+        sink.halt();
+
+        verify(jedis).xack(STREAM, GROUP, ID);
+    }
+
+    @Test
+    public void testVotesHandledAfterHaltAreDeliveredAgain() throws Exception {
+        sink.init();
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        sink.halt();
+        queued.forEach(Runnable::run);
+
+        verify(jedis, never()).xack(STREAM, GROUP, ID);
+    }
+
+    @Test
+    public void testGroupMustBeUniqueToTheServer() {
+        RedisCredentials credentials = RedisCredentials.builder().host("127.0.0.1").port(6379).channel(STREAM).build();
+        ForwardedVoteListener listener = v -> {};
+        LoggingAdapter logger = mock(LoggingAdapter.class);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new RedisStreamForwardingSink(credentials, "", CONSUMER, listener, logger));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RedisStreamForwardingSink(credentials, null, CONSUMER, listener, logger));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RedisStreamForwardingSink(credentials, "server", "server", listener, logger));
+    }
+}
@@ -0,0 +1,67 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import com.vexsoftware.votifier.model.Vote;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedisVoteRouterTest {
+
+    private static Vote vote(String username) {
+        return new Vote("Test", username, "127.0.0.1", "0");
+    }
+
+    @Test
+    public void testShardsDependOnlyOnUsername() {
+        RedisVoteRouter router = RedisVoteRouter.sharded("votes", 8);
+
+        String channel = router.route(vote("Notch"));
+        assertTrue(channel.startsWith("votes:shard:"));
+        assertEquals(channel, router.route(vote("notch")));
+        assertEquals(channel, RedisVoteRouter.sharded("votes", 8).route(vote("NOTCH")));
+
+        for (String username : new String[]{"a", "jeb_", "Dinnerbone", "élève"}) {
+            int shard = RedisVoteRouter.shardOf(username, 8);
+            assertTrue(shard >= 0 && shard < 8);
+        }
+    }
+
+    @Test
+    public void testShardCountMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> RedisVoteRouter.sharded("votes", 0));
+    }
+
+    @Test
+    public void testPerServerRouting() {
+        RedisVoteRouter router = RedisVoteRouter.perServer("votes",
+                username -> username.equals("online") ? Optional.of("survival") : Optional.empty(), "lobby");
+        assertEquals("votes:server:survival", router.route(vote("online")));
+        assertEquals("votes:server:lobby", router.route(vote("offline")));
+
+        RedisVoteRouter noFallback = RedisVoteRouter.perServer("votes", username -> Optional.empty(), null);
+        assertEquals("votes", noFallback.route(vote("offline")));
+    }
+
+    @Test
+    public void testRoutersByName() {
+        Vote vote = vote("test");
+        assertEquals("votes", RedisVoteRouter.fromName("broadcast", "votes", 4, u -> Optional.empty(), null).route(vote));
+        assertEquals("votes:server:lobby",
+                RedisVoteRouter.fromName("Server", "votes", 4, u -> Optional.empty(), "lobby").route(vote));
+        assertEquals(RedisVoteRouter.shardChannel("votes", RedisVoteRouter.shardOf("test", 4)),
+                RedisVoteRouter.fromName("shard", "votes", 4, u -> Optional.empty(), null).route(vote));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedisVoteRouter.fromName("spublish", "votes", 4, u -> Optional.empty(), null));
+    }
+
+    @Test
+    public void testSubscriptions() {
+        assertEquals(Arrays.asList("votes:server:lobby", "votes:shard:0", "votes:shard:3"),
+                RedisVoteRouter.subscriptions("votes", "lobby", Arrays.asList(0, 3)));
+        assertTrue(RedisVoteRouter.subscriptions("votes", "", Collections.emptyList()).isEmpty());
+    }
+}
@@ -0,0 +1,40 @@
+package com.vexsoftware.votifier.support.forwarding.redis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceTrackerTest {
+
+    @Test
+    public void testGapsAreCounted() {
+        SequenceTracker tracker = new SequenceTracker();
+
+        // We may join a source at any point.
+        assertEquals(0, tracker.track("proxy", 5));
+        assertEquals(0, tracker.track("proxy", 6));
+        assertEquals(3, tracker.track("proxy", 10));
+        assertEquals(0, tracker.track("proxy", 11));
+    }
+
+    @Test
+    public void testLateMessagesAreNotCounted() {
+        SequenceTracker tracker = new SequenceTracker();
+
+        assertEquals(0, tracker.track("proxy", 1));
+        assertEquals(1, tracker.track("proxy", 3));
+        assertEquals(0, tracker.track("proxy", 2));
+        assertEquals(0, tracker.track("proxy", 3));
+        assertEquals(0, tracker.track("proxy", 4));
+    }
+
+    @Test
+    public void testSourcesAreTrackedSeparately() {
+        SequenceTracker tracker = new SequenceTracker();
+
+        assertEquals(0, tracker.track("first", 1));
+        assertEquals(0, tracker.track("second", 1));
+        assertEquals(0, tracker.track("first", 2));
+        assertEquals(2, tracker.track("second", 4));
+    }
+}
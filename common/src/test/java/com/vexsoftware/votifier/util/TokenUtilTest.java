@@ -0,0 +1,29 @@
+package com.vexsoftware.votifier.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenUtilTest {
+    @Test
+    void challengesAreBase32() {
+        // Enough to run through the per-thread buffer a few times.
+        for (int i = 0; i < 200; i++) {
+            String challenge = TokenUtil.newChallenge();
+            assertEquals(26, challenge.length());
+            assertTrue(challenge.matches("[0-9a-v]+"), challenge);
+        }
+    }
+
+    @Test
+    void challengesAreUnique() {
+        Set<String> challenges = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(challenges.add(TokenUtil.newChallenge()));
+        }
+    }
+}
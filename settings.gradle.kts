@@ -2,7 +2,8 @@ rootProject.name = "nuvotifier"
 
 listOf(
     "api", "common", "bukkit", "bungeecord",
-    "velocity", "standalone", "sponge"
+    "velocity", "standalone", "sponge",
+    "benchmarks"
 ).forEach {
     include(":nuvotifier-$it")
     project(":nuvotifier-$it").projectDir = file(it)
@@ -2,13 +2,17 @@ package com.vexsoftware.votifier.sponge;
 
 import com.google.inject.Inject;
 import com.vexsoftware.votifier.VoteHandler;
+import com.vexsoftware.votifier.metrics.LoggingMetricsExporter;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
 import com.vexsoftware.votifier.net.VotifierServerBootstrap;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAIO;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAKeygen;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
 import com.vexsoftware.votifier.sponge.commands.TestVoteCommand;
 import com.vexsoftware.votifier.sponge.commands.VotifierReloadCommand;
@@ -22,6 +26,8 @@ import com.vexsoftware.votifier.support.forwarding.ForwardedVoteListener;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSink;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisCredentials;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisForwardingSink;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisStreamForwardingSink;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisVoteRouter;
 import com.vexsoftware.votifier.util.KeyCreator;
 import org.apache.logging.log4j.Logger;
 import org.spongepowered.api.Server;
@@ -77,9 +83,10 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
      */
     private final Map<String, Key> tokens = new HashMap<>();
 
-    private ForwardingVoteSink forwardingMethod;
+    private volatile ForwardingVoteSink forwardingMethod;
     private LoggingAdapter loggerAdapter;
     private VotifierScheduler scheduler;
+    private ScheduledVotifierTask metricsTask;
 
     private boolean loadAndBind() {
         // Load configuration.
@@ -122,6 +129,11 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
             logger.info("QUIET mode enabled!");
         }
 
+        int metricsInterval = ConfigLoader.getSpongeConfig().metricsInterval;
+        if (metricsInterval > 0) {
+            metricsTask = VotifierMetrics.global().scheduleExport(scheduler, new LoggingMetricsExporter(loggerAdapter), metricsInterval);
+        }
+
         if (port >= 0) {
             final boolean disableV1 = ConfigLoader.getSpongeConfig().disableV1Protocol;
             if (disableV1) {
@@ -131,7 +143,24 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
                 logger.info("------------------------------------------------------------------------------");
             }
 
-            this.bootstrap = new VotifierServerBootstrap(host, port, this, disableV1);
+            SpongeConfig.Network network = ConfigLoader.getSpongeConfig().network;
+            VotifierServerSettings settings = VotifierServerSettings.builder()
+                    .transport(network.transport)
+                    .bossThreads(network.bossThreads)
+                    .workerThreads(network.workerThreads)
+                    .v1CryptoThreads(network.v1CryptoThreads)
+                    .v1CryptoQueueSize(network.v1CryptoQueueSize)
+                    .maxConnections(network.maxConnections)
+                    .connectionsPerSecondPerIp(network.connectionsPerSecondPerIp)
+                    .connectionBurstPerIp(network.connectionBurstPerIp)
+                    .readTimeout(network.readTimeout)
+                    .connectionTimeout(network.connectionTimeout)
+                    .dispatchThreads(network.dispatchThreads)
+                    .dispatchQueueSize(network.dispatchQueueSize)
+                    .dispatchBatchSize(network.dispatchBatchSize)
+                    .build();
+
+            this.bootstrap = new VotifierServerBootstrap(host, port, this, disableV1, settings);
             this.bootstrap.start(err -> {});
         } else {
             getLogger().info("------------------------------------------------------------------------------");
@@ -173,8 +202,29 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
                             .channel(channel)
                             .build();
 
+                    String transport = config.forwarding.redis.transport;
+                    switch (transport) {
+                        case "pubsub":
+                            this.forwardingMethod = new RedisForwardingSink(credentials,
+                                    RedisVoteRouter.subscriptions(channel, config.forwarding.redis.server,
+                                            config.forwarding.redis.shards),
+                                    this, loggerAdapter);
+                            break;
+                        case "stream":
+                            try {
+                                this.forwardingMethod = new RedisStreamForwardingSink(credentials,
+                                        config.forwarding.redis.group, config.forwarding.redis.consumer, this, loggerAdapter);
+                            } catch (IllegalArgumentException ex) {
+                                logger.error(ex.getMessage());
+                                return false;
+                            }
+                            break;
+                        default:
+                            logger.error("Unknown Redis transport '{}'. Supported transports are 'pubsub' and 'stream'.", transport);
+                            return false;
+                    }
+
                     try {
-                        this.forwardingMethod = new RedisForwardingSink(credentials, this, loggerAdapter);
                         this.forwardingMethod.init();
                         return true;
                     } catch (RuntimeException ex) {
@@ -203,6 +253,11 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
             forwardingMethod.halt();
             forwardingMethod = null;
         }
+
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
     }
 
     public boolean reload() {
@@ -265,7 +320,7 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
             }
         }
 
-        this.fireVoteEvent(vote);
+        this.fireVoteEvent(vote, null);
     }
 
     @Override
@@ -287,13 +342,34 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
             logger.info("Got a forwarded vote -> {}", v);
         }
 
-        this.fireVoteEvent(v);
+        this.fireVoteEvent(v, null);
+    }
+
+    @Override
+    public void onForward(final Vote v, final Runnable handled) {
+        if (debug) {
+            logger.info("Got a forwarded vote -> {}", v);
+        }
+
+        this.fireVoteEvent(v, handled);
     }
 
-    private void fireVoteEvent(final Vote vote) {
+    /**
+     * Posts a VotifierEvent for the vote on the next tick.
+     *
+     * @param handled Run once the event was posted, or null. If the plugin was halted before the event could be
+     *                posted, the vote is dropped without running this, so the forwarding method that waits on it
+     *                delivers the vote again instead of it being handled twice.
+     */
+    private void fireVoteEvent(final Vote vote, final Runnable handled) {
+        ForwardingVoteSink sink = forwardingMethod;
         Sponge.server().scheduler().submit(Task.builder()
                 .plugin(container)
                 .execute(() -> {
+                    if (handled != null && forwardingMethod != sink) {
+                        return;
+                    }
+
                     Sponge.eventManager().post(
                             new VotifierEvent(vote,
                                     Sponge.server().causeStackManager().currentCause(),
@@ -301,6 +377,9 @@ public class NuVotifierSponge implements VoteHandler, VotifierPlugin, ForwardedV
                                     Sponge.server().causeStackManager().currentContext()
                             )
                     );
+                    if (handled != null) {
+                        handled.run();
+                    }
                 }).build()
         );
     }
@@ -1,11 +1,14 @@
 package com.vexsoftware.votifier.sponge.configuration;
 
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.util.TokenUtil;
 import org.spongepowered.configurate.objectmapping.ConfigSerializable;
 import org.spongepowered.configurate.objectmapping.meta.Comment;
 import org.spongepowered.configurate.objectmapping.meta.Setting;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @ConfigSerializable
@@ -31,6 +34,15 @@ public class SpongeConfig {
             "using NuVotifier's proxy forwarding mechanism, enabling this option will increase your server's security.")
     public boolean disableV1Protocol = false;
 
+    @Setting(value = "metrics-interval")
+    @Comment("Logs a summary of how long each stage of handling a vote takes, along with counters such as failed forwards and the\n" +
+            "state of the Redis subscription, every this many seconds. Set to 0 to disable.")
+    public int metricsInterval = 0;
+
+    @Setting
+    @Comment("Tuning options for the vote server. The defaults are fine for most servers.")
+    public Network network = new Network();
+
     @Setting
     @Comment("All tokens, labeled by the serviceName of each server list.\n" +
             "Default token for all server lists, if another isn't supplied.")
@@ -40,6 +52,73 @@ public class SpongeConfig {
     @Comment("Configuration section for all vote forwarding to NuVotifier")
     public Forwarding forwarding = new Forwarding();
 
+    @ConfigSerializable
+    public static class Network {
+
+        @Setting
+        @Comment("The network transport to use. Supported transports:\n" +
+                "- auto - Uses epoll when available, NIO otherwise.\n" +
+                "- nio - Uses Java NIO, which works everywhere.\n" +
+                "- epoll - Uses Linux epoll.\n" +
+                "- io_uring - Uses Linux io_uring. Requires a recent kernel and the io_uring native library.\n" +
+                "If the selected transport is not available, the default one is used instead.")
+        public String transport = VotifierServerSettings.DEFAULT_TRANSPORT;
+
+        @Setting(value = "boss-threads")
+        @Comment("How many threads accept new connections.")
+        public int bossThreads = VotifierServerSettings.DEFAULT_BOSS_THREADS;
+
+        @Setting(value = "worker-threads")
+        @Comment("How many threads handle vote connections. Set to 0 to use two threads per processor.")
+        public int workerThreads = VotifierServerSettings.DEFAULT_WORKER_THREADS;
+
+        @Setting(value = "v1-crypto-threads")
+        @Comment("Protocol v1 votes are RSA-encrypted, and decrypting them is expensive. They are decrypted on this many\n" +
+                "dedicated threads so a burst of votes doesn't slow down the network threads. Set to 0 to decrypt them\n" +
+                "on the network threads instead.")
+        public int v1CryptoThreads = VotifierServerSettings.DEFAULT_V1_CRYPTO_THREADS;
+
+        @Setting(value = "v1-crypto-queue-size")
+        @Comment("How many protocol v1 votes may wait to be decrypted. Votes arriving while the queue is full are rejected.")
+        public int v1CryptoQueueSize = VotifierServerSettings.DEFAULT_V1_CRYPTO_QUEUE_SIZE;
+
+        @Setting(value = "max-connections")
+        @Comment("How many vote connections may be open at once. Set to 0 for no limit, the default.")
+        public int maxConnections = VotifierServerSettings.DEFAULT_MAX_CONNECTIONS;
+
+        @Setting(value = "connections-per-second-per-ip")
+        @Comment("How many new connections a single address may open per second, after using up its burst allowance.\n" +
+                "Set to 0 for no limit, the default. A voting site sending a burst of votes, or a proxy or standalone\n" +
+                "server forwarding votes here, connects from a single address, so keep this generous if you set it.")
+        public int connectionsPerSecondPerIp = VotifierServerSettings.DEFAULT_CONNECTIONS_PER_SECOND_PER_IP;
+
+        @Setting(value = "connection-burst-per-ip")
+        @Comment("How many connections a single address may open in a quick burst.")
+        public int connectionBurstPerIp = VotifierServerSettings.DEFAULT_CONNECTION_BURST_PER_IP;
+
+        @Setting(value = "read-timeout")
+        @Comment("Connections that send nothing for this many seconds are closed. Set to 0 to disable.")
+        public int readTimeout = VotifierServerSettings.DEFAULT_READ_TIMEOUT;
+
+        @Setting(value = "connection-timeout")
+        @Comment("Connections still open after this many seconds are closed. Set to 0 to disable.")
+        public int connectionTimeout = VotifierServerSettings.DEFAULT_CONNECTION_TIMEOUT;
+
+        @Setting(value = "dispatch-threads")
+        @Comment("Received votes are handed over on this many dedicated threads, so slow listeners or forwarding don't\n" +
+                "hold up the network threads. Votes are then acknowledged to the voting site as soon as they are queued.\n" +
+                "Set to 0 to hand them over on the network threads instead.")
+        public int dispatchThreads = VotifierServerSettings.DEFAULT_DISPATCH_THREADS;
+
+        @Setting(value = "dispatch-queue-size")
+        @Comment("How many votes may wait for each dispatch thread. Votes arriving while the queue is full are rejected.")
+        public int dispatchQueueSize = VotifierServerSettings.DEFAULT_DISPATCH_QUEUE_SIZE;
+
+        @Setting(value = "dispatch-batch-size")
+        @Comment("How many waiting votes a dispatch thread picks up at once.")
+        public int dispatchBatchSize = VotifierServerSettings.DEFAULT_DISPATCH_BATCH_SIZE;
+    }
+
     @ConfigSerializable
     public static class Forwarding {
 
@@ -83,6 +162,32 @@ public class SpongeConfig {
 
             @Setting
             public String channel = "nuvotifier:votes";
+
+            @Setting
+            @Comment("How votes are received over Redis:\n" +
+                    "- pubsub - Votes published while this server is down are lost.\n" +
+                    "- stream - Votes are read from a Redis stream, and the ones added while this server is down are\n" +
+                    "  received once it is back. Needs Redis 6.2 or newer, and 'transport: stream' on the proxy as well.")
+            public String transport = "pubsub";
+
+            @Setting
+            @Comment("Only used by the stream transport, and required by it. Must be different for every backend server,\n" +
+                    "such as its name on the proxy, and stay the same across restarts. Servers sharing a group would each\n" +
+                    "only receive some of the votes.")
+            public String group = "";
+
+            @Setting
+            @Comment("Only used by the stream transport. Names this server within its group. Leave empty to use the group.")
+            public String consumer = "";
+
+            @Setting
+            @Comment("Only used by the pubsub transport. The name of this server on the proxy, to receive the votes\n" +
+                    "the proxy routes to it. Leave empty if the proxy does not route votes by server.")
+            public String server = "";
+
+            @Setting
+            @Comment("Only used by the pubsub transport. The shards this server handles, if the proxy routes votes by shard.")
+            public List<Integer> shards = new ArrayList<>();
         }
     }
 }
@@ -42,7 +42,7 @@ public class SpongePluginMessagingForwardingSink
     public void handlePayload(ChannelBuf buf, ServerConnectionState.Game state) {
         byte[] msgDirBuf = buf.readBytes(buf.available());
         try {
-            this.handlePluginMessage(msgDirBuf);
+            this.handlePluginMessage(msgDirBuf, ack -> channel.play().sendTo(state.player(), b -> b.writeBytes(ack)));
         } catch (Exception e) {
             logger.error("There was an unknown error when processing a forwarded vote.", e);
         }
@@ -17,6 +17,12 @@ dependencies {
     implementation(libs.apache.cli)
     implementation(libs.bundles.slf4j)
     implementation(libs.jedis)
+
+    // Native libraries, so the epoll and io_uring transports can be used on Linux.
+    for (arch in listOf("linux-x86_64", "linux-aarch_64")) {
+        runtimeOnly(variantOf(libs.netty.transport.native.epoll) { classifier(arch) })
+        runtimeOnly(variantOf(libs.netty.transport.native.io.uring) { classifier(arch) })
+    }
 }
 
 tasks {
@@ -3,6 +3,7 @@ package com.vexsoftware.votifier.standalone;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAIO;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAKeygen;
 import com.vexsoftware.votifier.standalone.config.VotifierConfiguration;
@@ -151,8 +152,25 @@ public final class Main {
                     .bind(socket)
                     .v1KeyFolder(rsaFolder)
                     .disableV1Protocol(config.isDisableV1Protocol())
+                    .metricsInterval(config.getMetricsInterval())
                     .debug(config.isDebug())
                     .redis(config.getRedis())
+                    .serverSettings(VotifierServerSettings.builder()
+                            .transport(config.getNetwork().getTransport())
+                            .bossThreads(config.getNetwork().getBossThreads())
+                            .workerThreads(config.getNetwork().getWorkerThreads())
+                            .reusePortAcceptors(config.getNetwork().getReusePortAcceptors())
+                            .v1CryptoThreads(config.getNetwork().getV1CryptoThreads())
+                            .v1CryptoQueueSize(config.getNetwork().getV1CryptoQueueSize())
+                            .maxConnections(config.getNetwork().getMaxConnections())
+                            .connectionsPerSecondPerIp(config.getNetwork().getConnectionsPerSecondPerIp())
+                            .connectionBurstPerIp(config.getNetwork().getConnectionBurstPerIp())
+                            .readTimeout(config.getNetwork().getReadTimeout())
+                            .connectionTimeout(config.getNetwork().getConnectionTimeout())
+                            .dispatchThreads(config.getNetwork().getDispatchThreads())
+                            .dispatchQueueSize(config.getNetwork().getDispatchQueueSize())
+                            .dispatchBatchSize(config.getNetwork().getDispatchBatchSize())
+                            .build())
                     .backendServers(config.getBackendServers());
 
             this.config.getTokens().forEach((service, token) -> {
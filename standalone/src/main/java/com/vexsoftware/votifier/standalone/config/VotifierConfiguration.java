@@ -1,6 +1,7 @@
 package com.vexsoftware.votifier.standalone.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.vexsoftware.votifier.standalone.config.network.NetworkVotifierConfiguration;
 import com.vexsoftware.votifier.standalone.config.redis.RedisVotifierConfiguration;
 import com.vexsoftware.votifier.standalone.config.server.BackendServer;
 import com.vexsoftware.votifier.util.TokenUtil;
@@ -15,6 +16,7 @@ public class VotifierConfiguration {
     private final boolean debug;
     private final Map<String, String> tokens;
     private final RedisVotifierConfiguration redis;
+    private final NetworkVotifierConfiguration network;
 
     @JsonProperty("forwarding")
     private final Map<String, BackendServer> backendServers;
@@ -22,6 +24,9 @@ public class VotifierConfiguration {
     @JsonProperty("disable-v1-protocol")
     private final boolean disableV1Protocol;
 
+    @JsonProperty("metrics-interval")
+    private final int metricsInterval;
+
     public VotifierConfiguration() {
         this.host = "0.0.0.0";
         this.port = 8192;
@@ -29,21 +34,26 @@ public class VotifierConfiguration {
         this.tokens = new HashMap<>();
         this.tokens.put("default", TokenUtil.newToken());
         this.redis = new RedisVotifierConfiguration();
+        this.network = new NetworkVotifierConfiguration();
         this.disableV1Protocol = false;
+        this.metricsInterval = 0;
         this.backendServers = new HashMap<>();
     }
 
     public VotifierConfiguration(
             String host, int port, boolean debug,
             Map<String, String> tokens, RedisVotifierConfiguration redis,
-            boolean disableV1Protocol, Map<String, BackendServer> backendServers
+            NetworkVotifierConfiguration network,
+            boolean disableV1Protocol, int metricsInterval, Map<String, BackendServer> backendServers
     ) {
         this.host = host;
         this.port = port;
         this.debug = debug;
         this.tokens = tokens;
         this.redis = redis;
+        this.network = network;
         this.disableV1Protocol = disableV1Protocol;
+        this.metricsInterval = metricsInterval;
         this.backendServers = backendServers;
     }
 
@@ -67,6 +77,10 @@ public class VotifierConfiguration {
         return disableV1Protocol;
     }
 
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
     public Map<String, BackendServer> getBackendServers() {
         return backendServers;
     }
@@ -74,4 +88,8 @@ public class VotifierConfiguration {
     public RedisVotifierConfiguration getRedis() {
         return redis;
     }
+
+    public NetworkVotifierConfiguration getNetwork() {
+        return network;
+    }
 }
@@ -0,0 +1,145 @@
+package com.vexsoftware.votifier.standalone.config.network;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
+
+public class NetworkVotifierConfiguration {
+
+    private final String transport;
+
+    @JsonProperty("boss-threads")
+    private final int bossThreads;
+
+    @JsonProperty("worker-threads")
+    private final int workerThreads;
+
+    @JsonProperty("reuse-port-acceptors")
+    private final int reusePortAcceptors;
+
+    @JsonProperty("v1-crypto-threads")
+    private final int v1CryptoThreads;
+
+    @JsonProperty("v1-crypto-queue-size")
+    private final int v1CryptoQueueSize;
+
+    @JsonProperty("max-connections")
+    private final int maxConnections;
+
+    @JsonProperty("connections-per-second-per-ip")
+    private final int connectionsPerSecondPerIp;
+
+    @JsonProperty("connection-burst-per-ip")
+    private final int connectionBurstPerIp;
+
+    @JsonProperty("read-timeout")
+    private final int readTimeout;
+
+    @JsonProperty("connection-timeout")
+    private final int connectionTimeout;
+
+    @JsonProperty("dispatch-threads")
+    private final int dispatchThreads;
+
+    @JsonProperty("dispatch-queue-size")
+    private final int dispatchQueueSize;
+
+    @JsonProperty("dispatch-batch-size")
+    private final int dispatchBatchSize;
+
+    public NetworkVotifierConfiguration(
+            String transport, int bossThreads, int workerThreads, int reusePortAcceptors,
+            int v1CryptoThreads, int v1CryptoQueueSize, int maxConnections, int connectionsPerSecondPerIp,
+            int connectionBurstPerIp, int readTimeout, int connectionTimeout, int dispatchThreads,
+            int dispatchQueueSize, int dispatchBatchSize
+    ) {
+        this.transport = transport;
+        this.bossThreads = bossThreads;
+        this.workerThreads = workerThreads;
+        this.reusePortAcceptors = reusePortAcceptors;
+        this.v1CryptoThreads = v1CryptoThreads;
+        this.v1CryptoQueueSize = v1CryptoQueueSize;
+        this.maxConnections = maxConnections;
+        this.connectionsPerSecondPerIp = connectionsPerSecondPerIp;
+        this.connectionBurstPerIp = connectionBurstPerIp;
+        this.readTimeout = readTimeout;
+        this.connectionTimeout = connectionTimeout;
+        this.dispatchThreads = dispatchThreads;
+        this.dispatchQueueSize = dispatchQueueSize;
+        this.dispatchBatchSize = dispatchBatchSize;
+    }
+
+    public NetworkVotifierConfiguration() {
+        this.transport = VotifierServerSettings.DEFAULT_TRANSPORT;
+        this.bossThreads = VotifierServerSettings.DEFAULT_BOSS_THREADS;
+        // A standalone server has the machine to itself.
+        this.workerThreads = 0;
+        this.reusePortAcceptors = 1;
+        this.v1CryptoThreads = VotifierServerSettings.DEFAULT_V1_CRYPTO_THREADS;
+        this.v1CryptoQueueSize = VotifierServerSettings.DEFAULT_V1_CRYPTO_QUEUE_SIZE;
+        this.maxConnections = VotifierServerSettings.DEFAULT_MAX_CONNECTIONS;
+        this.connectionsPerSecondPerIp = VotifierServerSettings.DEFAULT_CONNECTIONS_PER_SECOND_PER_IP;
+        this.connectionBurstPerIp = VotifierServerSettings.DEFAULT_CONNECTION_BURST_PER_IP;
+        this.readTimeout = VotifierServerSettings.DEFAULT_READ_TIMEOUT;
+        this.connectionTimeout = VotifierServerSettings.DEFAULT_CONNECTION_TIMEOUT;
+        // Forwarding can block on the network, so keep it off the network threads.
+        this.dispatchThreads = 2;
+        this.dispatchQueueSize = VotifierServerSettings.DEFAULT_DISPATCH_QUEUE_SIZE;
+        this.dispatchBatchSize = VotifierServerSettings.DEFAULT_DISPATCH_BATCH_SIZE;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getReusePortAcceptors() {
+        return reusePortAcceptors;
+    }
+
+    public int getV1CryptoThreads() {
+        return v1CryptoThreads;
+    }
+
+    public int getV1CryptoQueueSize() {
+        return v1CryptoQueueSize;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getConnectionsPerSecondPerIp() {
+        return connectionsPerSecondPerIp;
+    }
+
+    public int getConnectionBurstPerIp() {
+        return connectionBurstPerIp;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public int getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public int getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    public int getDispatchQueueSize() {
+        return dispatchQueueSize;
+    }
+
+    public int getDispatchBatchSize() {
+        return dispatchBatchSize;
+    }
+}
@@ -1,5 +1,7 @@
 package com.vexsoftware.votifier.standalone.config.redis;
 
+import com.vexsoftware.votifier.support.forwarding.redis.RedisStreamForwardingVoteSource;
+
 public class RedisVotifierConfiguration {
 
     private final boolean enabled;
@@ -9,11 +11,18 @@ public class RedisVotifierConfiguration {
     private final String password;
     private final String uri;
     private final String channel;
+    private final String format;
+    private final String transport;
+    private final long maxLength;
+    private final String routing;
+    private final int shards;
 
     public RedisVotifierConfiguration(
             boolean enabled, String address, int port,
             String username, String password, String uri,
-            String channel
+            String channel, String format,
+            String transport, long maxLength,
+            String routing, int shards
     ) {
         this.enabled = enabled;
         this.address = address;
@@ -22,6 +31,11 @@ public class RedisVotifierConfiguration {
         this.channel = channel;
         this.username = username;
         this.uri = uri;
+        this.format = format;
+        this.transport = transport;
+        this.maxLength = maxLength;
+        this.routing = routing;
+        this.shards = shards;
     }
 
     public RedisVotifierConfiguration() {
@@ -32,6 +46,11 @@ public class RedisVotifierConfiguration {
         this.password = "";
         this.uri = "";
         this.channel = "nuvotifier:votes";
+        this.format = "json";
+        this.transport = "pubsub";
+        this.maxLength = RedisStreamForwardingVoteSource.DEFAULT_MAX_LENGTH;
+        this.routing = "broadcast";
+        this.shards = 16;
     }
 
     public boolean isEnabled() {
@@ -61,4 +80,24 @@ public class RedisVotifierConfiguration {
     public String getUri() {
         return uri;
     }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public long getMaxLength() {
+        return maxLength;
+    }
+
+    public String getRouting() {
+        return routing;
+    }
+
+    public int getShards() {
+        return shards;
+    }
 }
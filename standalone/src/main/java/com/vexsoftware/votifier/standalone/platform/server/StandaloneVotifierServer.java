@@ -1,19 +1,27 @@
 package com.vexsoftware.votifier.standalone.platform.server;
 
+import com.vexsoftware.votifier.metrics.LoggingMetricsExporter;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.net.VotifierServerBootstrap;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.VotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
 import com.vexsoftware.votifier.standalone.config.redis.RedisVotifierConfiguration;
 import com.vexsoftware.votifier.standalone.config.server.BackendServer;
 import com.vexsoftware.votifier.standalone.platform.logger.StandaloneVotifierLoggingAdapter;
 import com.vexsoftware.votifier.standalone.platform.scheduler.StandaloneVotifierScheduler;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.cache.MemoryVoteCache;
 import com.vexsoftware.votifier.support.forwarding.proxy.ProxyForwardingVoteSource;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisCredentials;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisStreamForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisVoteRouter;
 import com.vexsoftware.votifier.util.KeyCreator;
 
 import java.net.InetAddress;
@@ -24,6 +32,7 @@ import java.security.KeyPair;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
@@ -37,15 +46,20 @@ public class StandaloneVotifierServer implements VotifierPlugin {
     private final VotifierScheduler scheduler;
     private final Map<String, BackendServer> backendServers;
     private final boolean disableV1Protocol;
+    private final int metricsInterval;
+    private final VotifierServerSettings serverSettings;
     private ForwardingVoteSource forwardingMethod;
     private VotifierServerBootstrap bootstrap;
+    private ScheduledVotifierTask metricsTask;
 
     public StandaloneVotifierServer(
             boolean debug, Map<String, Key> tokens,
             KeyPair v1Key, InetSocketAddress bind,
             Map<String, BackendServer> backendServers,
             boolean disableV1Protocol,
-            RedisVotifierConfiguration redis
+            int metricsInterval,
+            RedisVotifierConfiguration redis,
+            VotifierServerSettings serverSettings
     ) {
         this.debug = debug;
         this.bind = bind;
@@ -54,13 +68,19 @@ public class StandaloneVotifierServer implements VotifierPlugin {
         this.backendServers = backendServers;
         this.scheduler = new StandaloneVotifierScheduler(Executors.newScheduledThreadPool(1));
         this.disableV1Protocol = disableV1Protocol;
+        this.metricsInterval = metricsInterval;
         this.redis = redis;
+        this.serverSettings = serverSettings;
     }
 
     public void start(Consumer<Throwable> error) {
-        this.bootstrap = new VotifierServerBootstrap(bind.getHostString(), bind.getPort(), this, disableV1Protocol);
+        this.bootstrap = new VotifierServerBootstrap(bind.getHostString(), bind.getPort(), this, disableV1Protocol, serverSettings);
         this.bootstrap.start(error);
         this.makeForwardingSource(backendServers);
+
+        if (metricsInterval > 0) {
+            this.metricsTask = VotifierMetrics.global().scheduleExport(scheduler, new LoggingMetricsExporter(getPluginLogger()), metricsInterval);
+        }
     }
 
     public void halt() {
@@ -73,6 +93,11 @@ public class StandaloneVotifierServer implements VotifierPlugin {
             forwardingMethod.halt();
             forwardingMethod = null;
         }
+
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
     }
 
     private void makeForwardingSource(Map<String, BackendServer> backendServers) {
@@ -86,9 +111,21 @@ public class StandaloneVotifierServer implements VotifierPlugin {
                     .channel(redis.getChannel())
                     .build();
 
-            this.forwardingMethod = new RedisForwardingVoteSource(
-                    redisCredentials, getPluginLogger()
-            );
+            if ("stream".equals(redis.getTransport())) {
+                this.forwardingMethod = new RedisStreamForwardingVoteSource(
+                        redisCredentials, redis.getMaxLength(), new MemoryVoteCache(this, -1), getPluginLogger()
+                );
+            } else {
+                // There are no players here to look up, so votes can't follow them to their server.
+                RedisVoteRouter router = RedisVoteRouter.fromName(
+                        redis.getRouting(), redisCredentials.getChannel(), redis.getShards(),
+                        username -> Optional.empty(), null
+                );
+                this.forwardingMethod = new RedisForwardingVoteSource(
+                        redisCredentials, VoteCodec.Format.fromName(redis.getFormat()), router,
+                        new MemoryVoteCache(this, -1), getPluginLogger()
+                );
+            }
 
             try {
                 this.forwardingMethod.init();
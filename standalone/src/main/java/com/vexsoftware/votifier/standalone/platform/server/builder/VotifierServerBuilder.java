@@ -1,5 +1,6 @@
 package com.vexsoftware.votifier.standalone.platform.server.builder;
 
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAIO;
 import com.vexsoftware.votifier.standalone.config.redis.RedisVotifierConfiguration;
 import com.vexsoftware.votifier.standalone.config.server.BackendServer;
@@ -23,7 +24,9 @@ public class VotifierServerBuilder {
     private Map<String, BackendServer> servers;
     private boolean debug;
     private boolean disableV1Protocol;
+    private int metricsInterval;
     private RedisVotifierConfiguration redis;
+    private VotifierServerSettings serverSettings = VotifierServerSettings.defaults();
 
     public VotifierServerBuilder addToken(String service, String token) {
         Objects.requireNonNull(service, "service");
@@ -66,14 +69,24 @@ public class VotifierServerBuilder {
         return this;
     }
 
+    public VotifierServerBuilder metricsInterval(int metricsInterval) {
+        this.metricsInterval = metricsInterval;
+        return this;
+    }
+
     public VotifierServerBuilder redis(RedisVotifierConfiguration cfg) {
         this.redis = cfg;
         return this;
     }
 
+    public VotifierServerBuilder serverSettings(VotifierServerSettings serverSettings) {
+        this.serverSettings = Objects.requireNonNull(serverSettings, "serverSettings");
+        return this;
+    }
+
     public StandaloneVotifierServer create() {
         Objects.requireNonNull(bind, "need an address to bind to");
         Objects.requireNonNull(servers, "need a list of servers to forward votes for");
-        return new StandaloneVotifierServer(debug, keyMap, v1Key, bind, servers, disableV1Protocol, redis);
+        return new StandaloneVotifierServer(debug, keyMap, v1Key, bind, servers, disableV1Protocol, metricsInterval, redis, serverSettings);
     }
 }
@@ -8,17 +8,26 @@ import com.velocitypowered.api.event.proxy.ProxyReloadEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.vexsoftware.votifier.VoteHandler;
+import com.vexsoftware.votifier.metrics.LoggingMetricsExporter;
+import com.vexsoftware.votifier.metrics.VotifierMetrics;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.net.VotifierServerBootstrap;
+import com.vexsoftware.votifier.net.VotifierServerSettings;
 import com.vexsoftware.votifier.net.VotifierSession;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAIO;
 import com.vexsoftware.votifier.net.protocol.v1crypto.RSAKeygen;
 import com.vexsoftware.votifier.platform.BackendServer;
+import com.vexsoftware.votifier.platform.BackendServerCache;
 import com.vexsoftware.votifier.platform.LoggingAdapter;
 import com.vexsoftware.votifier.platform.ProxyVotifierPlugin;
+import com.vexsoftware.votifier.platform.scheduler.ScheduledVotifierTask;
 import com.vexsoftware.votifier.platform.scheduler.VotifierScheduler;
+import com.vexsoftware.votifier.support.forwarding.AbstractPluginMessagingForwardingSource;
 import com.vexsoftware.votifier.support.forwarding.ForwardingVoteSource;
 import com.vexsoftware.votifier.support.forwarding.ServerFilter;
 import com.vexsoftware.votifier.support.forwarding.cache.FileVoteCache;
@@ -27,6 +36,8 @@ import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
 import com.vexsoftware.votifier.support.forwarding.proxy.ProxyForwardingVoteSource;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisCredentials;
 import com.vexsoftware.votifier.support.forwarding.redis.RedisForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisStreamForwardingVoteSource;
+import com.vexsoftware.votifier.support.forwarding.redis.RedisVoteRouter;
 import com.vexsoftware.votifier.util.IOUtil;
 import com.vexsoftware.votifier.util.KeyCreator;
 import com.vexsoftware.votifier.util.TokenUtil;
@@ -55,12 +66,16 @@ import java.nio.file.StandardCopyOption;
 import java.security.Key;
 import java.security.KeyPair;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Plugin(id = "nuvotifier", name = "NuVotifier", version = "@version@", authors = "Ichbinjoe",
         description = "Safe, smart, and secure Votifier server plugin")
 public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
 
+    /**
+     * Where votes are kept while Redis cannot be reached, relative to the data folder.
+     */
+    private static final String REDIS_SPILL_FILE_NAME = "redis-spill.json";
+
     @Inject
     public Logger logger;
     private LoggingAdapter loggingAdapter;
@@ -125,6 +140,11 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
             logger.info("QUIET mode enabled!");
         }
 
+        int metricsInterval = Math.toIntExact(config.getLong("metrics-interval", 0L));
+        if (metricsInterval > 0) {
+            metricsTask = VotifierMetrics.global().scheduleExport(scheduler, new LoggingMetricsExporter(loggingAdapter), metricsInterval);
+        }
+
         final boolean disableV1 = config.getBoolean("disable-v1-protocol", false);
         if (disableV1) {
             logger.info("------------------------------------------------------------------------------");
@@ -133,7 +153,25 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
             logger.info("------------------------------------------------------------------------------");
         }
 
-        this.bootstrap = new VotifierServerBootstrap(host, port, this, disableV1);
+        VotifierServerSettings.Builder settings = VotifierServerSettings.builder();
+        Toml network = config.getTable("network");
+        if (network != null) {
+            settings.transport(network.getString("transport", VotifierServerSettings.DEFAULT_TRANSPORT))
+                    .bossThreads(Math.toIntExact(network.getLong("boss-threads", (long) VotifierServerSettings.DEFAULT_BOSS_THREADS)))
+                    .workerThreads(Math.toIntExact(network.getLong("worker-threads", (long) VotifierServerSettings.DEFAULT_WORKER_THREADS)))
+                    .v1CryptoThreads(Math.toIntExact(network.getLong("v1-crypto-threads", (long) VotifierServerSettings.DEFAULT_V1_CRYPTO_THREADS)))
+                    .v1CryptoQueueSize(Math.toIntExact(network.getLong("v1-crypto-queue-size", (long) VotifierServerSettings.DEFAULT_V1_CRYPTO_QUEUE_SIZE)))
+                    .maxConnections(Math.toIntExact(network.getLong("max-connections", (long) VotifierServerSettings.DEFAULT_MAX_CONNECTIONS)))
+                    .connectionsPerSecondPerIp(Math.toIntExact(network.getLong("connections-per-second-per-ip", (long) VotifierServerSettings.DEFAULT_CONNECTIONS_PER_SECOND_PER_IP)))
+                    .connectionBurstPerIp(Math.toIntExact(network.getLong("connection-burst-per-ip", (long) VotifierServerSettings.DEFAULT_CONNECTION_BURST_PER_IP)))
+                    .readTimeout(Math.toIntExact(network.getLong("read-timeout", (long) VotifierServerSettings.DEFAULT_READ_TIMEOUT)))
+                    .connectionTimeout(Math.toIntExact(network.getLong("connection-timeout", (long) VotifierServerSettings.DEFAULT_CONNECTION_TIMEOUT)))
+                    .dispatchThreads(Math.toIntExact(network.getLong("dispatch-threads", (long) VotifierServerSettings.DEFAULT_DISPATCH_THREADS)))
+                    .dispatchQueueSize(Math.toIntExact(network.getLong("dispatch-queue-size", (long) VotifierServerSettings.DEFAULT_DISPATCH_QUEUE_SIZE)))
+                    .dispatchBatchSize(Math.toIntExact(network.getLong("dispatch-batch-size", (long) VotifierServerSettings.DEFAULT_DISPATCH_BATCH_SIZE)));
+        }
+
+        this.bootstrap = new VotifierServerBootstrap(host, port, this, disableV1, settings.build());
         this.bootstrap.start(err -> {});
 
         Toml fwd = config.getTable("forwarding");
@@ -149,6 +187,10 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
                 String channel = table.getString("channel", "NuVotifier");
                 String cacheMethod = table.getString("cache", "file").toLowerCase();
                 int dumpRate = table.getLong("dumpRate", 5L).intValue();
+                VoteCodec.Format format = VoteCodec.Format.fromName(table.getString("format", "json"));
+                boolean ack = table.getBoolean("ack", false);
+                int ackWindow = table.getLong("ackWindow", 64L).intValue();
+                int ackTimeout = table.getLong("ackTimeout", 10L).intValue();
                 VoteCache cache = null;
 
                 switch (cacheMethod) {
@@ -192,10 +234,14 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
 
                 if (!table.getBoolean("onlySendToJoinedServer")) {
                     try {
-                        this.forwardingMethod = new PluginMessagingForwardingSource(
-                                channel, filter, this, cache, dumpRate
+                        AbstractPluginMessagingForwardingSource source = new PluginMessagingForwardingSource(
+                                channel, filter, this, cache, dumpRate, format
                         );
+                        if (ack) {
+                            source.enableAcknowledgements(ackWindow, ackTimeout);
+                        }
 
+                        this.forwardingMethod = source;
                         this.forwardingMethod.init();
                     } catch (RuntimeException e) {
                         getLogger().error("Could not set up plugin messaging for vote forwarding", e);
@@ -208,10 +254,14 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
                     }
 
                     try {
-                        this.forwardingMethod = new OnlineForwardPluginMessagingForwardingSource(
-                                channel, filter, this, cache, fallbackServer, dumpRate
+                        AbstractPluginMessagingForwardingSource source = new OnlineForwardPluginMessagingForwardingSource(
+                                channel, filter, this, cache, fallbackServer, dumpRate, format
                         );
+                        if (ack) {
+                            source.enableAcknowledgements(ackWindow, ackTimeout);
+                        }
 
+                        this.forwardingMethod = source;
                         this.forwardingMethod.init();
                     } catch (RuntimeException e) {
                         getLogger().error("Could not set up plugin messaging for vote forwarding", e);
@@ -272,18 +322,47 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
                 Toml redis = fwd.getTable("redis");
 
                 try {
-                    this.forwardingMethod = new RedisForwardingVoteSource(
-                            RedisCredentials.builder()
-                                    .host(redis.getString("address"))
-                                    .port(redis.getLong("port").intValue())
-                                    .username(redis.getString("username"))
-                                    .password(redis.getString("password"))
-                                    .uri(redis.getString("uri"))
-                                    .channel(redis.getString("channel"))
-                                    .build(),
-
-                            getPluginLogger()
-                    );
+                    RedisCredentials credentials = RedisCredentials.builder()
+                            .host(redis.getString("address"))
+                            .port(redis.getLong("port").intValue())
+                            .username(redis.getString("username"))
+                            .password(redis.getString("password"))
+                            .uri(redis.getString("uri"))
+                            .channel(redis.getString("channel"))
+                            .build();
+
+                    String transport = redis.getString("transport", "pubsub");
+                    switch (transport) {
+                        case "pubsub":
+                            RedisVoteRouter router = RedisVoteRouter.fromName(
+                                    redis.getString("routing", "broadcast"),
+                                    credentials.getChannel(),
+                                    redis.getLong("shards", 16L).intValue(),
+                                    username -> server.getPlayer(username)
+                                            .flatMap(Player::getCurrentServer)
+                                            .map(connection -> connection.getServerInfo().getName()),
+                                    redis.getString("fallback", null)
+                            );
+                            this.forwardingMethod = new RedisForwardingVoteSource(
+                                    credentials,
+                                    VoteCodec.Format.fromName(redis.getString("format", "json")),
+                                    router,
+                                    createRedisSpill(),
+                                    getPluginLogger()
+                            );
+                            break;
+                        case "stream":
+                            this.forwardingMethod = new RedisStreamForwardingVoteSource(
+                                    credentials,
+                                    redis.getLong("maxLength", RedisStreamForwardingVoteSource.DEFAULT_MAX_LENGTH),
+                                    createRedisSpill(),
+                                    getPluginLogger()
+                            );
+                            break;
+                        default:
+                            getLogger().error("Unknown Redis transport '{}'. Supported transports are 'pubsub' and 'stream'.", transport);
+                            return false;
+                    }
 
                     this.forwardingMethod.init();
                     return true;
@@ -309,6 +388,23 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
             forwardingMethod.halt();
             forwardingMethod = null;
         }
+
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
+    }
+
+    /**
+     * Creates the cache that keeps votes while Redis cannot be reached, in a file so they survive a restart.
+     */
+    private VoteCache createRedisSpill() {
+        try {
+            return new FileVoteCache(this, new File(configDir.toFile(), REDIS_SPILL_FILE_NAME), -1);
+        } catch (IOException e) {
+            getLogger().error("Unable to load the Redis spill file, votes held while Redis is unreachable will only be kept in memory.", e);
+            return new MemoryVoteCache(this, -1);
+        }
     }
 
     public boolean reload() {
@@ -443,6 +539,16 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
      */
     private ForwardingVoteSource forwardingMethod;
 
+    /**
+     * Task that logs the vote metrics, if enabled
+     */
+    private ScheduledVotifierTask metricsTask;
+
+    /**
+     * Wrappers for the servers behind this proxy, reused for every forwarded vote
+     */
+    private final BackendServerCache<RegisteredServer> backendServers = new BackendServerCache<>(VelocityBackendServer::new);
+
     private void gracefulExit() {
         logger.error("Votifier did not initialize properly!");
     }
@@ -504,14 +610,11 @@ public class NuVotifierVelocity implements VoteHandler, ProxyVotifierPlugin {
 
     @Override
     public Collection<BackendServer> getAllBackendServers() {
-        return server.getAllServers()
-                .stream()
-                .map(VelocityBackendServer::new)
-                .collect(Collectors.toList());
+        return backendServers.getAll(server.getAllServers());
     }
 
     @Override
     public Optional<BackendServer> getServer(String name) {
-        return server.getServer(name).map(VelocityBackendServer::new);
+        return server.getServer(name).map(backendServers::get);
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.vexsoftware.votifier.model.Vote;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.platform.BackendServer;
 import com.vexsoftware.votifier.support.forwarding.AbstractPluginMessagingForwardingSource;
 import com.vexsoftware.votifier.support.forwarding.ServerFilter;
@@ -24,8 +25,8 @@ public final class OnlineForwardPluginMessagingForwardingSource extends Abstract
     private final NuVotifierVelocity plugin;
     private final ChannelIdentifier velocityChannelId;
 
-    public OnlineForwardPluginMessagingForwardingSource(String channel, ServerFilter filter, NuVotifierVelocity plugin, VoteCache cache, String fallback, int dumpRate) {
-        super(channel, filter, plugin, cache, dumpRate);
+    public OnlineForwardPluginMessagingForwardingSource(String channel, ServerFilter filter, NuVotifierVelocity plugin, VoteCache cache, String fallback, int dumpRate, VoteCodec.Format format) {
+        super(channel, filter, plugin, cache, dumpRate, format);
         this.fallbackServer = fallback;
         this.plugin = plugin;
         this.velocityChannelId = VelocityUtil.getId(channel);
@@ -77,6 +78,9 @@ public final class OnlineForwardPluginMessagingForwardingSource extends Abstract
     public void onPluginMessage(PluginMessageEvent e) {
         if (e.getIdentifier().equals(velocityChannelId)) {
             e.setResult(PluginMessageEvent.ForwardResult.handled());
+            if (e.getSource() instanceof ServerConnection) {
+                handleAcknowledgement(e.getData());
+            }
         }
     }
 }
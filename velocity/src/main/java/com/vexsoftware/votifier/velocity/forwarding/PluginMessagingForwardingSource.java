@@ -3,7 +3,9 @@ package com.vexsoftware.votifier.velocity.forwarding;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PluginMessageEvent;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
+import com.vexsoftware.votifier.model.VoteCodec;
 import com.vexsoftware.votifier.support.forwarding.AbstractPluginMessagingForwardingSource;
 import com.vexsoftware.votifier.support.forwarding.ServerFilter;
 import com.vexsoftware.votifier.support.forwarding.cache.VoteCache;
@@ -16,8 +18,8 @@ public class PluginMessagingForwardingSource extends AbstractPluginMessagingForw
     private final NuVotifierVelocity plugin;
     private final ChannelIdentifier velocityChannelId;
 
-    public PluginMessagingForwardingSource(String channel, ServerFilter filter, NuVotifierVelocity plugin, VoteCache cache, int dumpRate) {
-        super(channel, filter, plugin, cache, dumpRate);
+    public PluginMessagingForwardingSource(String channel, ServerFilter filter, NuVotifierVelocity plugin, VoteCache cache, int dumpRate, VoteCodec.Format format) {
+        super(channel, filter, plugin, cache, dumpRate, format);
         this.plugin = plugin;
         this.velocityChannelId = VelocityUtil.getId(channel);
     }
@@ -31,6 +33,9 @@ public class PluginMessagingForwardingSource extends AbstractPluginMessagingForw
     public void onPluginMessage(PluginMessageEvent e) {
         if (e.getIdentifier().equals(velocityChannelId)) {
             e.setResult(PluginMessageEvent.ForwardResult.handled());
+            if (e.getSource() instanceof ServerConnection) {
+                handleAcknowledgement(e.getData());
+            }
         }
     }
 
@@ -4,13 +4,23 @@ import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.messages.LegacyChannelIdentifier;
 import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class VelocityUtil {
 
+    private static final Map<String, ChannelIdentifier> CHANNEL_IDS = new ConcurrentHashMap<>();
+
     private VelocityUtil() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
 
     public static ChannelIdentifier getId(String channel) {
+        // Called for every plugin message we send, so parse each channel name only once.
+        return CHANNEL_IDS.computeIfAbsent(channel, VelocityUtil::createId);
+    }
+
+    private static ChannelIdentifier createId(String channel) {
         if (channel.contains(":")) {
             String[] split = channel.split(":");
             return MinecraftChannelIdentifier.create(split[0], split[1]);